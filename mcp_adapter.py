@@ -27,7 +27,8 @@ def check_server_running():
     """Verifica si el servidor Spring Boot ya está corriendo"""
     try:
         response = requests.get(f"{SERVER_URL}/health", timeout=2)
-        return response.status_code == 200
+        # 503 = arrancado pero aún calentando (WARMING_UP)
+        return response.status_code in (200, 503)
     except:
         return False
 
@@ -112,7 +113,11 @@ def call_tool(tool_name: str, arguments: Dict[str, Any]) -> Any:
         "get_connection_info": "/get_connection_info",
         "get_database_info": "/get_database_info",
         "get_table_columns": "/get_table_columns",
-        "execute_count_by_department": "/execute_count_by_department"
+        "describe_schema": "/describe_schema",
+        "import_users": "/import_users",
+        "export_users": "/export_users",
+        "execute_count_by_department": "/execute_count_by_department",
+        "get_slow_queries": "/get_slow_queries"
     }
 
     endpoint = endpoint_map.get(tool_name)
@@ -149,6 +154,13 @@ def handle_initialize(params: Dict[str, Any]) -> Dict[str, Any]:
         }
     }
 
+# Herramientas que el servidor puede servir desde la réplica de lectura
+READ_ONLY_TOOLS = {
+    "find_user_by_id", "find_all_users", "find_users_by_department", "search_users",
+    "execute_count_by_department", "get_database_info", "get_table_columns", "describe_schema",
+    "export_users"
+}
+
 def handle_tools_list(params: Dict[str, Any]) -> Dict[str, Any]:
     """Maneja la lista de herramientas disponibles"""
     tools = get_tools()
@@ -207,6 +219,64 @@ def handle_tools_list(params: Dict[str, Any]) -> Dict[str, Any]:
         elif tool["name"] == "get_connection_info":
             pass  # No requiere parámetros
 
+        elif tool["name"] == "transfer_data":
+            mcp_tool["inputSchema"]["properties"] = {
+                "users": {
+                    "type": "array",
+                    "description": "Usuarios a insertar (name, email, department, role, active)",
+                    "items": {"type": "object"}
+                },
+                "mode": {
+                    "type": "string",
+                    "enum": ["all_or_nothing", "best_effort"],
+                    "description": "all_or_nothing deshace todo ante un fallo; best_effort confirma las filas válidas e informa de las rechazadas"
+                }
+            }
+            mcp_tool["inputSchema"]["required"] = ["users"]
+
+        elif tool["name"] == "import_users":
+            mcp_tool["inputSchema"]["properties"] = {
+                "path": {"type": "string", "description": "Ruta del fichero, relativa al directorio de importación del servidor"},
+                "format": {"type": "string", "enum": ["csv", "ndjson"], "description": "Formato (por defecto, según la extensión)"},
+                "deferIndexes": {"type": "boolean", "description": "Recrear los índices secundarios al terminar en vez de mantenerlos fila a fila"}
+            }
+            mcp_tool["inputSchema"]["required"] = ["path"]
+
+        elif tool["name"] == "export_users":
+            mcp_tool["inputSchema"]["properties"] = {
+                "path": {"type": "string", "description": "Ruta del fichero, relativa al directorio de exportación del servidor"},
+                "format": {"type": "string", "enum": ["csv", "ndjson"], "description": "Formato (por defecto, según la extensión)"},
+                "table": {"type": "string", "enum": ["users", "user_statistics"], "description": "Tabla a exportar (por defecto users)"},
+                "columns": {"type": "array", "items": {"type": "string"}, "description": "Columnas a exportar (por defecto todas)"},
+                "filter": {
+                    "type": "object",
+                    "description": "Filtro sobre users: department, role, active, limit",
+                    "properties": {
+                        "department": {"type": "string"},
+                        "role": {"type": "string"},
+                        "active": {"type": "boolean"},
+                        "limit": {"type": "number"}
+                    }
+                }
+            }
+            mcp_tool["inputSchema"]["required"] = ["path"]
+
+        elif tool["name"] == "get_slow_queries":
+            mcp_tool["inputSchema"]["properties"] = {
+                "limit": {"type": "number", "description": "Máximo de consultas lentas a devolver (por defecto todas las conservadas)"}
+            }
+
+        # Herramientas de lectura: pueden exigir leer de la BD principal y no de la réplica
+        if tool["name"] in READ_ONLY_TOOLS:
+            mcp_tool["inputSchema"]["properties"]["requireFresh"] = {
+                "type": "boolean",
+                "description": "Leer de la base de datos principal aunque haya réplica de lectura"
+            }
+            mcp_tool["inputSchema"]["properties"]["noCache"] = {
+                "type": "boolean",
+                "description": "No usar ni rellenar las cachés de resultados del servidor"
+            }
+
         mcp_tools.append(mcp_tool)
 
     return {"tools": mcp_tools}
@@ -0,0 +1,120 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.config.ConnectionPool;
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.ra2.DatabaseUserServiceImpl;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base de datos H2 en memoria con el esquema de la aplicación y users filas.
+ *
+ * JMH ejecuta cada combinación de benchmark y parámetros en su propia JVM (fork),
+ * así que cada una empieza con una base de datos nueva: DatabaseConfig.DB_URL es
+ * única por proceso. El servicio se crea sin Spring, con la configuración por
+ * defecto de sus cachés y contadores y el pool de conexiones activado como en
+ * application.yml.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+    static final String[] ROLES = {"Developer", "Manager", "Analyst", "Specialist"};
+
+    // Filas por batchInsert() al sembrar
+    private static final int SEED_CHUNK = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    DatabaseUserServiceImpl service;
+
+    // Rango de ids sembrados: [minId, maxId]
+    long minId;
+    long maxId;
+
+    // Sufijo único para los emails que crean los benchmarks de escritura
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        DatabaseConfig.enablePool(new ConnectionPool.Settings());
+        DatabaseConfig.initializeDatabase();
+        service = new DatabaseUserServiceImpl();
+
+        int existing = countUsers();
+        for (int seeded = existing; seeded < users; seeded += SEED_CHUNK) {
+            service.batchInsert(users(Math.min(SEED_CHUNK, users - seeded), "seed" + seeded));
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM users")) {
+            rs.next();
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+            // Estadísticas del optimizador con la tabla ya llena
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseConfig.shutdownPool();
+    }
+
+    /**
+     * Id sembrado al azar (los benchmarks solo borran usuarios que ellos mismos crean)
+     */
+    long randomId() {
+        return ThreadLocalRandom.current().nextLong(minId, maxId + 1);
+    }
+
+    static String randomDepartment() {
+        return DEPARTMENTS[ThreadLocalRandom.current().nextInt(DEPARTMENTS.length)];
+    }
+
+    /**
+     * count usuarios nuevos con emails únicos en esta JVM
+     */
+    List<User> newUsers(int count) {
+        return users(count, "bench" + sequence.incrementAndGet());
+    }
+
+    String uniqueEmail() {
+        return "bench" + sequence.incrementAndGet() + "@example.com";
+    }
+
+    private static List<User> users(int count, String prefix) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User(prefix + " " + i, prefix + "." + i + "@example.com",
+                    DEPARTMENTS[i % DEPARTMENTS.length], ROLES[i % ROLES.length]);
+            user.setActive(i % 10 != 0);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static int countUsers() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
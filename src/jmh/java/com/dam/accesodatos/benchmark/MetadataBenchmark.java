@@ -0,0 +1,41 @@
+package com.dam.accesodatos.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conexión y metadatos: test_connection, get_database_info, get_table_columns y describe_schema.
+ *
+ * Sin DDL durante la medición, SchemaMetadataCache sirve las tres últimas tras la
+ * primera llamada: se mide el coste de la caché, no el de DatabaseMetaData.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetadataBenchmark {
+
+    @Benchmark
+    public String testConnection(BenchmarkDatabase db) {
+        return db.service.testConnection();
+    }
+
+    @Benchmark
+    public String getDatabaseInfo(BenchmarkDatabase db) {
+        return db.service.getDatabaseInfo();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getTableColumns(BenchmarkDatabase db) {
+        return db.service.getTableColumns("users");
+    }
+
+    @Benchmark
+    public Map<String, Object> describeSchema(BenchmarkDatabase db) {
+        return db.service.describeSchema();
+    }
+}
@@ -0,0 +1,92 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.config.CallOptions;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserPage;
+import com.dam.accesodatos.model.UserQueryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lecturas de DatabaseUserService: búsqueda por id, listados, búsquedas y conteo.
+ *
+ * Con noCache = true cada llamada va a la base de datos (CallOptions.noCache);
+ * con false se mide también el efecto de UserCache y QueryResultCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean noCache;
+
+    private CallOptions options;
+
+    @Setup
+    public void setUp() {
+        options = CallOptions.of(false, noCache);
+    }
+
+    @Benchmark
+    public User findUserById(BenchmarkDatabase db) {
+        return CallOptions.run(options, () -> db.service.findUserById(db.randomId()));
+    }
+
+    @Benchmark
+    public List<User> findAll(BenchmarkDatabase db) {
+        return CallOptions.run(options, db.service::findAll);
+    }
+
+    @Benchmark
+    public List<User> findUsersByDepartment(BenchmarkDatabase db) {
+        return CallOptions.run(options, () -> db.service.findUsersByDepartment(BenchmarkDatabase.randomDepartment()));
+    }
+
+    @Benchmark
+    public List<User> searchUsers(BenchmarkDatabase db) {
+        UserQueryDto query = new UserQueryDto(BenchmarkDatabase.randomDepartment(), "Developer", true, 50, 100);
+        return CallOptions.run(options, () -> db.service.searchUsers(query));
+    }
+
+    @Benchmark
+    public UserPage searchUsersPage(BenchmarkDatabase db) {
+        // Primera página y la siguiente por cursor
+        UserQueryDto query = new UserQueryDto(BenchmarkDatabase.randomDepartment(), null, true, 50, null);
+        return CallOptions.run(options, () -> {
+            UserPage first = db.service.searchUsersPage(query);
+            query.setCursor(first.getNextCursor());
+            return first.getNextCursor() != null ? db.service.searchUsersPage(query) : first;
+        });
+    }
+
+    @Benchmark
+    public long streamAll(BenchmarkDatabase db, Blackhole blackhole) {
+        return CallOptions.run(options, () -> {
+            long rows = 0;
+            try (Stream<User> users = db.service.streamAll()) {
+                for (Iterator<User> it = users.iterator(); it.hasNext(); rows++) {
+                    blackhole.consume(it.next());
+                }
+            }
+            return rows;
+        });
+    }
+
+    @Benchmark
+    public int executeCountByDepartment(BenchmarkDatabase db) {
+        return CallOptions.run(options, () -> db.service.executeCountByDepartment(BenchmarkDatabase.randomDepartment()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.BatchInsertResult;
+import com.dam.accesodatos.model.TransferResult;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escrituras de DatabaseUserService: alta, modificación, baja, batch y transfer.
+ *
+ * Las altas hacen crecer la tabla durante la medición (unas decenas de miles de
+ * filas por iteración); con 1.000 usuarios sembrados eso pesa en los resultados.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WriteBenchmark {
+
+    // Filas por llamada de batch_insert_users y transfer_data
+    private static final int BATCH_ROWS = 100;
+
+    @Benchmark
+    public User createUser(BenchmarkDatabase db) {
+        return db.service.createUser(new UserCreateDto("Bench", db.uniqueEmail(),
+                BenchmarkDatabase.randomDepartment(), "Developer"));
+    }
+
+    @Benchmark
+    public User updateUser(BenchmarkDatabase db) {
+        // Rol distinto en cada llamada: el UPDATE siempre escribe
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setRole("Developer " + System.nanoTime());
+        return db.service.updateUser(db.randomId(), dto);
+    }
+
+    @Benchmark
+    public boolean createAndDeleteUser(BenchmarkDatabase db) {
+        // Se borra lo que se acaba de crear: la tabla no cambia de tamaño
+        User user = db.service.createUser(new UserCreateDto("Bench", db.uniqueEmail(),
+                BenchmarkDatabase.randomDepartment(), "Developer"));
+        return db.service.deleteUser(user.getId());
+    }
+
+    @Benchmark
+    public BatchInsertResult batchInsertUsers(BenchmarkDatabase db) {
+        return db.service.batchInsert(db.newUsers(BATCH_ROWS));
+    }
+
+    @Benchmark
+    public TransferResult transferDataAllOrNothing(BenchmarkDatabase db) {
+        return db.service.transferData(db.newUsers(BATCH_ROWS), false);
+    }
+
+    @Benchmark
+    public TransferResult transferDataBestEffort(BenchmarkDatabase db) {
+        return db.service.transferData(db.newUsers(BATCH_ROWS), true);
+    }
+}
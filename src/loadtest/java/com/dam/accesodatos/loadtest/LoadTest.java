@@ -0,0 +1,296 @@
+package com.dam.accesodatos.loadtest;
+
+import com.dam.accesodatos.McpAccesoDatosRa2Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga HTTP de los endpoints /mcp/{tool} con la aplicación completa
+ * (Jackson, controlador, ToolExecutor, logging y JDBC) en este mismo proceso.
+ *
+ * Arranca McpAccesoDatosRa2Application en un puerto aleatorio, siembra usuarios
+ * con batch_insert_users y lanza llamadas según una mezcla ponderada a ritmo fijo
+ * en bucle abierto: la petición i se programa para start + i / rate y se envía en
+ * su propio hilo virtual aunque las anteriores no hayan respondido. La latencia se
+ * mide desde ese instante programado, no desde el envío real, así que un servidor
+ * atascado no oculta su espera (coordinated omission).
+ *
+ * Resultados en --out (build/reports/loadtest por defecto):
+ * - latency.hlog: histogramas HdrHistogram por intervalo de 1 s, uno por
+ *   herramienta (etiqueta Tag=tool), en microsegundos
+ * - summary.txt: por herramienta, llamadas, errores, llamadas/s y p50/p99/p99.9/máx
+ *
+ * Opciones (--clave=valor): rate (llamadas/s, 200), duration-s (60), warmup-s (10),
+ * seed-users (10000), mix (ver {@link ToolMix#DEFAULT_MIX}), timeout-s (30), out.
+ * Las propiedades de Spring se pasan tal cual (p. ej. --ra2.jdbc.pool.max-size=20).
+ */
+public class LoadTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // Filas por llamada a batch_insert_users al sembrar
+    private static final int SEED_CHUNK = 1000;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI baseUri;
+    private final Duration timeout;
+
+    // Por herramienta: histograma del intervalo en curso, total y errores
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, Histogram> totals = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    LoadTest(URI baseUri, Duration timeout) {
+        this.baseUri = baseUri;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--") && eq > 2 && isOption(arg.substring(2, eq))) {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-s", "60"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-s", "10"));
+        int seedUsers = Integer.parseInt(options.getOrDefault("seed-users", "10000"));
+        String mix = options.getOrDefault("mix", ToolMix.DEFAULT_MIX);
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-s", "30")));
+        Path out = Paths.get(options.getOrDefault("out", "build/reports/loadtest"));
+        if (rate <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("rate y duration-s deben ser mayores que 0");
+        }
+
+        springArgs.add("--server.port=0");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(McpAccesoDatosRa2Application.class)
+                .run(springArgs.toArray(new String[0]))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTest test = new LoadTest(URI.create("http://localhost:" + port + "/mcp/"), timeout);
+
+            long[] userIds = test.seed(seedUsers);
+            ToolMix toolMix = new ToolMix(mix, userIds);
+            System.out.printf("Carga: %d llamadas/s durante %d s (+%d s de calentamiento), %d usuarios, mezcla %s%n",
+                    rate, durationSeconds, warmupSeconds, userIds.length, mix);
+
+            Files.createDirectories(out);
+            String summary = test.run(toolMix, rate, warmupSeconds, durationSeconds, out.resolve("latency.hlog"));
+            Files.writeString(out.resolve("summary.txt"), summary, StandardCharsets.UTF_8);
+            System.out.println();
+            System.out.print(summary);
+            System.out.println("Histogramas en " + out.resolve("latency.hlog").toAbsolutePath());
+        }
+    }
+
+    private static boolean isOption(String name) {
+        return List.of("rate", "duration-s", "warmup-s", "seed-users", "mix", "timeout-s", "out").contains(name);
+    }
+
+    /**
+     * Siembra count usuarios con batch_insert_users
+     *
+     * @return ids de todos los usuarios (los de data.sql y los sembrados)
+     */
+    @SuppressWarnings("unchecked")
+    long[] seed(int count) throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        Map<String, Object> existing = post("find_all_users", Map.of());
+        for (Map<String, Object> user : (List<Map<String, Object>>) existing.get("result")) {
+            ids.add(((Number) user.get("id")).longValue());
+        }
+
+        for (int seeded = 0; seeded < count; seeded += SEED_CHUNK) {
+            List<Map<String, Object>> chunk = new ArrayList<>();
+            for (int i = seeded; i < Math.min(count, seeded + SEED_CHUNK); i++) {
+                chunk.add(Map.of("name", "Seed " + i, "email", "seed" + i + "@example.com",
+                        "department", ToolMix.DEPARTMENTS[i % ToolMix.DEPARTMENTS.length],
+                        "role", ToolMix.ROLES[i % ToolMix.ROLES.length]));
+            }
+            Map<String, Object> response = post("batch_insert_users", Map.of("users", chunk));
+            for (Object id : (List<Object>) response.get("generatedIds")) {
+                ids.add(((Number) id).longValue());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Bucle abierto a rate llamadas/s. Solo cuentan las llamadas programadas después
+     * del calentamiento.
+     *
+     * @return tabla resumen
+     */
+    String run(ToolMix mix, int rate, int warmupSeconds, int durationSeconds, Path logFile) throws IOException {
+        for (String tool : mix.getTools()) {
+            recorders.put(tool, new Recorder(3));
+            totals.put(tool, new Histogram(3));
+            errors.put(tool, new LongAdder());
+        }
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        try (PrintStream log = new PrintStream(Files.newOutputStream(logFile), false, StandardCharsets.UTF_8)) {
+            HistogramLogWriter writer = new HistogramLogWriter(log);
+            long startMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(warmupSeconds);
+            writer.outputComment("Latencia de /mcp/{tool} en microsegundos desde el instante programado");
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLegend();
+
+            ScheduledExecutorService intervals = Executors.newSingleThreadScheduledExecutor();
+            intervals.scheduleAtFixedRate(() -> writeIntervals(writer), 1, 1, TimeUnit.SECONDS);
+            try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (long i = 0; ; i++) {
+                    long intended = start + i * 1_000_000_000L / rate;
+                    if (intended >= end) {
+                        break;
+                    }
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    String tool = mix.next(random);
+                    Map<String, Object> body = mix.body(tool, random);
+                    boolean measured = intended >= measureStart;
+                    callers.execute(() -> call(tool, body, intended, measured));
+                }
+                // close() espera a las llamadas en curso
+            } finally {
+                intervals.shutdown();
+            }
+            try {
+                intervals.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writeIntervals(writer);
+        }
+        return summary(durationSeconds);
+    }
+
+    private void call(String tool, Map<String, Object> body, long intended, boolean measured) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        boolean ok;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(tool))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ok = false;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (measured) {
+            recorders.get(tool).recordValue(Math.max(1, (System.nanoTime() - intended) / 1000));
+            if (!ok) {
+                errors.get(tool).increment();
+            }
+        }
+    }
+
+    /**
+     * Vuelca el histograma del último intervalo de cada herramienta al log y al total
+     */
+    private synchronized void writeIntervals(HistogramLogWriter writer) {
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram interval = entry.getValue().getIntervalHistogram();
+            if (interval.getTotalCount() == 0) {
+                continue;
+            }
+            totals.get(entry.getKey()).add(interval);
+            interval.setTag(entry.getKey());
+            writer.outputIntervalHistogram(interval);
+        }
+    }
+
+    private String summary(int durationSeconds) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-30s %9s %7s %9s %10s %10s %10s %10s%n",
+                "herramienta", "llamadas", "errores", "llam/s", "p50 ms", "p99 ms", "p99.9 ms", "máx ms"));
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Map.Entry<String, Histogram> entry : totals.entrySet()) {
+            long toolErrors = errors.get(entry.getKey()).sum();
+            appendRow(table, entry.getKey(), entry.getValue(), toolErrors, durationSeconds);
+            all.add(entry.getValue());
+            allErrors += toolErrors;
+        }
+        appendRow(table, "TOTAL", all, allErrors, durationSeconds);
+        table.append(String.format("Máximo de llamadas en curso: %d%n", maxInFlight.get()));
+        return table.toString();
+    }
+
+    private static void appendRow(StringBuilder table, String name, Histogram histogram, long errors, int durationSeconds) {
+        table.append(String.format("%-30s %9d %7d %9.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, histogram.getTotalCount(), errors, (double) histogram.getTotalCount() / durationSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> post(String tool, Map<String, Object> body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(tool))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException(tool + " respondió " + response.statusCode() + ": "
+                    + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return mapper.readValue(response.body(), Map.class);
+    }
+}
@@ -0,0 +1,146 @@
+package com.dam.accesodatos.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Mezcla ponderada de llamadas a herramientas: "find_user_by_id=40,search_users=20,...".
+ *
+ * Cada herramienta sabe construir el cuerpo JSON de su endpoint /mcp/{tool} con
+ * datos aleatorios (ids sembrados, departamentos de data.sql, emails únicos).
+ */
+class ToolMix {
+
+    static final String DEFAULT_MIX = "find_user_by_id=40,search_users=15,find_users_by_department=10,"
+            + "execute_count_by_department=10,update_user=10,create_user=5,get_table_columns=5,test_connection=5";
+
+    static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+    static final String[] ROLES = {"Developer", "Manager", "Analyst", "Specialist"};
+
+    private final List<String> tools = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final long[] userIds;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param mix herramienta=peso separados por comas
+     * @param userIds ids existentes para find_user_by_id y update_user
+     * @throws IllegalArgumentException si el formato, una herramienta o un peso no son válidos
+     */
+    ToolMix(String mix, long[] userIds) {
+        this.userIds = userIds;
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Entrada de mezcla no válida (herramienta=peso): " + entry);
+            }
+            String tool = parts[0].trim();
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Peso no válido para " + tool + ": " + weight);
+            }
+            // Comprueba que la herramienta está soportada
+            body(tool, RandomGenerator.getDefault());
+            tools.add(tool);
+            total += weight;
+            weights.add(total);
+        }
+        cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    List<String> getTools() {
+        return tools;
+    }
+
+    /**
+     * Herramienta al azar según los pesos
+     */
+    String next(RandomGenerator random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return tools.get(i);
+            }
+        }
+        return tools.get(tools.size() - 1);
+    }
+
+    /**
+     * Cuerpo de la petición POST /mcp/{tool}
+     */
+    Map<String, Object> body(String tool, RandomGenerator random) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        switch (tool) {
+            case "test_connection":
+            case "find_all_users":
+            case "get_database_info":
+            case "describe_schema":
+                break;
+            case "find_user_by_id":
+            case "delete_user":
+                body.put("userId", randomUserId(random));
+                break;
+            case "find_users_by_department":
+            case "execute_count_by_department":
+                body.put("department", pick(DEPARTMENTS, random));
+                break;
+            case "search_users":
+                body.put("department", pick(DEPARTMENTS, random));
+                body.put("role", pick(ROLES, random));
+                body.put("active", true);
+                body.put("limit", 20);
+                break;
+            case "create_user":
+                body.put("name", "Load " + sequence.incrementAndGet());
+                body.put("email", uniqueEmail());
+                body.put("department", pick(DEPARTMENTS, random));
+                body.put("role", pick(ROLES, random));
+                break;
+            case "update_user":
+                body.put("userId", randomUserId(random));
+                body.put("role", pick(ROLES, random) + " " + sequence.incrementAndGet());
+                break;
+            case "batch_insert_users":
+            case "transfer_data":
+                List<Map<String, Object>> users = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    users.add(user(pick(DEPARTMENTS, random), pick(ROLES, random)));
+                }
+                body.put("users", users);
+                break;
+            case "get_table_columns":
+                body.put("tableName", "users");
+                break;
+            default:
+                throw new IllegalArgumentException("Herramienta no soportada por el generador de carga: " + tool);
+        }
+        return body;
+    }
+
+    private Map<String, Object> user(String department, String role) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("name", "Load " + sequence.incrementAndGet());
+        user.put("email", uniqueEmail());
+        user.put("department", department);
+        user.put("role", role);
+        return user;
+    }
+
+    private String uniqueEmail() {
+        return "load" + sequence.incrementAndGet() + "@example.com";
+    }
+
+    private long randomUserId(RandomGenerator random) {
+        return userIds.length == 0 ? 1 : userIds[random.nextInt(userIds.length)];
+    }
+
+    private static String pick(String[] values, RandomGenerator random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -1,11 +1,17 @@
 package com.dam.accesodatos;
 
 import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.mcp.McpStdioServer;
 import jakarta.annotation.PostConstruct;
 import org.springframework.ai.mcp.server.annotation.EnableMcpServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
 
 
 
@@ -35,15 +41,48 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
  * ./gradlew bootRun
  *
  * o desde IntelliJ: Run → McpAccesoDatosRa2Application
+ *
+ * Modo stdio (lo lanza directamente el cliente MCP, sin Tomcat):
+ * java -jar build/libs/mcp-server-ra2-jdbc-1.0.0.jar --stdio
  */
 @SpringBootApplication(exclude = {DataSourceAutoConfiguration.class})
 @EnableMcpServer
 public class McpAccesoDatosRa2Application {
 
+    static final String STDIO_ARG = "--stdio";
+
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(STDIO_ARG)) {
+            runStdio(Arrays.stream(args).filter(arg -> !STDIO_ARG.equals(arg)).toArray(String[]::new));
+            return;
+        }
         SpringApplication.run(McpAccesoDatosRa2Application.class, args);
     }
 
+    /**
+     * Transporte MCP stdio: perfil "stdio" (sin servidor web ni calentamiento, ver
+     * application-stdio.yml) y JSON-RPC por System.in/System.out hasta que el
+     * cliente cierra la entrada.
+     *
+     * La salida estándar queda reservada para el protocolo: antes de arrancar Spring
+     * se redirige System.out a System.err, así los logs (y cualquier println) no
+     * se mezclan con las respuestas.
+     */
+    private static void runStdio(String[] args) {
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);
+
+        SpringApplication application = new SpringApplication(McpAccesoDatosRa2Application.class);
+        application.setAdditionalProfiles("stdio");
+        ConfigurableApplicationContext context = application.run(args);
+        try {
+            context.getBean(McpStdioServer.class).serve(System.in, protocolOut);
+        } catch (IOException e) {
+            System.err.println("Error leyendo la entrada estándar: " + e.getMessage());
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
     /**
      * Inicializa la base de datos usando JDBC puro al arrancar la aplicación.
      *
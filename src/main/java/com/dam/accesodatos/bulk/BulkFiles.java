@@ -0,0 +1,29 @@
+package com.dam.accesodatos.bulk;
+
+import java.nio.file.Path;
+
+/**
+ * Rutas de los ficheros de import_users y export_users: siempre dentro de
+ * ra2.bulk.base-dir.
+ */
+final class BulkFiles {
+
+    private BulkFiles() {
+    }
+
+    /**
+     * Ruta dentro de baseDir
+     *
+     * @throws IllegalArgumentException si path sale de baseDir
+     */
+    static Path resolve(Path baseDir, String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Falta la ruta del fichero");
+        }
+        Path file = baseDir.resolve(path).normalize();
+        if (!file.startsWith(baseDir)) {
+            throw new IllegalArgumentException("La ruta debe estar dentro de " + baseDir);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,347 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.model.ExportResult;
+import com.dam.accesodatos.model.UserExportFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exportación de users o user_statistics a un fichero local del servidor (export_users).
+ *
+ * Las filas van directamente del ResultSet (cursor TYPE_FORWARD_ONLY de solo
+ * lectura, con fetch-size filas por viaje) al fichero: cada fila se formatea en un
+ * StringBuilder reutilizado y se codifica en el buffer de {@link ChannelTextWriter}.
+ * Nunca hay más de una fila en el heap, sea cual sea el tamaño de la tabla.
+ *
+ * El fichero se escribe con un nombre temporal y se renombra al terminar: quien lo
+ * lea nunca ve una exportación a medias. Las rutas, como en import_users, están
+ * dentro de ra2.bulk.base-dir.
+ */
+@Component
+public class UserExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExporter.class);
+
+    // Tablas exportables (nombre en minúsculas)
+    private static final List<String> TABLES = List.of("users", "user_statistics");
+
+    // Esquema de las tablas de la aplicación (INFORMATION_SCHEMA también tiene una USERS)
+    private static final String SCHEMA = "PUBLIC";
+
+    private final Path baseDir;
+    private final int fetchSize;
+    private final int bufferBytes;
+
+    /**
+     * Exportador con la configuración por defecto (uso sin Spring).
+     */
+    public UserExporter() {
+        this("data", 500, 1 << 20);
+    }
+
+    @Autowired
+    public UserExporter(@Value("${ra2.bulk.base-dir:data}") String baseDir,
+                        @Value("${ra2.jdbc.fetch-size:500}") int fetchSize,
+                        @Value("${ra2.bulk.export.buffer-bytes:1048576}") int bufferBytes) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.fetchSize = fetchSize;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Exporta una tabla a fichero.
+     *
+     * @param path ruta relativa a ra2.bulk.base-dir (se sobrescribe si existe)
+     * @param format "csv", "ndjson" o null para deducirlo de la extensión
+     * @param table "users" (por defecto) o "user_statistics"
+     * @param columns columnas a exportar, en ese orden (null o vacía = todas)
+     * @param filter filtros de department, role y active y límite de filas (solo users; sin limit, todas)
+     * @return filas y bytes escritos
+     * @throws IllegalArgumentException si la ruta, el formato, la tabla, una columna o el filtro no son válidos
+     */
+    public ExportResult export(String path, String format, String table, List<String> columns, UserExportFilter filter) {
+        Path file = BulkFiles.resolve(baseDir, path);
+        UserFileFormat fileFormat = UserFileFormat.of(format, file);
+        String tableName = table == null || table.isBlank() ? TABLES.get(0) : table.trim().toLowerCase(Locale.ROOT);
+        if (!TABLES.contains(tableName)) {
+            throw new IllegalArgumentException("Tabla no exportable: " + table + " (" + String.join(", ", TABLES) + ")");
+        }
+        if (filter != null && !TABLES.get(0).equals(tableName)) {
+            throw new IllegalArgumentException("El filtro solo se aplica a la tabla users");
+        }
+
+        long start = System.nanoTime();
+        ExportResult result = new ExportResult(path, fileFormat.name().toLowerCase(Locale.ROOT), tableName);
+        Path temp = null;
+        try (Connection conn = DatabaseConfig.getReadConnection()) {
+            result.getColumns().addAll(selectColumns(conn, tableName, columns));
+
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), ".export-", ".tmp");
+            try (PreparedStatement pstmt = conn.prepareStatement(buildSql(tableName, result.getColumns(), filter),
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 ChannelTextWriter writer = new ChannelTextWriter(temp, bufferBytes)) {
+                pstmt.setFetchSize(fetchSize);
+                bindFilter(pstmt, filter);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    result.setRows(write(rs, result.getColumns(), fileFormat, writer));
+                }
+                writer.finish();
+                result.setBytes(writer.getBytesWritten());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al exportar " + tableName + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al escribir " + path + ": " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(temp);
+        }
+
+        result.setTotalMicros((System.nanoTime() - start) / 1000);
+        logger.info("Exportadas {} filas de {} a {} ({} bytes, {} filas/s)",
+                result.getRows(), tableName, path, result.getBytes(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Columnas pedidas, validadas contra los metadatos de la tabla (o todas si no se pide ninguna)
+     */
+    private static List<String> selectColumns(Connection conn, String table, List<String> requested) throws SQLException {
+        List<String> available = new ArrayList<>();
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getColumns(null, SCHEMA, tablePattern(metaData, table), "%")) {
+            while (rs.next()) {
+                available.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        if (requested == null || requested.isEmpty()) {
+            return available;
+        }
+        List<String> columns = new ArrayList<>(requested.size());
+        for (String column : requested) {
+            String name = column == null ? "" : column.trim().toLowerCase(Locale.ROOT);
+            if (!available.contains(name)) {
+                throw new IllegalArgumentException("Columna desconocida en " + table + ": " + column);
+            }
+            if (!columns.contains(name)) {
+                columns.add(name);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Patrón LIKE de getColumns que solo encaja con la tabla: el '_' de
+     * user_statistics es un comodín y se escapa
+     */
+    static String tablePattern(DatabaseMetaData metaData, String table) throws SQLException {
+        String escape = metaData.getSearchStringEscape();
+        String name = table.toUpperCase(Locale.ROOT);
+        if (escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    /**
+     * SELECT de las columnas validadas con los filtros de UserExportFilter, ordenado por id
+     */
+    static String buildSql(String table, List<String> columns, UserExportFilter filter) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns))
+                .append(" FROM ").append(table).append(" WHERE 1=1");
+        if (filter != null) {
+            if (hasText(filter.getDepartment())) {
+                sql.append(" AND department = ?");
+            }
+            if (hasText(filter.getRole())) {
+                sql.append(" AND role = ?");
+            }
+            if (filter.getActive() != null) {
+                sql.append(" AND active = ?");
+            }
+        }
+        sql.append(" ORDER BY id");
+        if (filter != null && filter.getLimit() != null && filter.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    private static void bindFilter(PreparedStatement pstmt, UserExportFilter filter) throws SQLException {
+        if (filter == null) {
+            return;
+        }
+        int index = 1;
+        if (hasText(filter.getDepartment())) {
+            pstmt.setString(index++, filter.getDepartment());
+        }
+        if (hasText(filter.getRole())) {
+            pstmt.setString(index++, filter.getRole());
+        }
+        if (filter.getActive() != null) {
+            pstmt.setBoolean(index++, filter.getActive());
+        }
+        if (filter.getLimit() != null && filter.getLimit() > 0) {
+            pstmt.setInt(index, filter.getLimit());
+        }
+    }
+
+    private static long write(ResultSet rs, List<String> columns, UserFileFormat format,
+                              ChannelTextWriter writer) throws SQLException, IOException {
+        StringBuilder line = new StringBuilder(256);
+        if (format == UserFileFormat.CSV) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsv(line, columns.get(i));
+            }
+            writer.append(line.append('\n'));
+        }
+
+        long rows = 0;
+        while (rs.next()) {
+            line.setLength(0);
+            if (format == UserFileFormat.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    Object value = value(rs.getObject(i + 1));
+                    if (value != null) {
+                        appendCsv(line, value.toString());
+                    }
+                }
+            } else {
+                line.append('{');
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    appendJsonString(line, columns.get(i));
+                    line.append(':');
+                    appendJson(line, value(rs.getObject(i + 1)));
+                }
+                line.append('}');
+            }
+            writer.append(line.append('\n'));
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Valor de columna para el fichero: fechas en ISO-8601 (como las devuelve la API JSON)
+     */
+    private static Object value(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value;
+    }
+
+    /**
+     * Campo CSV, entre comillas solo si contiene separador, comillas o saltos de línea
+     */
+    static void appendCsv(StringBuilder line, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static void appendJson(StringBuilder line, Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            line.append(value);
+        } else {
+            appendJsonString(line, value.toString());
+        }
+    }
+
+    static void appendJsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el fichero temporal {}: {}", temp, e.getMessage());
+            }
+        }
+    }
+}
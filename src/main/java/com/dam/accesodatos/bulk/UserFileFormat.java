@@ -0,0 +1,43 @@
+package com.dam.accesodatos.bulk;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formatos de fichero de usuarios de import_users y export_users
+ *
+ * - CSV: primera línea de cabecera con los nombres de columna (name, email,
+ *   department, role y opcionalmente active), separador coma y comillas dobles
+ * - NDJSON: un objeto JSON por línea con esas mismas claves
+ */
+public enum UserFileFormat {
+    CSV,
+    NDJSON;
+
+    /**
+     * Formato pedido o, si no se indica, el de la extensión del fichero
+     * (.csv, .ndjson, .jsonl).
+     *
+     * @throws IllegalArgumentException si no se reconoce el formato
+     */
+    public static UserFileFormat of(String format, Path file) {
+        String name = format != null && !format.isBlank()
+                ? format.trim().toLowerCase(Locale.ROOT)
+                : extension(file);
+        switch (name) {
+            case "csv":
+                return CSV;
+            case "ndjson":
+            case "jsonl":
+                return NDJSON;
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + name + " (csv o ndjson)");
+        }
+    }
+
+    private static String extension(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
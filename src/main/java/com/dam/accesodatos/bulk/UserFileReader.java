@@ -0,0 +1,221 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lectura secuencial de un fichero de usuarios (CSV o NDJSON), un User por línea.
+ *
+ * El fichero se lee con un buffer grande y nunca se carga entero en memoria.
+ * Una línea mal formada lanza IllegalArgumentException desde next() pero queda
+ * consumida: quien lee puede anotarla (getLineNumber()) y seguir con la siguiente.
+ */
+public class UserFileReader implements Closeable {
+
+    private static final int BUFFER_CHARS = 1 << 20;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] COLUMNS = {"name", "email", "department", "role", "active"};
+    private static final int NAME = 0;
+    private static final int EMAIL = 1;
+    private static final int DEPARTMENT = 2;
+    private static final int ROLE = 3;
+    private static final int ACTIVE = 4;
+
+    private final BufferedReader reader;
+    private final UserFileFormat format;
+    // CSV: posición de cada columna de COLUMNS en la cabecera (-1 si no está)
+    private final int[] csvColumns = new int[COLUMNS.length];
+    private long lineNumber;
+
+    public UserFileReader(Path file, UserFileFormat format) throws IOException {
+        this.reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), BUFFER_CHARS);
+        this.format = format;
+        if (format == UserFileFormat.CSV) {
+            try {
+                readCsvHeader();
+            } catch (IOException | RuntimeException e) {
+                reader.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return número de la última línea leída (empezando en 1)
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return el siguiente usuario, o null al final del fichero
+     * @throws IllegalArgumentException si la línea leída no es válida
+     */
+    public User next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        return format == UserFileFormat.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Siguiente línea no vacía
+     */
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+        return line;
+    }
+
+    private void readCsvHeader() throws IOException {
+        String header = nextLine();
+        if (header == null) {
+            throw new IllegalArgumentException("El fichero CSV está vacío (falta la cabecera)");
+        }
+        // BOM de UTF-8 que añaden algunas hojas de cálculo
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Arrays.fill(csvColumns, -1);
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (COLUMNS[column].equals(name)) {
+                    csvColumns[column] = i;
+                }
+            }
+        }
+        for (int column = NAME; column <= ROLE; column++) {
+            if (csvColumns[column] < 0) {
+                throw new IllegalArgumentException("Falta la columna '" + COLUMNS[column] + "' en la cabecera CSV");
+            }
+        }
+    }
+
+    private User parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        String[] values = new String[COLUMNS.length];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            int index = csvColumns[column];
+            values[column] = index >= 0 && index < fields.size() ? fields.get(index).trim() : null;
+        }
+        return toUser(values[NAME], values[EMAIL], values[DEPARTMENT], values[ROLE], parseActive(values[ACTIVE]));
+    }
+
+    private User parseJson(String line) {
+        Map<?, ?> values;
+        try {
+            values = MAPPER.readValue(line, Map.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JSON no válido: " + e.getMessage());
+        }
+        if (values == null) {
+            throw new IllegalArgumentException("Se esperaba un objeto JSON");
+        }
+        Object active = values.get(COLUMNS[ACTIVE]);
+        return toUser(text(values, NAME), text(values, EMAIL), text(values, DEPARTMENT), text(values, ROLE),
+                active == null ? null : parseActive(active.toString()));
+    }
+
+    private static String text(Map<?, ?> values, int column) {
+        Object value = values.get(COLUMNS[column]);
+        return value == null ? null : value.toString().trim();
+    }
+
+    private static User toUser(String name, String email, String department, String role, Boolean active) {
+        require(name, NAME);
+        require(email, EMAIL);
+        require(department, DEPARTMENT);
+        require(role, ROLE);
+        User user = new User(name, email, department, role);
+        user.setActive(active);
+        return user;
+    }
+
+    private static void require(String value, int column) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Falta el campo '" + COLUMNS[column] + "'");
+        }
+    }
+
+    /**
+     * @return null si viene vacío (el INSERT lo toma como true)
+     */
+    private static Boolean parseActive(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                throw new IllegalArgumentException("Valor de 'active' no válido: " + value);
+        }
+    }
+
+    /**
+     * Divide una línea CSV por comas respetando comillas dobles ("" es una comilla literal)
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
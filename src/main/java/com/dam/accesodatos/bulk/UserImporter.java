@@ -0,0 +1,378 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.model.ImportResult;
+import com.dam.accesodatos.model.TransferResult;
+import com.dam.accesodatos.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de usuarios desde un fichero local del servidor (import_users).
+ *
+ * Dos hilos en tubería:
+ * - un hilo lector recorre el fichero con {@link UserFileReader} y agrupa las filas
+ *   válidas en bloques de chunk-size filas
+ * - el hilo que llama inserta cada bloque con la función que recibe (transfer_data
+ *   en modo best_effort)
+ *
+ * Entre ambos hay una cola de queue-chunks bloques: si la base de datos va más lenta
+ * que el lector, este se bloquea y la memoria usada queda acotada sea cual sea el
+ * tamaño del fichero.
+ *
+ * Con deferIndexes se eliminan los índices secundarios de users antes de cargar y se
+ * recrean al terminar (también si la carga falla): crear un índice una vez es más
+ * barato que mantenerlo fila a fila. Las restricciones (clave primaria, UNIQUE) se
+ * mantienen. Solo se admite una importación a la vez.
+ *
+ * Los ficheros se buscan dentro de ra2.bulk.base-dir; las rutas que salen de ese
+ * directorio se rechazan.
+ */
+@Component
+public class UserImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImporter.class);
+
+    // Esquema y nombre de la tabla en los metadatos (INFORMATION_SCHEMA también tiene una USERS)
+    private static final String SCHEMA = "PUBLIC";
+    private static final String USERS_TABLE = "USERS";
+
+    // Fin del fichero: el lector lo encola tras el último bloque
+    private static final Chunk END = new Chunk(List.of(), new long[0]);
+
+    private final Path baseDir;
+    private final int chunkSize;
+    private final int queueChunks;
+    private final long progressEveryRows;
+    private final int maxReportedFailures;
+
+    private final ReentrantLock running = new ReentrantLock();
+    private volatile Progress current;
+    private volatile ImportResult last;
+
+    /**
+     * Importador con la configuración por defecto (uso sin Spring).
+     */
+    public UserImporter() {
+        this("data", 5000, 4, 100_000, 100);
+    }
+
+    @Autowired
+    public UserImporter(@Value("${ra2.bulk.base-dir:data}") String baseDir,
+                        @Value("${ra2.bulk.import.chunk-size:5000}") int chunkSize,
+                        @Value("${ra2.bulk.import.queue-chunks:4}") int queueChunks,
+                        @Value("${ra2.bulk.import.progress-every-rows:100000}") long progressEveryRows,
+                        @Value("${ra2.bulk.import.max-reported-failures:100}") int maxReportedFailures) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.queueChunks = Math.max(1, queueChunks);
+        this.progressEveryRows = progressEveryRows;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    /**
+     * Importa el fichero insertando sus filas con writer, bloque a bloque.
+     *
+     * @param path ruta relativa a ra2.bulk.base-dir
+     * @param format "csv", "ndjson" o null para deducirlo de la extensión
+     * @param deferIndexes true para recrear los índices secundarios al final de la carga
+     * @param writer inserta un bloque y devuelve sus filas rechazadas (índices del bloque)
+     * @return filas leídas, insertadas y rechazadas; error si la importación se detuvo
+     * @throws IllegalArgumentException si la ruta o el formato no son válidos
+     * @throws IllegalStateException si ya hay una importación en curso
+     */
+    public ImportResult importFile(String path, String format, boolean deferIndexes,
+                                   Function<List<User>, TransferResult> writer) {
+        Path file = BulkFiles.resolve(baseDir, path);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("No existe el fichero: " + path);
+        }
+        UserFileFormat fileFormat = UserFileFormat.of(format, file);
+
+        if (!running.tryLock()) {
+            throw new IllegalStateException("Ya hay una importación en curso");
+        }
+        try {
+            ImportResult result = new ImportResult(path, fileFormat.name().toLowerCase(Locale.ROOT));
+            Progress progress = new Progress(path);
+            current = progress;
+
+            Map<String, String> indexes = deferIndexes ? dropSecondaryIndexes() : Map.of();
+            result.getDeferredIndexes().addAll(indexes.keySet());
+            try {
+                load(file, fileFormat, writer, progress, result);
+            } finally {
+                if (!indexes.isEmpty()) {
+                    recreateIndexes(indexes);
+                }
+                result.setRowsRead(progress.read.get());
+                result.setInserted(progress.inserted.get());
+                result.setRejected(progress.rejected.get());
+                result.setTotalMicros((System.nanoTime() - progress.startNanos) / 1000);
+                last = result;
+                current = null;
+            }
+            logger.info("Importación de {} terminada: {} filas insertadas, {} rechazadas ({} filas/s)",
+                    path, result.getInserted(), result.getRejected(), result.getRowsPerSecond());
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private void load(Path file, UserFileFormat format, Function<List<User>, TransferResult> writer,
+                      Progress progress, ImportResult result) {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks);
+        List<TransferResult.RowFailure> parseFailures = new ArrayList<>();
+        Thread reader = Thread.ofPlatform().name("ra2-import-reader").daemon()
+                .start(() -> read(file, format, queue, progress, parseFailures));
+
+        List<TransferResult.RowFailure> insertFailures = new ArrayList<>();
+        try {
+            long nextReport = progressEveryRows;
+            for (Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                TransferResult written = writer.apply(chunk.users);
+                result.setChunks(result.getChunks() + 1);
+                progress.inserted.addAndGet(written.getInserted());
+                for (TransferResult.RowFailure failure : written.getFailures()) {
+                    progress.rejected.incrementAndGet();
+                    addFailure(insertFailures, new TransferResult.RowFailure(
+                            (int) chunk.lines[failure.getRow()], failure.getEmail(), failure.getError()));
+                }
+                if (progressEveryRows > 0 && progress.inserted.get() >= nextReport) {
+                    nextReport += progressEveryRows;
+                    logger.info("Importando {}: {} filas insertadas ({} filas/s)",
+                            progress.path, progress.inserted.get(), progress.rowsPerSecond());
+                }
+            }
+            reader.join();
+            if (progress.readError != null) {
+                result.setError("Error al leer el fichero tras " + progress.read.get() + " filas: "
+                        + progress.readError.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setError("Importación interrumpida");
+        } catch (RuntimeException e) {
+            // Los bloques ya insertados quedan confirmados
+            result.setError(e.getMessage());
+        } finally {
+            progress.aborted = true;
+            reader.interrupt();
+        }
+
+        synchronized (parseFailures) {
+            result.getFailures().addAll(parseFailures);
+        }
+        result.getFailures().addAll(insertFailures);
+        result.getFailures().sort((a, b) -> Integer.compare(a.getRow(), b.getRow()));
+        while (result.getFailures().size() > maxReportedFailures) {
+            result.getFailures().remove(result.getFailures().size() - 1);
+        }
+    }
+
+    /**
+     * Hilo lector: parsea el fichero y encola bloques hasta el final o hasta que se aborte.
+     */
+    private void read(Path file, UserFileFormat format, BlockingQueue<Chunk> queue,
+                      Progress progress, List<TransferResult.RowFailure> parseFailures) {
+        try (UserFileReader reader = new UserFileReader(file, format)) {
+            List<User> users = new ArrayList<>(chunkSize);
+            long[] lines = new long[chunkSize];
+            while (!progress.aborted) {
+                User user;
+                try {
+                    user = reader.next();
+                } catch (IllegalArgumentException e) {
+                    progress.read.incrementAndGet();
+                    progress.rejected.incrementAndGet();
+                    synchronized (parseFailures) {
+                        addFailure(parseFailures, new TransferResult.RowFailure(
+                                (int) reader.getLineNumber(), null, e.getMessage()));
+                    }
+                    continue;
+                }
+                if (user == null) {
+                    break;
+                }
+                progress.read.incrementAndGet();
+                lines[users.size()] = reader.getLineNumber();
+                users.add(user);
+                if (users.size() == chunkSize) {
+                    enqueue(queue, new Chunk(users, lines), progress);
+                    users = new ArrayList<>(chunkSize);
+                    lines = new long[chunkSize];
+                }
+            }
+            if (!users.isEmpty()) {
+                enqueue(queue, new Chunk(users, lines), progress);
+            }
+        } catch (IOException | RuntimeException e) {
+            progress.readError = e;
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            enqueue(queue, END, progress);
+        } catch (InterruptedException e) {
+            // El hilo que inserta ya terminó
+        }
+    }
+
+    /**
+     * put() con espera acotada: si el hilo que inserta abandona, el lector no se queda bloqueado
+     */
+    private static void enqueue(BlockingQueue<Chunk> queue, Chunk chunk, Progress progress) throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (progress.aborted) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void addFailure(List<TransferResult.RowFailure> failures, TransferResult.RowFailure failure) {
+        if (failures.size() < maxReportedFailures) {
+            failures.add(failure);
+        }
+    }
+
+    // ========== Índices diferidos ==========
+
+    /**
+     * Elimina los índices no únicos de users
+     *
+     * @return nombre y CREATE INDEX de cada índice eliminado
+     */
+    private static Map<String, String> dropSecondaryIndexes() {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            Map<String, List<String>> columns = new LinkedHashMap<>();
+            DatabaseMetaData metaData = conn.getMetaData();
+            try (ResultSet rs = metaData.getIndexInfo(null, SCHEMA, USERS_TABLE, false, false)) {
+                while (rs.next()) {
+                    String name = rs.getString("INDEX_NAME");
+                    if (rs.getBoolean("NON_UNIQUE") && name != null && rs.getString("COLUMN_NAME") != null) {
+                        columns.computeIfAbsent(name, k -> new ArrayList<>()).add(rs.getString("COLUMN_NAME"));
+                    }
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                for (Map.Entry<String, List<String>> index : columns.entrySet()) {
+                    stmt.executeUpdate("DROP INDEX IF EXISTS " + index.getKey());
+                    indexes.put(index.getKey(), "CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON users("
+                            + String.join(", ", index.getValue()) + ")");
+                }
+            }
+        } catch (SQLException e) {
+            recreateIndexes(indexes);
+            throw new RuntimeException("Error al eliminar los índices antes de importar: " + e.getMessage(), e);
+        } finally {
+            if (!indexes.isEmpty()) {
+                DatabaseConfig.schemaChanged();
+            }
+        }
+        logger.info("Índices diferidos durante la importación: {}", indexes.keySet());
+        return indexes;
+    }
+
+    private static void recreateIndexes(Map<String, String> indexes) {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String ddl : indexes.values()) {
+                stmt.executeUpdate(ddl);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al recrear los índices tras importar: " + e.getMessage(), e);
+        } finally {
+            DatabaseConfig.schemaChanged();
+        }
+        logger.info("Índices recreados en {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ========== Progreso ==========
+
+    /**
+     * Progreso de la importación en curso y resumen de la última.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Progress progress = current;
+        stats.put("running", progress != null);
+        if (progress != null) {
+            stats.put("path", progress.path);
+            stats.put("rowsRead", progress.read.get());
+            stats.put("inserted", progress.inserted.get());
+            stats.put("rejected", progress.rejected.get());
+            stats.put("rowsPerSecond", progress.rowsPerSecond());
+        }
+        ImportResult lastResult = last;
+        if (lastResult != null) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("path", lastResult.getPath());
+            summary.put("inserted", lastResult.getInserted());
+            summary.put("rejected", lastResult.getRejected());
+            summary.put("rowsPerSecond", lastResult.getRowsPerSecond());
+            summary.put("totalMicros", lastResult.getTotalMicros());
+            summary.put("error", lastResult.getError());
+            stats.put("last", summary);
+        }
+        return stats;
+    }
+
+    /**
+     * Bloque de filas válidas con su número de línea en el fichero
+     */
+    private static final class Chunk {
+        private final List<User> users;
+        private final long[] lines;
+
+        Chunk(List<User> users, long[] lines) {
+            this.users = users;
+            this.lines = lines;
+        }
+    }
+
+    private static final class Progress {
+        private final String path;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private volatile boolean aborted;
+        private volatile Exception readError;
+
+        Progress(String path) {
+            this.path = path;
+        }
+
+        long rowsPerSecond() {
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            return micros == 0 ? 0 : inserted.get() * 1_000_000 / micros;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.config.BatchConnection;
+import com.dam.accesodatos.config.ThrowawayTransaction;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Número de usuarios activos por departamento, mantenido en memoria para
+ * execute_count_by_department.
+ *
+ * Se carga de la base de datos al arrancar y después lo actualizan las escrituras de
+ * DatabaseUserServiceImpl a través de {@link #begin()}. Cada cierto tiempo se
+ * reconcilia con un COUNT(*) ... GROUP BY para corregir cualquier desviación
+ * (por ejemplo, cambios hechos en la BD por fuera del servicio).
+ *
+ * La reconciliación solo corrige si ninguna escritura estuvo en curso o terminó
+ * mientras se contaba: si no, el recuento y los contadores podrían no ser de
+ * instantes comparables y se deja para la siguiente vuelta.
+ *
+ * Configuración en ra2.counters.departments (enabled, reconcile-interval-ms).
+ */
+@Component
+public class DepartmentCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentCounters.class);
+
+    private static final String COUNT_ACTIVE_BY_DEPARTMENT_SQL =
+            "SELECT department, COUNT(*) FROM users WHERE active = TRUE AND department IS NOT NULL " +
+            "GROUP BY department";
+
+    // Intentos de la carga inicial antes de aceptar un recuento con escrituras en curso
+    private static final int SEED_ATTEMPTS = 5;
+
+    private final boolean enabled;
+    private final long reconcileIntervalMillis;
+
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private volatile boolean seeded = false;
+
+    // Escrituras en curso y terminadas (ver reconcile())
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong completedWrites = new AtomicLong();
+
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder skippedReconciliations = new LongAdder();
+    private final LongAdder correctedDrift = new LongAdder();
+    private volatile long lastReconcileMillis = 0;
+
+    private ScheduledExecutorService reconciler;
+
+    /**
+     * Contadores sin reconciliación periódica (uso sin Spring, p. ej. McpToolsDemo).
+     */
+    public DepartmentCounters() {
+        this(true, 0);
+    }
+
+    @Autowired
+    public DepartmentCounters(@Value("${ra2.counters.departments.enabled:true}") boolean enabled,
+                              @Value("${ra2.counters.departments.reconcile-interval-ms:60000}") long reconcileIntervalMillis) {
+        this.enabled = enabled;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
+    /**
+     * Carga inicial y arranque de la reconciliación periódica.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        seed();
+        if (reconcileIntervalMillis > 0) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ra2-department-counters");
+                t.setDaemon(true);
+                return t;
+            });
+            reconciler.scheduleWithFixedDelay(this::reconcileQuietly,
+                    reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return usuarios activos del departamento (0 si no hay ninguno)
+     */
+    public int count(String department) {
+        if (!seeded) {
+            seed();
+        }
+        if (department == null) {
+            return 0;
+        }
+        LongAdder counter = counts.get(department);
+        return counter != null ? (int) counter.sum() : 0;
+    }
+
+    /**
+     * Empieza una escritura que puede cambiar los contadores. Se cierra (try-with-resources)
+     * después de confirmar la escritura y de anotar sus cambios con {@link Update#add}.
+     *
+     * Dentro de una {@link ThrowawayTransaction} no anota nada: esos cambios se deshacen.
+     * Dentro de un lote atómico ({@link BatchConnection}) los cambios se aplican al
+     * confirmar el lote y la escritura cuenta como pendiente hasta que termina.
+     */
+    public Update begin() {
+        if (!enabled || ThrowawayTransaction.isActive()) {
+            return Update.NONE;
+        }
+        pendingWrites.incrementAndGet();
+        return new Update(this);
+    }
+
+    /**
+     * Carga (o vuelve a cargar) los contadores desde la base de datos.
+     */
+    public synchronized void seed() {
+        for (int attempt = 1; attempt <= SEED_ATTEMPTS; attempt++) {
+            if (reconcile(attempt == SEED_ATTEMPTS)) {
+                break;
+            }
+        }
+        seeded = true;
+        logger.info("Contadores de usuarios activos por departamento cargados: {}", snapshot());
+    }
+
+    /**
+     * Compara los contadores con un recuento en SQL y corrige las diferencias.
+     *
+     * @param force corregir aunque haya escrituras en curso (solo en la carga inicial)
+     * @return true si se corrigió, false si se omitió por escrituras concurrentes
+     */
+    synchronized boolean reconcile(boolean force) {
+        if (!force && pendingWrites.get() != 0) {
+            skippedReconciliations.increment();
+            return false;
+        }
+        long completedBefore = completedWrites.get();
+        Map<String, Long> actual = countActiveByDepartment();
+        Map<String, Long> current = snapshot();
+        if (!force && (pendingWrites.get() != 0 || completedWrites.get() != completedBefore)) {
+            skippedReconciliations.increment();
+            return false;
+        }
+
+        // Las diferencias se suman: cualquier escritura posterior se acumula encima
+        Map<String, Long> drift = new HashMap<>();
+        actual.forEach((department, count) -> drift.merge(department, count, Long::sum));
+        current.forEach((department, count) -> drift.merge(department, -count, Long::sum));
+        drift.forEach((department, delta) -> {
+            if (delta != 0) {
+                counter(department).add(delta);
+                correctedDrift.add(Math.abs(delta));
+            }
+        });
+        if (seeded && drift.values().stream().anyMatch(delta -> delta != 0)) {
+            logger.warn("Contadores por departamento corregidos en la reconciliación: {}", drift);
+        }
+        reconciliations.increment();
+        lastReconcileMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("seeded", seeded);
+        stats.put("departments", snapshot());
+        stats.put("reconcileIntervalMillis", reconcileIntervalMillis);
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("skippedReconciliations", skippedReconciliations.sum());
+        stats.put("correctedDrift", correctedDrift.sum());
+        stats.put("lastReconcileMillis", lastReconcileMillis);
+        return stats;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile(false);
+        } catch (RuntimeException e) {
+            logger.warn("Error reconciliando los contadores por departamento: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Long> countActiveByDepartment() {
+        Map<String, Long> actual = new HashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_ACTIVE_BY_DEPARTMENT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                actual.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al contar usuarios activos por departamento: " + e.getMessage(), e);
+        }
+        return actual;
+    }
+
+    private Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((department, counter) -> snapshot.put(department, counter.sum()));
+        return snapshot;
+    }
+
+    private LongAdder counter(String department) {
+        return counts.computeIfAbsent(department, d -> new LongAdder());
+    }
+
+    /**
+     * Cambios de una escritura en curso.
+     */
+    public static final class Update implements AutoCloseable {
+
+        static final Update NONE = new Update(null);
+
+        private final DepartmentCounters counters;
+
+        private Update(DepartmentCounters counters) {
+            this.counters = counters;
+        }
+
+        /**
+         * Suma delta a los activos del departamento (nada si department es null).
+         */
+        public void add(String department, long delta) {
+            if (counters != null && department != null && delta != 0) {
+                BatchConnection.afterCommit(() -> counters.counter(department).add(delta));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (counters != null) {
+                BatchConnection.afterCompletion(() -> {
+                    counters.completedWrites.incrementAndGet();
+                    counters.pendingWrites.decrementAndGet();
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.dam.accesodatos.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché concurrente y acotada con claves long primitivas (sin boxing de Long).
+ *
+ * - Segmentada: cada segmento tiene su propio cerrojo y su tabla de direccionamiento
+ *   abierto (sondeo lineal), así que las lecturas de claves distintas rara vez compiten
+ * - Expulsión CLOCK (segunda oportunidad): aproximación a LRU que no reordena
+ *   nada en cada acierto, solo marca la entrada como referenciada
+ * - TTL opcional por entrada
+ *
+ * Para no cachear un valor leído antes de una escritura concurrente, las lecturas
+ * de la base de datos toman stamp() antes de consultar y usan putIfUnchanged():
+ * si entretanto hubo un put() o invalidate() en el segmento, el valor se descarta.
+ */
+public class LongKeyedCache<V> {
+
+    private static final int SEGMENTS = 16;
+
+    // Coste aproximado por hueco de la tabla: clave long, expiración long,
+    // referencia al valor y marca CLOCK
+    private static final int SLOT_BYTES = 8 + 8 + 4 + 1;
+
+    private final Segment<V>[] segments;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder rejectedPuts = new LongAdder();
+
+    /**
+     * @param maxSize número máximo de entradas (repartido entre segmentos)
+     * @param ttlMillis tiempo de vida de cada entrada (0 = sin caducidad)
+     * @param weigher tamaño estimado en bytes de cada valor (para el consumo de memoria)
+     */
+    @SuppressWarnings("unchecked")
+    public LongKeyedCache(int maxSize, long ttlMillis, ToLongFunction<V> weigher) {
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : 0;
+        this.weigher = weigher;
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    /**
+     * @return valor cacheado o null si no está o ha caducado
+     */
+    public V get(long key) {
+        long hash = hash(key);
+        V value = segmentFor(hash).get(key, hash, this);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Marca de versión del segmento de la clave, a tomar antes de leer la base de datos.
+     */
+    public long stamp(long key) {
+        return segmentFor(hash(key)).stamp();
+    }
+
+    /**
+     * Inserta un valor leído de la base de datos solo si no hubo escrituras
+     * en su segmento desde stamp.
+     *
+     * @return true si se insertó
+     */
+    public boolean putIfUnchanged(long key, V value, long stamp) {
+        long hash = hash(key);
+        boolean stored = segmentFor(hash).put(key, hash, value, stamp, this);
+        if (!stored) {
+            rejectedPuts.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * Escritura directa (write-through tras modificar la base de datos).
+     */
+    public void put(long key, V value) {
+        long hash = hash(key);
+        segmentFor(hash).put(key, hash, value, -1, this);
+    }
+
+    public void invalidate(long key) {
+        long hash = hash(key);
+        segmentFor(hash).invalidate(key, hash);
+        invalidations.increment();
+    }
+
+    public void invalidateAll() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+        invalidations.increment();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Consumo estimado: tablas de los segmentos más el tamaño de los valores.
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Segment<V> segment : segments) {
+            bytes += segment.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("rejectedPuts", rejectedPuts.sum());
+        stats.put("estimatedBytes", estimatedBytes());
+        return stats;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static long hash(long key) {
+        // fmix64 de MurmurHash3: reparte bien claves consecutivas (ids)
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Tabla de direccionamiento abierto con sondeo lineal y borrado por desplazamiento.
+     */
+    private static final class Segment<V> {
+        private final int capacity;
+        private final int mask;
+        private final long[] keys;
+        private final long[] expiresAt;
+        private final Object[] values;
+        private final long[] weights;
+        private final boolean[] referenced;
+
+        private int size;
+        private int hand;
+        private long version;
+        private long valueBytes;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            this.mask = tableSize - 1;
+            this.keys = new long[tableSize];
+            this.expiresAt = new long[tableSize];
+            this.values = new Object[tableSize];
+            this.weights = new long[tableSize];
+            this.referenced = new boolean[tableSize];
+        }
+
+        synchronized V get(long key, long hash, LongKeyedCache<V> cache) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            if (isExpired(slot, cache)) {
+                removeAt(slot);
+                cache.expirations.increment();
+                return null;
+            }
+            referenced[slot] = true;
+            return valueAt(slot);
+        }
+
+        synchronized long stamp() {
+            return version;
+        }
+
+        synchronized boolean put(long key, long hash, V value, long stamp, LongKeyedCache<V> cache) {
+            if (stamp >= 0 && stamp != version) {
+                return false;
+            }
+            if (stamp < 0) {
+                version++;
+            }
+
+            long weight = cache.weigher.applyAsLong(value);
+            int slot = find(key, hash);
+            if (slot < 0) {
+                while (size >= capacity) {
+                    evictOne(cache);
+                }
+                slot = (int) hash & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                size++;
+            } else {
+                valueBytes -= weights[slot];
+            }
+            values[slot] = value;
+            weights[slot] = weight;
+            valueBytes += weight;
+            expiresAt[slot] = cache.ttlNanos > 0 ? System.nanoTime() + cache.ttlNanos : 0;
+            referenced[slot] = true;
+            return true;
+        }
+
+        synchronized void invalidate(long key, long hash) {
+            version++;
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        }
+
+        synchronized void clear() {
+            version++;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = null;
+                weights[i] = 0;
+                referenced[i] = false;
+            }
+            size = 0;
+            valueBytes = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long estimatedBytes() {
+            return (long) values.length * SLOT_BYTES + valueBytes;
+        }
+
+        private int find(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean isExpired(int slot, LongKeyedCache<V> cache) {
+            return cache.ttlNanos > 0 && System.nanoTime() - expiresAt[slot] > 0;
+        }
+
+        /**
+         * CLOCK: avanza la manecilla dando una segunda oportunidad a las entradas
+         * referenciadas; las caducadas se retiran primero.
+         */
+        private void evictOne(LongKeyedCache<V> cache) {
+            while (true) {
+                int slot = hand;
+                if (values[slot] != null) {
+                    if (isExpired(slot, cache)) {
+                        removeAt(slot);
+                        cache.expirations.increment();
+                        return;
+                    }
+                    if (!referenced[slot]) {
+                        removeAt(slot);
+                        cache.evictions.increment();
+                        return;
+                    }
+                    referenced[slot] = false;
+                }
+                hand = (hand + 1) & mask;
+            }
+        }
+
+        /**
+         * Borra el hueco y recoloca las entradas siguientes del mismo racimo
+         * para que el sondeo lineal siga encontrándolas.
+         */
+        private void removeAt(int slot) {
+            valueBytes -= weights[slot];
+            values[slot] = null;
+            weights[slot] = 0;
+            referenced[slot] = false;
+            size--;
+
+            int free = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (values[next] == null) {
+                    return;
+                }
+                int home = (int) hash(keys[next]) & mask;
+                // La entrada puede ocupar el hueco libre si su posición ideal
+                // no está (cíclicamente) entre el hueco y su posición actual
+                boolean between = free <= next
+                        ? free < home && home <= next
+                        : free < home || home <= next;
+                if (!between) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    weights[free] = weights[next];
+                    expiresAt[free] = expiresAt[next];
+                    referenced[free] = referenced[next];
+                    values[next] = null;
+                    weights[next] = 0;
+                    referenced[next] = false;
+                    free = next;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V valueAt(int slot) {
+            return (V) values[slot];
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de resultados de consultas de usuarios (find_users_by_department, search_users).
+ *
+ * La clave es la forma normalizada de la consulta que construye DatabaseUserServiceImpl.
+ * Cada resultado se guarda con la versión de datos vigente antes de ejecutar el SQL;
+ * cualquier escritura del servicio llama a {@link #bumpVersion()} tras confirmarse, así
+ * que un resultado solo se sirve si no ha habido escrituras desde que se leyó.
+ *
+ * Memoria acotada por bytes estimados (max-bytes): al superarse se expulsan las
+ * entradas usadas hace más tiempo (LRU). Los resultados mayores que max-entry-bytes
+ * no se cachean.
+ *
+ * Configuración en ra2.cache.queries (enabled, max-bytes, max-entry-bytes).
+ */
+@Component
+public class QueryResultCache {
+
+    // Coste aproximado de una entrada sin sus usuarios: nodo del mapa, clave y lista
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long purgedVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejectedPuts = new LongAdder();
+
+    /**
+     * Caché con la configuración por defecto (uso sin Spring, p. ej. McpToolsDemo).
+     */
+    public QueryResultCache() {
+        this(true, 16 * 1024 * 1024, 1024 * 1024);
+    }
+
+    @Autowired
+    public QueryResultCache(@Value("${ra2.cache.queries.enabled:true}") boolean enabled,
+                            @Value("${ra2.cache.queries.max-bytes:16777216}") long maxBytes,
+                            @Value("${ra2.cache.queries.max-entry-bytes:1048576}") long maxEntryBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Versión de datos a tomar antes de ejecutar la consulta que se va a cachear.
+     */
+    public long version() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Invalida todos los resultados: lo llaman las escrituras tras confirmarse.
+     */
+    public void bumpVersion() {
+        dataVersion.incrementAndGet();
+    }
+
+    /**
+     * @return copia del resultado cacheado, o null si no está o es de una versión anterior
+     */
+    public UserPage get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        long current = dataVersion.get();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.version != current) {
+                remove(key, entry);
+                staleMisses.increment();
+                return null;
+            }
+            hits.increment();
+            return copyOf(entry.page);
+        }
+    }
+
+    /**
+     * Cachea un resultado leído con la versión version (ver {@link #version()}).
+     * Si entretanto hubo escrituras se descarta.
+     */
+    public void put(String key, UserPage page, long version) {
+        if (!enabled || page == null) {
+            return;
+        }
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * key.length();
+        for (User user : page.getUsers()) {
+            weight += UserCache.estimateBytes(user);
+        }
+        if (weight > maxEntryBytes) {
+            rejectedPuts.increment();
+            return;
+        }
+        UserPage copy = copyOf(page);
+
+        synchronized (this) {
+            if (version != dataVersion.get()) {
+                rejectedPuts.increment();
+                return;
+            }
+            purgeStale(version);
+
+            Entry previous = entries.put(key, new Entry(copy, version, weight));
+            if (previous != null) {
+                bytes -= previous.weight;
+            }
+            bytes += weight;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                eldest.remove();
+                bytes -= evicted.weight;
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        bumpVersion();
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum() + staleMisses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (this) {
+            stats.put("size", entries.size());
+            stats.put("estimatedBytes", bytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("dataVersion", dataVersion.get());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("staleMisses", staleMisses.sum());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("rejectedPuts", rejectedPuts.sum());
+        return stats;
+    }
+
+    /**
+     * La versión es global: con la primera inserción de una versión nueva
+     * todas las entradas anteriores sobran y se liberan de una vez.
+     */
+    private void purgeStale(long version) {
+        if (purgedVersion == version) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.version != version);
+        bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.weight;
+        }
+        purgedVersion = version;
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.weight;
+    }
+
+    private static UserPage copyOf(UserPage page) {
+        List<User> users = new ArrayList<>(page.getUsers().size());
+        for (User user : page.getUsers()) {
+            users.add(UserCache.copyOf(user));
+        }
+        return new UserPage(users, page.getNextCursor());
+    }
+
+    private static final class Entry {
+        private final UserPage page;
+        private final long version;
+        private final long weight;
+
+        Entry(UserPage page, long version, long weight) {
+            this.page = page;
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+}
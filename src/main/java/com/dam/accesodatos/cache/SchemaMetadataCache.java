@@ -0,0 +1,179 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.config.ThrowawayTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché de metadatos del esquema (get_database_info, get_table_columns, describe_schema).
+ *
+ * Los metadatos solo cambian con DDL, así que las entradas no caducan: se descartan
+ * todas cuando cambia el esquema. Se detecta de dos formas:
+ * - DDL ejecutado por DatabaseConfig: {@link DatabaseConfig#getSchemaVersion()} cambia
+ * - DDL de cualquier otro origen (consola H2, scripts de test...): como mucho cada
+ *   check-interval-ms se calcula una huella de INFORMATION_SCHEMA (tablas, columnas,
+ *   índices y restricciones) y se compara con la anterior
+ *
+ * Las entradas son de solo lectura: quien las construye debe devolver copias o
+ * estructuras inmutables.
+ *
+ * Dentro de una {@link ThrowawayTransaction} (calentamiento) la caché no se usa: esa
+ * conexión puede ser de otra base de datos.
+ *
+ * Configuración en ra2.cache.schema (enabled, check-interval-ms).
+ */
+@Component
+public class SchemaMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMetadataCache.class);
+
+    private static final String SCHEMA_FINGERPRINT_SQL =
+            "SELECT 'C', TABLE_NAME, COLUMN_NAME, DATA_TYPE, IS_NULLABLE, CHARACTER_MAXIMUM_LENGTH " +
+            "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = 'PUBLIC' " +
+            "UNION ALL " +
+            "SELECT 'I', TABLE_NAME, INDEX_NAME, INDEX_TYPE_NAME, NULL, NULL " +
+            "FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA = 'PUBLIC' " +
+            "UNION ALL " +
+            "SELECT 'K', TABLE_NAME, CONSTRAINT_NAME, CONSTRAINT_TYPE, NULL, NULL " +
+            "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_SCHEMA = 'PUBLIC'";
+
+    private final boolean enabled;
+    private final long checkIntervalNanos;
+
+    private final ConcurrentHashMap<String, Object> entries = new ConcurrentHashMap<>();
+
+    // Generación de las entradas: cambia en cada invalidación
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long seenSchemaVersion = -1;
+    private volatile Long fingerprint;
+    private volatile long lastCheckNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fingerprintChecks = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Caché con la configuración por defecto (uso sin Spring, p. ej. McpToolsDemo).
+     */
+    public SchemaMetadataCache() {
+        this(true, 2000);
+    }
+
+    @Autowired
+    public SchemaMetadataCache(@Value("${ra2.cache.schema.enabled:true}") boolean enabled,
+                               @Value("${ra2.cache.schema.check-interval-ms:2000}") long checkIntervalMillis) {
+        this.enabled = enabled;
+        this.checkIntervalNanos = checkIntervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Devuelve la entrada de key, construyéndola con loader si no está.
+     *
+     * Si el esquema cambia mientras loader se ejecuta, el resultado se devuelve
+     * pero no se guarda.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        if (!enabled || ThrowawayTransaction.isActive()) {
+            return loader.get();
+        }
+        validate();
+
+        Object cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            return (T) cached;
+        }
+        misses.increment();
+
+        long loadedIn = generation.get();
+        T value = loader.get();
+        if (value != null && loadedIn == generation.get()) {
+            entries.putIfAbsent(key, value);
+        }
+        return value;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        invalidations.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("schemaVersion", DatabaseConfig.getSchemaVersion());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("fingerprintChecks", fingerprintChecks.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    /**
+     * Descarta las entradas si el esquema ha cambiado desde la última comprobación.
+     */
+    private void validate() {
+        long schemaVersion = DatabaseConfig.getSchemaVersion();
+        if (schemaVersion == seenSchemaVersion && !isCheckDue()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (schemaVersion != seenSchemaVersion) {
+                seenSchemaVersion = schemaVersion;
+                fingerprint = null;
+                invalidateAll();
+            }
+            if (isCheckDue()) {
+                long current = computeFingerprint();
+                fingerprintChecks.increment();
+                if (fingerprint != null && fingerprint != current) {
+                    logger.info("Cambio de esquema detectado: se descartan los metadatos cacheados");
+                    invalidateAll();
+                }
+                fingerprint = current;
+                lastCheckNanos = System.nanoTime();
+            }
+        }
+    }
+
+    private boolean isCheckDue() {
+        return fingerprint == null || System.nanoTime() - lastCheckNanos >= checkIntervalNanos;
+    }
+
+    private long computeFingerprint() {
+        long hash = 0;
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SCHEMA_FINGERPRINT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            // Suma de hashes por fila: no depende del orden en que lleguen
+            while (rs.next()) {
+                hash += Objects.hash(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5), rs.getString(6)) * 0x9E3779B97F4A7C15L;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al comprobar la versión del esquema: " + e.getMessage(), e);
+        }
+        return hash;
+    }
+}
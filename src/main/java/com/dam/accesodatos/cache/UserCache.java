@@ -0,0 +1,112 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Caché de entidades User por id delante de findUserById().
+ *
+ * Las escrituras de DatabaseUserServiceImpl invalidan la entrada después de
+ * confirmar el cambio en la base de datos, y la siguiente lectura la vuelve a
+ * cachear con stamp()/putIfUnchanged(): así una escritura lenta no puede dejar
+ * en la caché una fila más antigua que la de otra escritura posterior. Guarda y
+ * devuelve copias, así que modificar el User devuelto no altera la caché.
+ *
+ * Configuración en ra2.cache.users (enabled, max-size, ttl-ms).
+ */
+@Component
+public class UserCache {
+
+    private final boolean enabled;
+    private final LongKeyedCache<User> cache;
+
+    /**
+     * Caché con la configuración por defecto (uso sin Spring, p. ej. McpToolsDemo).
+     */
+    public UserCache() {
+        this(true, 10_000, 60_000);
+    }
+
+    @Autowired
+    public UserCache(@Value("${ra2.cache.users.enabled:true}") boolean enabled,
+                     @Value("${ra2.cache.users.max-size:10000}") int maxSize,
+                     @Value("${ra2.cache.users.ttl-ms:60000}") long ttlMillis) {
+        this.enabled = enabled;
+        this.cache = new LongKeyedCache<>(maxSize, ttlMillis, UserCache::estimateBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return copia del usuario cacheado, o null si no está
+     */
+    public User get(long id) {
+        if (!enabled) {
+            return null;
+        }
+        User user = cache.get(id);
+        return user != null ? copyOf(user) : null;
+    }
+
+    /**
+     * Marca a tomar antes de leer de la base de datos (ver {@link LongKeyedCache#stamp}).
+     */
+    public long stamp(long id) {
+        return cache.stamp(id);
+    }
+
+    /**
+     * Cachea un usuario leído de la base de datos si nadie lo ha escrito desde stamp.
+     */
+    public void putIfUnchanged(User user, long stamp) {
+        if (enabled && user != null && user.getId() != null) {
+            cache.putIfUnchanged(user.getId(), copyOf(user), stamp);
+        }
+    }
+
+    public void invalidate(long id) {
+        if (enabled) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.getStats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    static User copyOf(User user) {
+        User copy = new User(user.getId(), user.getName(), user.getEmail(), user.getDepartment(), user.getRole());
+        copy.setActive(user.getActive());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
+    }
+
+    /**
+     * Tamaño aproximado de un User en el heap: objeto, 4 String y 2 LocalDateTime.
+     */
+    static long estimateBytes(User user) {
+        return 48
+                + stringBytes(user.getName())
+                + stringBytes(user.getEmail())
+                + stringBytes(user.getDepartment())
+                + stringBytes(user.getRole())
+                + 2 * 48;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+}
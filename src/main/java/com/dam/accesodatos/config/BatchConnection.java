@@ -0,0 +1,210 @@
+package com.dam.accesodatos.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Conexión compartida por un lote de llamadas a herramientas (/mcp/batch y lotes JSON-RPC).
+ *
+ * Mientras dura run(), DatabaseConfig.getConnection() y getReadConnection() devuelven
+ * en el hilo actual la misma conexión: las herramientas del lote no vuelven a pedir
+ * conexión al pool y comparten sus PreparedStatement cacheados. Esa conexión ignora
+ * close() del código cliente.
+ *
+ * - Lote normal: la conexión sigue en auto-commit y cada herramienta confirma sus
+ *   escrituras como siempre (incluidas sus propias transacciones).
+ * - Lote atómico: todo el lote es una transacción. La conexión ignora además
+ *   commit(), rollback() y setAutoCommit() (como {@link ThrowawayTransaction}); al
+ *   terminar run() se confirma, o se deshace si la acción lanza una excepción.
+ *   Los efectos en memoria de las escrituras (cachés, contadores, réplica) se
+ *   registran con {@link #afterCommit} y solo se aplican si el lote se confirma.
+ */
+public final class BatchConnection {
+
+    private static final ThreadLocal<Batch> CURRENT = new ThreadLocal<>();
+
+    private BatchConnection() {
+    }
+
+    /**
+     * @return conexión del lote del hilo actual, o null si no hay ninguno
+     */
+    static Connection current() {
+        Batch batch = CURRENT.get();
+        return batch != null ? batch.pinned : null;
+    }
+
+    /**
+     * @return true si el hilo actual está dentro de run()
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @return true si el hilo actual está dentro de un lote atómico
+     */
+    public static boolean isAtomic() {
+        Batch batch = CURRENT.get();
+        return batch != null && batch.atomic;
+    }
+
+    /**
+     * Ejecuta la acción con una sola conexión para todo el lote.
+     * Si ya hay un lote activo en el hilo, la acción se une a él.
+     *
+     * @param atomic true para ejecutar todo el lote en una transacción
+     */
+    public static <T> T run(boolean atomic, Supplier<T> action) {
+        if (CURRENT.get() != null) {
+            return action.get();
+        }
+
+        Connection conn;
+        try {
+            conn = DatabaseConfig.getConnection();
+            if (atomic) {
+                conn.setAutoCommit(false);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error abriendo la conexión del lote: " + e.getMessage(), e);
+        }
+
+        Batch batch = new Batch(atomic, (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PinnedHandler(conn, atomic)));
+        CURRENT.set(batch);
+        boolean committed = false;
+        try {
+            T result = action.get();
+            if (atomic) {
+                conn.commit();
+                committed = true;
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error confirmando el lote: " + e.getMessage(), e);
+        } finally {
+            CURRENT.remove();
+            try {
+                if (!conn.getAutoCommit()) {
+                    // Lote atómico fallido, o una herramienta dejó una transacción abierta
+                    if (!committed) {
+                        conn.rollback();
+                    }
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ignored) {
+                // El pool descarta la conexión si no se pudo restaurar
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException ignored) {
+                    // Conexión ya cerrada o rota
+                }
+            }
+            batch.complete(atomic ? committed : true);
+        }
+    }
+
+    /**
+     * Efecto en memoria de una escritura ya ejecutada: se aplica ahora o, dentro de
+     * un lote atómico, cuando el lote se confirma (se descarta si se deshace).
+     */
+    public static void afterCommit(Runnable action) {
+        Batch batch = CURRENT.get();
+        if (batch != null && batch.atomic) {
+            batch.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Como {@link #afterCommit}, pero se aplica también si el lote atómico se deshace.
+     */
+    public static void afterCompletion(Runnable action) {
+        Batch batch = CURRENT.get();
+        if (batch != null && batch.atomic) {
+            batch.afterCompletion.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Estado del lote del hilo actual
+     */
+    private static final class Batch {
+        private final boolean atomic;
+        private final Connection pinned;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private final List<Runnable> afterCompletion = new ArrayList<>();
+
+        Batch(boolean atomic, Connection pinned) {
+            this.atomic = atomic;
+            this.pinned = pinned;
+        }
+
+        void complete(boolean committed) {
+            if (committed) {
+                afterCommit.forEach(Runnable::run);
+            }
+            afterCompletion.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Conexión compartida dentro de run(): el cierre (y en lotes atómicos, la
+     * transacción) es de run().
+     */
+    private static final class PinnedHandler implements InvocationHandler {
+        private final Connection conn;
+        private final boolean atomic;
+
+        PinnedHandler(Connection conn, boolean atomic) {
+            this.conn = conn;
+            this.atomic = atomic;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "commit":
+                case "setAutoCommit":
+                    if (atomic) {
+                        return null;
+                    }
+                    break;
+                case "rollback":
+                    if (atomic && (args == null || args.length == 0)) {
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
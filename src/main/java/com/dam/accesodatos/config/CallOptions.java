@@ -0,0 +1,70 @@
+package com.dam.accesodatos.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Opciones de una llamada concreta a una herramienta, visibles durante su ejecución.
+ *
+ * Se guardan en un ThreadLocal mientras dura run(), de modo que DatabaseConfig
+ * y DatabaseUserServiceImpl pueden consultarlas sin cambiar la firma de los
+ * métodos @Tool.
+ *
+ * - requireFresh: las lecturas van a la base de datos principal aunque haya réplica
+ * - noCache: la llamada ni lee ni rellena las cachés de resultados
+ */
+public final class CallOptions {
+
+    public static final CallOptions DEFAULT = new CallOptions(false, false);
+    public static final CallOptions FRESH = new CallOptions(true, false);
+
+    private static final ThreadLocal<CallOptions> CURRENT = new ThreadLocal<>();
+
+    private final boolean requireFresh;
+    private final boolean noCache;
+
+    private CallOptions(boolean requireFresh, boolean noCache) {
+        this.requireFresh = requireFresh;
+        this.noCache = noCache;
+    }
+
+    public static CallOptions of(boolean requireFresh) {
+        return requireFresh ? FRESH : DEFAULT;
+    }
+
+    public static CallOptions of(boolean requireFresh, boolean noCache) {
+        return noCache ? new CallOptions(requireFresh, true) : of(requireFresh);
+    }
+
+    /**
+     * @return opciones de la llamada en curso (DEFAULT si no hay ninguna)
+     */
+    public static CallOptions current() {
+        CallOptions options = CURRENT.get();
+        return options != null ? options : DEFAULT;
+    }
+
+    /**
+     * Ejecuta la acción con estas opciones activas en el hilo actual.
+     */
+    public static <T> T run(CallOptions options, Supplier<T> action) {
+        CallOptions previous = CURRENT.get();
+        CURRENT.set(options);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public boolean isRequireFresh() {
+        return requireFresh;
+    }
+
+    public boolean isNoCache() {
+        return noCache;
+    }
+}
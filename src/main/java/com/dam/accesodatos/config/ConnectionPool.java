@@ -0,0 +1,499 @@
+package com.dam.accesodatos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexiones JDBC acotado, sin dependencias externas.
+ *
+ * Se usa desde {@link DatabaseConfig#getConnection()} cuando el modo pool está activo.
+ * Las conexiones que entrega son proxies: llamar a close() las devuelve al pool
+ * en lugar de cerrar la sesión H2, por lo que el patrón try-with-resources
+ * de DatabaseUserServiceImpl sigue funcionando sin cambios.
+ *
+ * Características:
+ * - Tamaño máximo acotado (semáforo justo) con timeout de adquisición
+ * - Validación con una query configurable si la conexión lleva tiempo ociosa
+ * - Expulsión de conexiones ociosas respetando un mínimo
+ * - Detección de fugas: registra el hilo y el momento del préstamo (y, solo si se
+ *   activa leak-stack-trace para depurar, la pila del hilo, que cuesta en cada préstamo)
+ * - Estadísticas de tiempo de espera en la adquisición
+ * - Caché LRU de PreparedStatement por conexión física ({@link StatementCache})
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Settings settings;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledEntry> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Estadísticas
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, Settings settings) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ra2-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(settings.getIdleTimeoutMillis(), settings.getLeakThresholdMillis()) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene una conexión del pool, esperando como máximo acquireTimeoutMillis.
+     *
+     * @return proxy de Connection cuyo close() la devuelve al pool
+     * @throws SQLException si se agota el timeout o no se puede abrir una sesión nueva
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado", "08003");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timeout esperando conexión del pool tras "
+                        + settings.getAcquireTimeoutMillis() + " ms (máximo " + settings.getMaxSize()
+                        + " conexiones en uso)", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando conexión del pool", "08001", e);
+        }
+
+        PooledEntry entry;
+        try {
+            entry = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        acquired.increment();
+
+        entry.borrowedAt = System.currentTimeMillis();
+        entry.borrowThread = Thread.currentThread().getName();
+        entry.borrowStack = settings.getLeakThresholdMillis() > 0 && settings.isLeakStackTrace()
+                ? new Throwable("Conexión obtenida del pool por el hilo " + entry.borrowThread)
+                : null;
+        entry.leakReported = false;
+        borrowed.add(entry);
+
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new LeaseHandler(entry));
+    }
+
+    /**
+     * Abre conexiones hasta minIdle y prepara en cada una las sentencias indicadas,
+     * que quedan en su caché de PreparedStatement. Las conexiones se piden a la vez
+     * para que sean físicas distintas y vuelven al pool al terminar.
+     *
+     * @param sql sentencias a preparar (no se ejecutan)
+     * @return número de conexiones calentadas
+     * @throws SQLException si no se puede obtener una conexión o preparar una sentencia
+     */
+    public int prewarm(List<String> sql) throws SQLException {
+        int count = Math.min(settings.getMinIdle(), settings.getMaxSize());
+        List<Connection> leases = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                Connection conn = getConnection();
+                leases.add(conn);
+                for (String statement : sql) {
+                    conn.prepareStatement(statement).close();
+                }
+            }
+        } finally {
+            for (Connection conn : leases) {
+                conn.close();
+            }
+        }
+        return leases.size();
+    }
+
+    private PooledEntry takeIdleOrCreate() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - entry.lastReturnedAt;
+            if (idleFor < settings.getValidationIntervalMillis() || isValid(entry.physical)) {
+                return entry;
+            }
+            validationFailures.increment();
+            destroy(entry);
+        }
+        Connection physical = openPhysical();
+        StatementCache statements = settings.getStatementCacheSize() > 0
+                ? new StatementCache(settings.getStatementCacheSize(),
+                        statementCacheHits, statementCacheMisses, statementCacheEvictions)
+                : null;
+        return new PooledEntry(physical, statements, physical.isReadOnly(), physical.getTransactionIsolation());
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        created.increment();
+        return physical;
+    }
+
+    private boolean isValid(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            String query = settings.getValidationQuery();
+            if (query == null || query.isBlank()) {
+                return physical.isValid(1);
+            }
+            try (Statement stmt = physical.createStatement()) {
+                stmt.execute(query);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Devuelve la conexión al pool restaurando su estado: statements abiertos,
+     * transacción abierta, auto-commit, solo lectura y nivel de aislamiento.
+     * Si no se puede restaurar, la conexión física se descarta.
+     */
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        entry.borrowThread = null;
+        entry.borrowStack = null;
+        try {
+            if (closed || entry.physical.isClosed()) {
+                destroy(entry);
+                return;
+            }
+            if (entry.statements != null) {
+                entry.statements.closeAll();
+            }
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (entry.physical.isReadOnly() != entry.defaultReadOnly) {
+                entry.physical.setReadOnly(entry.defaultReadOnly);
+            }
+            if (entry.physical.getTransactionIsolation() != entry.defaultIsolation) {
+                entry.physical.setTransactionIsolation(entry.defaultIsolation);
+            }
+            entry.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            logger.warn("Descartando conexión que no se pudo restaurar: {}", e.getMessage());
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Error cerrando conexión física: {}", e.getMessage());
+        }
+        destroyed.increment();
+    }
+
+    /**
+     * Tarea periódica: expulsa conexiones ociosas y avisa de posibles fugas.
+     */
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+
+        int idleCount = idle.size();
+        for (PooledEntry entry : idle) {
+            if (idleCount <= settings.getMinIdle()) {
+                break;
+            }
+            if (now - entry.lastReturnedAt > settings.getIdleTimeoutMillis() && idle.remove(entry)) {
+                destroy(entry);
+                idleCount--;
+            }
+        }
+
+        long leakThreshold = settings.getLeakThresholdMillis();
+        if (leakThreshold > 0) {
+            for (PooledEntry entry : borrowed) {
+                String thread = entry.borrowThread;
+                if (!entry.leakReported && thread != null && now - entry.borrowedAt > leakThreshold) {
+                    entry.leakReported = true;
+                    leaksDetected.increment();
+                    Throwable stack = entry.borrowStack;
+                    if (stack != null) {
+                        logger.warn("Posible fuga de conexión: prestada hace {} ms y no devuelta", now - entry.borrowedAt, stack);
+                    } else {
+                        logger.warn("Posible fuga de conexión: prestada al hilo {} hace {} ms y no devuelta "
+                                + "(ra2.jdbc.pool.leak-stack-trace=true para ver la pila)", thread, now - entry.borrowedAt);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Estadísticas del pool para monitorización.
+     */
+    public Map<String, Object> getStats() {
+        long acquiredCount = acquired.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", settings.getMaxSize());
+        stats.put("active", borrowed.size());
+        stats.put("idle", idle.size());
+        stats.put("created", created.sum());
+        stats.put("destroyed", destroyed.sum());
+        stats.put("acquired", acquiredCount);
+        stats.put("timeouts", timeouts.sum());
+        stats.put("validationFailures", validationFailures.sum());
+        stats.put("leaksDetected", leaksDetected.sum());
+        stats.put("acquireWaitAvgMicros", acquiredCount == 0 ? 0 : totalWaitNanos.sum() / acquiredCount / 1000);
+        stats.put("acquireWaitMaxMicros", maxWaitNanos.get() / 1000);
+        stats.put("statementCacheHits", statementCacheHits.sum());
+        stats.put("statementCacheMisses", statementCacheMisses.sum());
+        stats.put("statementCacheEvictions", statementCacheEvictions.sum());
+        return stats;
+    }
+
+    /**
+     * Cierra el pool: las conexiones ociosas se cierran ya y las prestadas al devolverse.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * Conexión física del pool y su estado de préstamo.
+     */
+    private static final class PooledEntry {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile String borrowThread;
+        volatile Throwable borrowStack;
+        volatile boolean leakReported;
+        // Estado recién abierta: se restaura al devolverla
+        final boolean defaultReadOnly;
+        final int defaultIsolation;
+
+        PooledEntry(Connection physical, StatementCache statements, boolean defaultReadOnly, int defaultIsolation) {
+            this.physical = physical;
+            this.statements = statements;
+            this.defaultReadOnly = defaultReadOnly;
+            this.defaultIsolation = defaultIsolation;
+        }
+    }
+
+    /**
+     * Un préstamo concreto de una conexión. Tras close() el proxy queda inutilizable,
+     * aunque la conexión física siga viva en el pool.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private final AtomicBoolean returned = new AtomicBoolean(false);
+
+        LeaseHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("La conexión ya fue devuelta al pool", "08003");
+            }
+            if (entry.statements != null && "prepareStatement".equals(method.getName())) {
+                if (args.length == 1) {
+                    return entry.statements.prepare(entry.physical, (Connection) proxy, (String) args[0],
+                            Statement.NO_GENERATED_KEYS);
+                }
+                if (args.length == 2 && args[1] instanceof Integer) {
+                    return entry.statements.prepare(entry.physical, (Connection) proxy, (String) args[0],
+                            (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Parámetros de configuración del pool (ver ra2.jdbc.pool en application.yml).
+     */
+    public static class Settings {
+        private int maxSize = 10;
+        private int minIdle = 2;
+        private long acquireTimeoutMillis = 5000;
+        private String validationQuery = "SELECT 1";
+        private long validationIntervalMillis = 30000;
+        private long idleTimeoutMillis = 300000;
+        private long leakThresholdMillis = 10000;
+        private boolean leakStackTrace = false;
+        private int statementCacheSize = 32;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("El tamaño máximo del pool debe ser >= 1");
+            }
+            this.maxSize = maxSize;
+        }
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+
+        public long getAcquireTimeoutMillis() {
+            return acquireTimeoutMillis;
+        }
+
+        public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+        }
+
+        public String getValidationQuery() {
+            return validationQuery;
+        }
+
+        public void setValidationQuery(String validationQuery) {
+            this.validationQuery = validationQuery;
+        }
+
+        public long getValidationIntervalMillis() {
+            return validationIntervalMillis;
+        }
+
+        public void setValidationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        public long getLeakThresholdMillis() {
+            return leakThresholdMillis;
+        }
+
+        public void setLeakThresholdMillis(long leakThresholdMillis) {
+            this.leakThresholdMillis = leakThresholdMillis;
+        }
+
+        public boolean isLeakStackTrace() {
+            return leakStackTrace;
+        }
+
+        public void setLeakStackTrace(boolean leakStackTrace) {
+            this.leakStackTrace = leakStackTrace;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+
+        public void setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+}
@@ -1,30 +1,140 @@
 package com.dam.accesodatos.config;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * Configuración del DataSource para H2 Database
+ * Configuración de las conexiones JDBC de DatabaseConfig.
  *
- * En este proyecto, la configuración del DataSource se realiza
- * automáticamente por Spring Boot a través de application.yml.
+ * En este proyecto NO se usa el DataSource de Spring Boot: el código de
+ * DatabaseUserServiceImpl obtiene conexiones con DatabaseConfig.getConnection().
  *
- * Este archivo está aquí por completitud, pero no es necesario
- * configurar nada manualmente para H2.
+ * Esta clase solo traslada las propiedades ra2.jdbc.pool.* de application.yml
+ * a DatabaseConfig para activar (o no) su pool de conexiones propio:
  *
- * Si en el futuro se necesita personalizar el DataSource
- * (ej: pool de conexiones HikariCP), se puede hacer aquí:
+ * ra2:
+ *   jdbc:
+ *     pool:
+ *       enabled: true
+ *       max-size: 10
  *
- * @Bean
- * public DataSource dataSource() {
- *     HikariConfig config = new HikariConfig();
- *     config.setJdbcUrl("jdbc:h2:mem:ra2db");
- *     config.setUsername("sa");
- *     config.setPassword("");
- *     config.setMaximumPoolSize(10);
- *     return new HikariDataSource(config);
- * }
+ * Con enabled=false se mantiene el comportamiento original: una sesión H2
+ * nueva con DriverManager.getConnection() en cada llamada.
+ *
+ * Con ra2.jdbc.replica.enabled=true activa además la réplica de lectura, que
+ * usa los mismos ajustes de pool para sus conexiones.
+ *
+ * Con ra2.jdbc.slow-query.enabled=true cronometra todas las sentencias y guarda
+ * las que superan threshold-ms, con su plan (herramienta get_slow_queries).
  */
 @Configuration
 public class DataSourceConfig {
-    // Configuración automática por Spring Boot via application.yml
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    @Value("${ra2.jdbc.pool.enabled:false}")
+    private boolean poolEnabled;
+
+    @Value("${ra2.jdbc.pool.max-size:10}")
+    private int maxSize;
+
+    @Value("${ra2.jdbc.pool.min-idle:2}")
+    private int minIdle;
+
+    @Value("${ra2.jdbc.pool.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMillis;
+
+    @Value("${ra2.jdbc.pool.validation-query:SELECT 1}")
+    private String validationQuery;
+
+    @Value("${ra2.jdbc.pool.validation-interval-ms:30000}")
+    private long validationIntervalMillis;
+
+    @Value("${ra2.jdbc.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMillis;
+
+    @Value("${ra2.jdbc.pool.leak-threshold-ms:10000}")
+    private long leakThresholdMillis;
+
+    @Value("${ra2.jdbc.pool.leak-stack-trace:false}")
+    private boolean leakStackTrace;
+
+    @Value("${ra2.jdbc.pool.statement-cache-size:32}")
+    private int statementCacheSize;
+
+    @Value("${ra2.jdbc.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${ra2.jdbc.replica.refresh-interval-ms:5000}")
+    private long replicaRefreshIntervalMillis;
+
+    @Value("${ra2.jdbc.replica.refresh-after-writes:100}")
+    private long replicaRefreshAfterWrites;
+
+    @Value("${ra2.jdbc.slow-query.enabled:false}")
+    private boolean slowQueryEnabled;
+
+    @Value("${ra2.jdbc.slow-query.threshold-ms:100}")
+    private long slowQueryThresholdMillis;
+
+    @Value("${ra2.jdbc.slow-query.capacity:100}")
+    private int slowQueryCapacity;
+
+    @Value("${ra2.jdbc.slow-query.explain:true}")
+    private boolean slowQueryExplain;
+
+    @Value("${ra2.jdbc.slow-query.plan-interval-ms:60000}")
+    private long slowQueryPlanIntervalMillis;
+
+    @PostConstruct
+    public void configureConnections() {
+        ConnectionPool.Settings settings = buildPoolSettings();
+
+        if (poolEnabled) {
+            DatabaseConfig.enablePool(settings);
+            logger.info("Pool de conexiones activado (máximo {} conexiones)", maxSize);
+        } else {
+            logger.info("Pool de conexiones desactivado: se usa DriverManager.getConnection() directo");
+        }
+
+        if (replicaEnabled) {
+            // La primera copia debe incluir el esquema y los datos iniciales
+            DatabaseConfig.initializeDatabase();
+            DatabaseConfig.enableReplica(replicaRefreshIntervalMillis, replicaRefreshAfterWrites, settings);
+            logger.info("Réplica de lectura activada (refresco cada {} ms o {} filas escritas)",
+                    replicaRefreshIntervalMillis, replicaRefreshAfterWrites);
+        }
+
+        if (slowQueryEnabled) {
+            DatabaseConfig.enableSlowQueryLog(slowQueryThresholdMillis, slowQueryCapacity,
+                    slowQueryExplain, slowQueryPlanIntervalMillis);
+            logger.info("Registro de consultas lentas activado (umbral {} ms, últimas {})",
+                    slowQueryThresholdMillis, slowQueryCapacity);
+        }
+    }
+
+    private ConnectionPool.Settings buildPoolSettings() {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.setMaxSize(maxSize);
+        settings.setMinIdle(minIdle);
+        settings.setAcquireTimeoutMillis(acquireTimeoutMillis);
+        settings.setValidationQuery(validationQuery);
+        settings.setValidationIntervalMillis(validationIntervalMillis);
+        settings.setIdleTimeoutMillis(idleTimeoutMillis);
+        settings.setLeakThresholdMillis(leakThresholdMillis);
+        settings.setLeakStackTrace(leakStackTrace);
+        settings.setStatementCacheSize(statementCacheSize);
+        return settings;
+    }
+
+    @PreDestroy
+    public void shutdownConnections() {
+        DatabaseConfig.shutdownSlowQueryLog();
+        DatabaseConfig.shutdownReplica();
+        DatabaseConfig.shutdownPool();
+    }
 }
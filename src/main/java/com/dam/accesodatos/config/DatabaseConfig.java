@@ -1,9 +1,16 @@
 package com.dam.accesodatos.config;
 
+import com.dam.accesodatos.metrics.Metrics;
+import com.dam.accesodatos.model.SlowQuery;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuración de base de datos para JDBC puro (sin Spring DataSource)
@@ -12,10 +19,33 @@ import java.sql.Statement;
  * usen DriverManager.getConnection() directamente, aprendiendo JDBC vanilla.
  *
  * IMPORTANTE PEDAGÓGICO:
- * - Los estudiantes usarán DriverManager.getConnection() en cada método
+ * - Los estudiantes usarán DatabaseConfig.getConnection() en cada método
  * - NO hay pool de conexiones de Spring
  * - Deben cerrar conexiones manualmente con try-with-resources
  * - Aprenden el ciclo completo de JDBC sin abstracciones
+ *
+ * Modo pool (opcional):
+ * - Si se activa con enablePool(), getConnection() toma conexiones de un
+ *   {@link ConnectionPool} propio en lugar de abrir una sesión H2 nueva cada vez
+ * - close() devuelve la conexión al pool, así que el código cliente no cambia
+ *
+ * Réplica de lectura (opcional):
+ * - Si se activa con enableReplica(), getReadConnection() sirve las lecturas desde
+ *   una copia de la base de datos que se refresca periódicamente ({@link ReadReplica})
+ * - Las escrituras siguen usando getConnection() y deben anotarse con recordWrites()
+ * - Una llamada con {@link CallOptions#isRequireFresh()} lee siempre de la principal
+ *
+ * Registro de consultas lentas (opcional):
+ * - Si se activa con enableSlowQueryLog(), las conexiones de ambos métodos se
+ *   envuelven para cronometrar cada sentencia ({@link SlowQueryLog}); las lentas se
+ *   guardan con sus parámetros y el plan de H2, y se consultan con getSlowQueries()
+ *
+ * Dentro de {@link ThrowawayTransaction#run} ambos métodos devuelven la conexión
+ * de esa transacción, que se deshace al terminar; dentro de {@link BatchConnection#run},
+ * la conexión compartida por el lote de herramientas.
+ *
+ * Versión de esquema: el DDL ejecutado desde aquí (initializeDatabase) llama a
+ * schemaChanged(), y las cachés de metadatos comparan getSchemaVersion().
  */
 public class DatabaseConfig {
 
@@ -27,6 +57,18 @@ public class DatabaseConfig {
 
     private static boolean initialized = false;
 
+    // Pool de conexiones (null = modo DriverManager directo)
+    private static volatile ConnectionPool pool;
+
+    // Réplica de lectura (null = todas las lecturas van a la principal)
+    private static volatile ReadReplica replica;
+
+    // Registro de consultas lentas (null = conexiones sin envolver)
+    private static volatile SlowQueryLog slowQueryLog;
+
+    // Se incrementa con cada DDL ejecutado a través de esta clase
+    private static final AtomicLong schemaVersion = new AtomicLong();
+
     /**
      * Carga el driver JDBC de H2.
      *
@@ -63,7 +105,234 @@ public class DatabaseConfig {
      * @throws SQLException si no se puede conectar
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        Connection throwaway = ThrowawayTransaction.current();
+        if (throwaway != null) {
+            // Conexión de la transacción desechable (ya envuelta o de una base aparte)
+            return throwaway;
+        }
+        Connection batch = BatchConnection.current();
+        if (batch != null) {
+            return batch;
+        }
+        long start = System.nanoTime();
+        Connection conn = openConnection();
+        Metrics.connectionAcquired(start);
+        return traced(conn);
+    }
+
+    /**
+     * Conexión del pool o de DriverManager, sin envolver
+     */
+    private static Connection openConnection() throws SQLException {
+        ConnectionPool currentPool = pool;
+        return currentPool != null
+                ? currentPool.getConnection()
+                : DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+
+    private static Connection traced(Connection conn) {
+        SlowQueryLog currentLog = slowQueryLog;
+        return currentLog != null ? currentLog.wrap(conn) : conn;
+    }
+
+    /**
+     * Obtiene una conexión para una operación de solo lectura.
+     *
+     * Si hay réplica activa y la llamada en curso no exige datos frescos, la
+     * conexión es de la réplica; si no, es la misma que getConnection().
+     * Se usa igual que getConnection(), con try-with-resources.
+     *
+     * @return Connection JDBC (puede apuntar a la réplica)
+     * @throws SQLException si no se puede conectar
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ReadReplica currentReplica = replica;
+        if (currentReplica != null && !ThrowawayTransaction.isActive() && !BatchConnection.isActive()) {
+            if (CallOptions.current().isRequireFresh()) {
+                currentReplica.recordPrimaryRead();
+            } else {
+                long start = System.nanoTime();
+                Connection conn = currentReplica.getConnection();
+                if (conn != null) {
+                    Metrics.connectionAcquired(start);
+                    return traced(conn);
+                }
+            }
+        }
+        return getConnection();
+    }
+
+    /**
+     * Anota filas escritas en la principal para que la réplica sepa cuándo refrescarse.
+     *
+     * @param rows filas insertadas, actualizadas o borradas
+     */
+    public static void recordWrites(long rows) {
+        ReadReplica currentReplica = replica;
+        if (currentReplica != null && rows > 0 && !ThrowawayTransaction.isActive()) {
+            currentReplica.recordWrites(rows);
+        }
+    }
+
+    /**
+     * Activa la réplica de lectura. Si ya había una, se cierra y se sustituye.
+     *
+     * @param refreshIntervalMillis cada cuánto se refresca la réplica
+     * @param refreshAfterWrites filas escritas que fuerzan un refresco anticipado (0 = solo por tiempo)
+     * @param settings pool de conexiones de cada copia de la réplica
+     */
+    public static synchronized void enableReplica(long refreshIntervalMillis, long refreshAfterWrites,
+                                                  ConnectionPool.Settings settings) {
+        loadDriver();
+        ReadReplica previous = replica;
+        replica = new ReadReplica(DB_URL, DB_USER, DB_PASSWORD,
+                refreshIntervalMillis, refreshAfterWrites, settings);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Desactiva la réplica: todas las lecturas vuelven a la principal.
+     */
+    public static synchronized void shutdownReplica() {
+        ReadReplica previous = replica;
+        replica = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @return true si hay una réplica de lectura activa
+     */
+    public static boolean isReplicaEnabled() {
+        return replica != null;
+    }
+
+    /**
+     * Estado de la réplica (generación, retraso, refrescos, lecturas servidas).
+     *
+     * @return mapa de estadísticas o mapa vacío si la réplica no está activa
+     */
+    public static Map<String, Object> getReplicaStats() {
+        ReadReplica currentReplica = replica;
+        return currentReplica != null ? currentReplica.getStats() : Collections.emptyMap();
+    }
+
+    /**
+     * Activa el registro de consultas lentas. Si ya había uno, se sustituye (y se
+     * pierden sus entradas).
+     *
+     * @param thresholdMillis duración a partir de la cual una sentencia se registra
+     * @param capacity consultas lentas que se conservan (las más recientes)
+     * @param explain true para capturar el plan de H2 (EXPLAIN ANALYZE en las SELECT)
+     * @param planIntervalMillis tiempo durante el que se reutiliza el plan de un mismo SQL
+     */
+    public static synchronized void enableSlowQueryLog(long thresholdMillis, int capacity, boolean explain,
+                                                       long planIntervalMillis) {
+        loadDriver();
+        SlowQueryLog previous = slowQueryLog;
+        slowQueryLog = new SlowQueryLog(thresholdMillis, capacity, explain, planIntervalMillis,
+                DatabaseConfig::openConnection);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Desactiva el registro de consultas lentas: las conexiones nuevas ya no se envuelven.
+     */
+    public static synchronized void shutdownSlowQueryLog() {
+        SlowQueryLog previous = slowQueryLog;
+        slowQueryLog = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @return true si se están cronometrando las sentencias
+     */
+    public static boolean isSlowQueryLogEnabled() {
+        return slowQueryLog != null;
+    }
+
+    /**
+     * Últimas consultas lentas, de la más reciente a la más antigua.
+     *
+     * @param limit máximo de entradas (0 = todas las conservadas)
+     * @return lista vacía si el registro no está activo
+     */
+    public static List<SlowQuery> getSlowQueries(int limit) {
+        SlowQueryLog currentLog = slowQueryLog;
+        return currentLog != null ? currentLog.recent(limit) : Collections.emptyList();
+    }
+
+    /**
+     * Umbral, sentencias cronometradas, lentas y planes capturados.
+     *
+     * @return mapa de estadísticas o mapa vacío si el registro no está activo
+     */
+    public static Map<String, Object> getSlowQueryStats() {
+        SlowQueryLog currentLog = slowQueryLog;
+        return currentLog != null ? currentLog.getStats() : Collections.emptyMap();
+    }
+
+    /**
+     * Activa el modo pool: a partir de aquí getConnection() reutiliza conexiones.
+     * Si ya había un pool activo, se cierra y se sustituye por uno nuevo.
+     *
+     * @param settings tamaño, validación, expulsión de ociosas y detección de fugas
+     */
+    public static synchronized void enablePool(ConnectionPool.Settings settings) {
+        loadDriver();
+        ConnectionPool previous = pool;
+        pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, settings);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Calienta el pool de la base principal: abre conexiones hasta min-idle y
+     * prepara en cada una las sentencias indicadas (ver ConnectionPool#prewarm).
+     *
+     * @param sql sentencias de solo lectura a preparar
+     * @return conexiones calentadas (0 si el pool no está activo)
+     * @throws SQLException si no se puede obtener una conexión o preparar una sentencia
+     */
+    public static int prewarmPool(List<String> sql) throws SQLException {
+        ConnectionPool currentPool = pool;
+        return currentPool != null ? currentPool.prewarm(sql) : 0;
+    }
+
+    /**
+     * Desactiva el modo pool y vuelve a DriverManager.getConnection() directo.
+     */
+    public static synchronized void shutdownPool() {
+        ConnectionPool previous = pool;
+        pool = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @return true si getConnection() está sirviendo conexiones del pool
+     */
+    public static boolean isPoolEnabled() {
+        return pool != null;
+    }
+
+    /**
+     * Estadísticas del pool (conexiones activas/ociosas, esperas, fugas).
+     *
+     * @return mapa de estadísticas o mapa vacío si el pool no está activo
+     */
+    public static Map<String, Object> getPoolStats() {
+        ConnectionPool currentPool = pool;
+        return currentPool != null ? currentPool.getStats() : Collections.emptyMap();
     }
 
     /**
@@ -90,12 +359,51 @@ public class DatabaseConfig {
             executeScript(stmt, getDataSQL());
 
             initialized = true;
+            schemaChanged();
 
         } catch (SQLException e) {
             throw new RuntimeException("Error inicializando base de datos: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Abre una base de datos en memoria aparte con el esquema y los datos iniciales.
+     *
+     * No comparte nada con la principal (ni bloqueos, ni secuencias, ni conexiones del
+     * pool): H2 la elimina al cerrar la conexión devuelta. Se usa para calentar las
+     * herramientas de escritura sin tocar la base de datos real.
+     *
+     * @param name nombre de la base en memoria
+     * @return conexión (la única) a la base nueva
+     * @throws SQLException si no se puede crear o cargar
+     */
+    public static Connection openScratchDatabase(String name) throws SQLException {
+        loadDriver();
+        Connection conn = DriverManager.getConnection("jdbc:h2:mem:" + name + ";MODE=PostgreSQL", DB_USER, DB_PASSWORD);
+        try (Statement stmt = conn.createStatement()) {
+            executeScript(stmt, getSchemaSQL());
+            executeScript(stmt, getDataSQL());
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * Anota un cambio de esquema (DDL) para invalidar los metadatos cacheados.
+     */
+    public static void schemaChanged() {
+        schemaVersion.incrementAndGet();
+    }
+
+    /**
+     * @return versión de esquema; cambia cada vez que se llama a schemaChanged()
+     */
+    public static long getSchemaVersion() {
+        return schemaVersion.get();
+    }
+
     /**
      * Ejecuta un script SQL compuesto de múltiples statements
      */
@@ -128,9 +436,9 @@ public class DatabaseConfig {
                 updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
             );
 
-            CREATE INDEX idx_users_department ON users(department);
-            CREATE INDEX idx_users_role ON users(role);
-            CREATE INDEX idx_users_active ON users(active);
+            CREATE INDEX idx_users_department ON users(department, id);
+            CREATE INDEX idx_users_role ON users(role, id);
+            CREATE INDEX idx_users_active ON users(active, id);
             CREATE INDEX idx_users_email ON users(email);
 
             CREATE TABLE user_statistics (
@@ -0,0 +1,257 @@
+package com.dam.accesodatos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Réplica de solo lectura de la base de datos H2 principal.
+ *
+ * Cada refresco vuelca la principal con la sentencia SCRIPT de H2 y la carga en
+ * una base de datos en memoria nueva (una "generación"). Al terminar, las lecturas
+ * pasan a la generación nueva y la anterior se retira: como su URL no lleva
+ * DB_CLOSE_DELAY, H2 la elimina cuando se cierra su última conexión.
+ *
+ * Se refresca cada refreshIntervalMillis o en cuanto se acumulan refreshAfterWrites
+ * filas escritas en la principal (lo que ocurra antes).
+ */
+public class ReadReplica implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplica.class);
+
+    // Distingue las bases en memoria de réplicas sucesivas (p. ej. al reactivarla)
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final String replicaName = "ra2db_replica_" + INSTANCES.incrementAndGet();
+
+    private final String primaryUrl;
+    private final String user;
+    private final String password;
+    private final long refreshAfterWrites;
+    private final ConnectionPool.Settings poolSettings;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicBoolean refreshRequested = new AtomicBoolean(false);
+    private volatile Generation current;
+    private volatile boolean closed = false;
+
+    // Escrituras en la principal y cuántas incluye la generación actual
+    private final AtomicLong totalWrites = new AtomicLong();
+    private volatile long writesInSnapshot = 0;
+    private volatile long lastRefreshStartedAt = 0;
+    private volatile long lastRefreshMillis = 0;
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    public ReadReplica(String primaryUrl, String user, String password,
+                       long refreshIntervalMillis, long refreshAfterWrites,
+                       ConnectionPool.Settings poolSettings) {
+        this.primaryUrl = primaryUrl;
+        this.user = user;
+        this.password = password;
+        this.refreshAfterWrites = refreshAfterWrites;
+        this.poolSettings = poolSettings;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ra2-replica-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Conexión de lectura a la réplica.
+     *
+     * @return conexión a la generación actual, o null si aún no hay ninguna cargada
+     */
+    Connection getConnection() throws SQLException {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Generation generation = current;
+            if (generation == null) {
+                primaryReads.increment();
+                return null;
+            }
+            try {
+                Connection conn = generation.pool.getConnection();
+                replicaReads.increment();
+                return conn;
+            } catch (SQLException e) {
+                // La generación se retiró mientras tanto: reintentar con la nueva
+                if (generation == current) {
+                    throw e;
+                }
+            }
+        }
+        throw new SQLException("No se pudo obtener conexión a la réplica", "08001");
+    }
+
+    /**
+     * Lectura servida por la principal por petición explícita (requireFresh).
+     */
+    void recordPrimaryRead() {
+        primaryReads.increment();
+    }
+
+    /**
+     * Anota filas escritas en la principal y pide un refresco si se supera el umbral.
+     */
+    void recordWrites(long rows) {
+        long pending = totalWrites.addAndGet(rows) - writesInSnapshot;
+        if (refreshAfterWrites > 0 && pending >= refreshAfterWrites
+                && refreshRequested.compareAndSet(false, true) && !closed) {
+            scheduler.execute(this::refreshIfRequested);
+        }
+    }
+
+    /**
+     * Refresco pedido por recordWrites(); no hace nada si otro refresco ya lo atendió.
+     */
+    private void refreshIfRequested() {
+        if (refreshRequested.get()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Vuelca la principal en una generación nueva y la publica.
+     *
+     * La petición pendiente solo se retira al empezar un volcado (que ya incluye sus
+     * escrituras). Si se pide otro mientras hay uno en curso, la petición se queda
+     * y se atiende al terminar este.
+     */
+    void refresh() {
+        if (closed || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshRequested.set(false);
+
+        long start = System.currentTimeMillis();
+        long writesBefore = totalWrites.get();
+        int number = current != null ? current.number + 1 : 1;
+        String url = "jdbc:h2:mem:" + replicaName + "_" + number + ";MODE=PostgreSQL";
+        Connection anchor = null;
+
+        try {
+            // La conexión ancla mantiene viva la base en memoria mientras sea la actual
+            anchor = DriverManager.getConnection(url, user, password);
+
+            try (Connection primary = DriverManager.getConnection(primaryUrl, user, password);
+                 Statement script = primary.createStatement();
+                 ResultSet rs = script.executeQuery("SCRIPT");
+                 Statement load = anchor.createStatement()) {
+                while (rs.next()) {
+                    String sql = rs.getString(1);
+                    // SCRIPT intercala comentarios con el recuento de filas de cada tabla
+                    if (!sql.startsWith("--")) {
+                        load.execute(sql);
+                    }
+                }
+            }
+
+            Generation next = new Generation(number, anchor, new ConnectionPool(url, user, password, poolSettings));
+            Generation previous = current;
+            current = next;
+            writesInSnapshot = writesBefore;
+            lastRefreshStartedAt = start;
+            lastRefreshMillis = System.currentTimeMillis() - start;
+            refreshes.increment();
+
+            if (previous != null) {
+                previous.retire();
+            }
+            logger.debug("Réplica refrescada (generación {}) en {} ms", number, lastRefreshMillis);
+
+        } catch (SQLException e) {
+            refreshFailures.increment();
+            logger.warn("Error refrescando la réplica de lectura: {}", e.getMessage());
+            if (anchor != null) {
+                try {
+                    anchor.close();
+                } catch (SQLException ignored) {
+                    // La base en memoria se descarta igualmente
+                }
+            }
+        } finally {
+            refreshing.set(false);
+            if (refreshRequested.get() && !closed) {
+                scheduler.execute(this::refreshIfRequested);
+            }
+        }
+    }
+
+    /**
+     * Estado de la réplica, incluido el retraso respecto a la principal.
+     */
+    public Map<String, Object> getStats() {
+        Generation generation = current;
+        long pendingWrites = totalWrites.get() - writesInSnapshot;
+        long lagMillis = generation == null || pendingWrites == 0
+                ? 0 : System.currentTimeMillis() - lastRefreshStartedAt;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generation", generation != null ? generation.number : 0);
+        stats.put("ready", generation != null);
+        stats.put("lagMillis", lagMillis);
+        stats.put("pendingWrites", pendingWrites);
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("replicaReads", replicaReads.sum());
+        stats.put("primaryReads", primaryReads.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        Generation generation = current;
+        current = null;
+        if (generation != null) {
+            generation.retire();
+        }
+    }
+
+    /**
+     * Una copia cargada de la principal, con su pool de conexiones.
+     */
+    private static final class Generation {
+        final int number;
+        final Connection anchor;
+        final ConnectionPool pool;
+
+        Generation(int number, Connection anchor, ConnectionPool pool) {
+            this.number = number;
+            this.anchor = anchor;
+            this.pool = pool;
+        }
+
+        void retire() {
+            pool.close();
+            try {
+                anchor.close();
+            } catch (SQLException e) {
+                logger.debug("Error cerrando la réplica retirada: {}", e.getMessage());
+            }
+        }
+    }
+}
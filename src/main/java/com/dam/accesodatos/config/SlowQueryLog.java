@@ -0,0 +1,421 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.model.SlowQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de consultas lentas de las conexiones de DatabaseConfig.
+ *
+ * wrap() envuelve cada conexión en un proxy que envuelve a su vez sus Statement y
+ * PreparedStatement: se anotan los parámetros ligados con setXxx() y se cronometra
+ * cada execute*() y executeBatch(). Las sentencias que tardan thresholdMillis o más
+ * se guardan en un buffer circular con las últimas capacity.
+ *
+ * El plan de cada consulta lenta se captura en un hilo aparte, con una conexión
+ * sin envolver (no se cronometra ni se registra a sí misma):
+ * - SELECT: EXPLAIN ANALYZE con los mismos parámetros (H2 la vuelve a ejecutar y
+ *   da filas leídas por índice o recorrido completo)
+ * - Resto (y SELECT ... FOR UPDATE o con OLD/NEW/FINAL TABLE, que escriben):
+ *   EXPLAIN, que no ejecuta la sentencia
+ * El EXPLAIN se ejecuta con auto-commit desactivado y siempre se deshace.
+ * Para no repetir el trabajo, un mismo texto SQL reutiliza su plan durante
+ * planIntervalMillis. Si la cola de planes está llena, el plan se descarta.
+ */
+final class SlowQueryLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final int PLAN_QUEUE_SIZE = 16;
+    private static final int MAX_CACHED_PLANS = 1000;
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    private final long thresholdNanos;
+    private final long planIntervalNanos;
+    private final boolean explain;
+    private final Callable<Connection> planConnections;
+    private final ThreadPoolExecutor planner;
+
+    // Buffer circular: next es la posición de la siguiente entrada
+    private final SlowQuery[] ring;
+    private long next;
+
+    // Último plan capturado por texto SQL
+    private final Map<String, CachedPlan> plans = new ConcurrentHashMap<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder plansCaptured = new LongAdder();
+    private final LongAdder plansReused = new LongAdder();
+    private final LongAdder plansDropped = new LongAdder();
+    private final LongAdder plansFailed = new LongAdder();
+
+    /**
+     * @param thresholdMillis duración a partir de la cual una sentencia es lenta
+     * @param capacity consultas lentas que se conservan (las más recientes)
+     * @param explain false para no capturar planes
+     * @param planIntervalMillis tiempo durante el que se reutiliza el plan de un mismo SQL
+     * @param planConnections conexiones para EXPLAIN, que no deben pasar por wrap()
+     */
+    SlowQueryLog(long thresholdMillis, int capacity, boolean explain, long planIntervalMillis,
+                 Callable<Connection> planConnections) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.planIntervalNanos = TimeUnit.MILLISECONDS.toNanos(planIntervalMillis);
+        this.explain = explain;
+        this.planConnections = planConnections;
+        this.ring = new SlowQuery[Math.max(1, capacity)];
+        this.planner = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PLAN_QUEUE_SIZE),
+                r -> {
+                    Thread t = new Thread(r, "ra2-slow-query-plan");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (task, executor) -> {
+                    plansDropped.increment();
+                    ((PlanTask) task).query.setPlan(SlowQuery.PLAN_SKIPPED, "Cola de planes llena");
+                });
+    }
+
+    /**
+     * Envuelve una conexión para cronometrar sus sentencias. close() y el resto de
+     * métodos pasan a la conexión original.
+     */
+    Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+                SlowQueryLog.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new TracedConnection(conn));
+    }
+
+    /**
+     * Últimas consultas lentas, de la más reciente a la más antigua
+     *
+     * @param limit máximo de entradas (0 o negativo = todas las conservadas)
+     */
+    synchronized List<SlowQuery> recent(int limit) {
+        int available = (int) Math.min(next, ring.length);
+        int count = limit > 0 ? Math.min(limit, available) : available;
+        List<SlowQuery> result = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            result.add(ring[(int) ((next - i) % ring.length)]);
+        }
+        return result;
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("thresholdMillis", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        stats.put("capacity", ring.length);
+        stats.put("explain", explain);
+        stats.put("statements", statements.sum());
+        stats.put("slow", slow.sum());
+        stats.put("plansCaptured", plansCaptured.sum());
+        stats.put("plansReused", plansReused.sum());
+        stats.put("plansDropped", plansDropped.sum());
+        stats.put("plansFailed", plansFailed.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        planner.shutdownNow();
+    }
+
+    /**
+     * Anota una sentencia ejecutada; si es lenta, la guarda y pide su plan.
+     */
+    private void executed(String sql, Object[] parameters, int parameterCount, int batchSize, long nanos) {
+        statements.increment();
+        if (nanos < thresholdNanos || sql == null) {
+            return;
+        }
+        slow.increment();
+
+        Object[] bound = parameters != null ? Arrays.copyOf(parameters, parameterCount) : new Object[0];
+        SlowQuery query = new SlowQuery(sql, describe(bound), batchSize,
+                TimeUnit.NANOSECONDS.toMicros(nanos), LocalDateTime.now(), Thread.currentThread().getName());
+        synchronized (this) {
+            ring[(int) (next % ring.length)] = query;
+            next++;
+        }
+        logger.warn("Consulta lenta ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+
+        if (!explain) {
+            query.setPlan(SlowQuery.PLAN_SKIPPED, "Captura de planes desactivada");
+            return;
+        }
+        CachedPlan cached = plans.get(sql);
+        if (cached != null && System.nanoTime() - cached.capturedAt < planIntervalNanos) {
+            plansReused.increment();
+            query.setPlan(SlowQuery.PLAN_REUSED, cached.plan);
+            return;
+        }
+        planner.execute(new PlanTask(query, bound));
+    }
+
+    private void capturePlan(SlowQuery query, Object[] parameters) {
+        String sql = query.getSql();
+        String upper = sql.trim().toUpperCase(Locale.ROOT);
+        // Solo consultas puras: SELECT ... FROM OLD/NEW/FINAL TABLE (UPDATE ...) escribe
+        boolean analyze = (upper.startsWith("SELECT") || upper.startsWith("WITH")) && !upper.contains("FOR UPDATE")
+                && !upper.contains("OLD TABLE") && !upper.contains("NEW TABLE") && !upper.contains("FINAL TABLE");
+        if (analyze && !bindable(parameters)) {
+            // Los flujos ya se consumieron: solo se puede pedir el plan sin ejecutar
+            analyze = false;
+        }
+
+        try (Connection conn = planConnections.call()) {
+            String text;
+            // Además, todo EXPLAIN se ejecuta en una transacción que siempre se deshace
+            conn.setAutoCommit(false);
+            try {
+                text = explain(conn, (analyze ? "EXPLAIN ANALYZE " : "EXPLAIN ") + sql, parameters);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            query.setPlan(SlowQuery.PLAN_CAPTURED, text);
+            plansCaptured.increment();
+            if (plans.size() >= MAX_CACHED_PLANS) {
+                plans.clear();
+            }
+            plans.put(sql, new CachedPlan(text, System.nanoTime()));
+        } catch (Exception e) {
+            plansFailed.increment();
+            query.setPlan(SlowQuery.PLAN_FAILED, e.getMessage());
+            logger.debug("No se pudo obtener el plan de: {}", sql, e);
+        }
+    }
+
+    private static String explain(Connection conn, String sql, Object[] parameters) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                pstmt.setObject(i + 1, bindable(parameters[i]) ? parameters[i] : null);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static boolean bindable(Object[] parameters) {
+        for (Object parameter : parameters) {
+            if (!bindable(parameter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean bindable(Object parameter) {
+        return !(parameter instanceof InputStream || parameter instanceof Reader
+                || parameter instanceof Blob || parameter instanceof Clob);
+    }
+
+    private static List<String> describe(Object[] parameters) {
+        if (parameters.length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(parameters.length);
+        for (Object parameter : parameters) {
+            String value = parameter == null ? "NULL"
+                    : bindable(parameter) ? String.valueOf(parameter)
+                    : "<" + parameter.getClass().getSimpleName() + ">";
+            values.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "…" : value);
+        }
+        return values;
+    }
+
+    private record CachedPlan(String plan, long capturedAt) {
+    }
+
+    private final class PlanTask implements Runnable {
+        private final SlowQuery query;
+        private final Object[] parameters;
+
+        PlanTask(SlowQuery query, Object[] parameters) {
+            this.query = query;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void run() {
+            capturePlan(query, parameters);
+        }
+    }
+
+    /**
+     * Conexión envuelta: sus statements se devuelven también envueltos.
+     */
+    private final class TracedConnection implements InvocationHandler {
+        private final Connection conn;
+
+        TracedConnection(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return trace((Statement) result, (String) args[0], PreparedStatement.class);
+                case "createStatement":
+                    return trace((Statement) result, null, Statement.class);
+                default:
+                    return result;
+            }
+        }
+
+        private Object trace(Statement statement, String sql, Class<?> type) {
+            return Proxy.newProxyInstance(
+                    SlowQueryLog.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new TracedStatement(statement, sql));
+        }
+    }
+
+    /**
+     * Statement o PreparedStatement envuelto: anota parámetros y cronometra execute*().
+     */
+    private final class TracedStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private Object[] parameters;
+        private int parameterCount;
+        private int batchSize;
+        private String batchSql;
+
+        TracedStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "clearParameters":
+                    parameters = null;
+                    parameterCount = 0;
+                    break;
+                case "addBatch":
+                    batchSize++;
+                    if (args != null && args.length == 1) {
+                        batchSql = (String) args[0];
+                    }
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    batchSql = null;
+                    break;
+                default:
+                    // setXxx(índice, valor, ...) de PreparedStatement
+                    if (args != null && args.length >= 2 && args[0] instanceof Integer index
+                            && name.startsWith("set")) {
+                        parameter(index, "setNull".equals(name) ? null : args[1]);
+                    }
+                    break;
+            }
+
+            if (!name.startsWith("execute")) {
+                return invokeStatement(method, args);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return invokeStatement(method, args);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                boolean batch = name.endsWith("Batch");
+                String executed = args != null && args.length >= 1 && args[0] instanceof String text ? text
+                        : batch && sql == null ? batchSql
+                        : sql;
+                executed(executed, parameters, parameterCount, batch ? batchSize : 0, nanos);
+                if (batch) {
+                    batchSize = 0;
+                    batchSql = null;
+                }
+            }
+        }
+
+        private Object invokeStatement(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void parameter(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (parameters == null) {
+                parameters = new Object[Math.max(index, 8)];
+            } else if (parameters.length < index) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+    }
+}
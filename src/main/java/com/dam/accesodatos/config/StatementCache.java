@@ -0,0 +1,244 @@
+package com.dam.accesodatos.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de PreparedStatement de una conexión física del pool, indexada por texto SQL.
+ *
+ * Cada conexión del pool tiene su propia caché: una misma conexión nunca la usan
+ * dos hilos a la vez, por lo que no necesita sincronización.
+ *
+ * Cada préstamo de un statement recibe su propio proxy: close() limpia parámetros y
+ * batch y restaura fetchSize, maxRows y queryTimeout, pero deja vivo el statement de
+ * H2 (ya parseado y planificado) para la siguiente llamada. Un proxy ya cerrado
+ * falla con HY010 aunque el statement físico se esté usando en otro préstamo, y
+ * getConnection() devuelve la conexión del préstamo, nunca la física.
+ * Si se pide un SQL cuyo statement cacheado sigue en uso, se prepara uno sin cachear.
+ *
+ * Al devolver la conexión al pool, {@link #closeAll()} cierra los statements que el
+ * código cliente dejó abiertos, como exige JDBC al cerrar una conexión.
+ */
+final class StatementCache {
+
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    // Un mapa por modo de claves generadas para no tener que componer claves
+    private final LinkedHashMap<String, CachedStatement> plain = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, CachedStatement> withKeys = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Préstamos de statements aún abiertos en el préstamo actual de la conexión
+    private final List<Checkout> open = new ArrayList<>();
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Devuelve un PreparedStatement para el SQL, reutilizando el cacheado si está libre.
+     *
+     * @param lease conexión prestada (proxy del pool) que devuelve getConnection()
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS o Statement.NO_GENERATED_KEYS
+     */
+    PreparedStatement prepare(Connection physical, Connection lease, String sql, int autoGeneratedKeys) throws SQLException {
+        LinkedHashMap<String, CachedStatement> statements =
+                autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? withKeys : plain;
+
+        CachedStatement cached = statements.get(sql);
+        if (cached != null) {
+            if (cached.current != null) {
+                // Mismo SQL abierto dos veces en la misma conexión: no se comparte
+                misses.increment();
+                CachedStatement uncached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+                uncached.evicted = true;
+                return checkOut(uncached, lease);
+            }
+            hits.increment();
+            return checkOut(cached, lease);
+        }
+
+        misses.increment();
+        PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+        cached = new CachedStatement(statement);
+        statements.put(sql, cached);
+        evictIfNeeded(statements);
+        return checkOut(cached, lease);
+    }
+
+    /**
+     * Cierra los statements que siguen abiertos al devolver la conexión al pool. Los
+     * cacheados vuelven a la caché limpios; si alguno no se puede limpiar, se descarta.
+     */
+    void closeAll() {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            Checkout checkout = open.get(i);
+            try {
+                checkout.close();
+            } catch (SQLException e) {
+                discard(checkout.statement);
+            }
+        }
+        open.clear();
+    }
+
+    private PreparedStatement checkOut(CachedStatement statement, Connection lease) {
+        Checkout checkout = new Checkout(statement, lease);
+        statement.current = checkout;
+        open.add(checkout);
+        return checkout.proxy;
+    }
+
+    private void evictIfNeeded(LinkedHashMap<String, CachedStatement> statements) {
+        Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            if (eldest.current != null) {
+                // Se cerrará de verdad cuando el código cliente lo libere
+                eldest.evicted = true;
+            } else {
+                closeQuietly(eldest.physical);
+            }
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Saca de la caché un statement que no se pudo limpiar y lo cierra
+     */
+    private void discard(CachedStatement statement) {
+        statement.current = null;
+        plain.values().remove(statement);
+        withKeys.values().remove(statement);
+        closeQuietly(statement.physical);
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // La conexión física se cierra igualmente al destruirse
+        }
+    }
+
+    /**
+     * Statement físico cacheado y el préstamo que lo usa ahora (null = libre).
+     */
+    private static final class CachedStatement {
+        final PreparedStatement physical;
+        // Valores recién preparado: se restauran al devolverlo a la caché
+        final int defaultFetchSize;
+        final int defaultMaxRows;
+        final int defaultQueryTimeout;
+        Checkout current;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement physical) throws SQLException {
+            this.physical = physical;
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultMaxRows = physical.getMaxRows();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+        }
+
+        void reset() throws SQLException {
+            physical.clearParameters();
+            physical.clearBatch();
+            if (physical.getFetchSize() != defaultFetchSize) {
+                physical.setFetchSize(defaultFetchSize);
+            }
+            if (physical.getMaxRows() != defaultMaxRows) {
+                physical.setMaxRows(defaultMaxRows);
+            }
+            if (physical.getQueryTimeout() != defaultQueryTimeout) {
+                physical.setQueryTimeout(defaultQueryTimeout);
+            }
+        }
+    }
+
+    /**
+     * Un préstamo de un statement, con su propio proxy: tras close() ese proxy queda
+     * inutilizable aunque el statement físico se vuelva a prestar.
+     */
+    private final class Checkout implements InvocationHandler {
+        final CachedStatement statement;
+        final Connection lease;
+        final PreparedStatement proxy;
+        volatile boolean closed;
+
+        Checkout(CachedStatement statement, Connection lease) {
+            this.statement = statement;
+            this.lease = lease;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open.remove(this);
+            statement.current = null;
+            if (statement.evicted) {
+                statement.physical.close();
+            } else {
+                statement.reset();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    try {
+                        close();
+                    } catch (SQLException e) {
+                        discard(statement);
+                        throw e;
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.physical.isClosed();
+                case "getConnection":
+                    if (!closed) {
+                        return lease;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("El PreparedStatement ya está cerrado", "HY010");
+            }
+            try {
+                return method.invoke(statement.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
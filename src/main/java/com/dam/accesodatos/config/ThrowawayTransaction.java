@@ -0,0 +1,142 @@
+package com.dam.accesodatos.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Transacción desechable: todo lo que se ejecuta dentro de run() se deshace al terminar.
+ *
+ * Mientras dura run(), DatabaseConfig.getConnection() y getReadConnection() devuelven
+ * en el hilo actual la misma conexión, con auto-commit desactivado. Esa conexión
+ * ignora close(), commit(), rollback() y setAutoCommit() del código cliente, de modo
+ * que los métodos del servicio (incluido transferData) se ejecutan sin cambios y
+ * sin dejar rastro: al final se hace rollback de la transacción completa.
+ *
+ * Con run(Connection, Supplier) la transacción se abre sobre otra conexión, p. ej.
+ * una base de datos desechable ({@link DatabaseConfig#openScratchDatabase}): así la
+ * usa el calentamiento de arranque, que ejecuta las herramientas de escritura sin
+ * bloquear filas ni consumir identidades de la base de datos real.
+ */
+public final class ThrowawayTransaction {
+
+    private static final ThreadLocal<Connection> CURRENT = new ThreadLocal<>();
+
+    private ThrowawayTransaction() {
+    }
+
+    /**
+     * @return conexión de la transacción desechable del hilo actual, o null si no hay ninguna
+     */
+    static Connection current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return true si el hilo actual está dentro de run()
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Ejecuta la acción dentro de una transacción que siempre termina en rollback.
+     * Si ya hay una activa en el hilo, la acción se une a ella.
+     */
+    public static <T> T run(Supplier<T> action) {
+        if (CURRENT.get() != null) {
+            return action.get();
+        }
+
+        Connection conn;
+        try {
+            conn = DatabaseConfig.getConnection();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error abriendo la transacción desechable: " + e.getMessage(), e);
+        }
+        try {
+            return run(conn, action);
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // El pool descarta la conexión si no se pudo restaurar
+            }
+        }
+    }
+
+    /**
+     * Como run(Supplier), pero sobre la conexión indicada, que no se cierra al terminar.
+     * Si ya hay una transacción activa en el hilo, la acción se une a ella.
+     */
+    public static <T> T run(Connection conn, Supplier<T> action) {
+        if (CURRENT.get() != null) {
+            return action.get();
+        }
+
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error abriendo la transacción desechable: " + e.getMessage(), e);
+        }
+
+        CURRENT.set((Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PinnedHandler(conn)));
+        try {
+            return action.get();
+        } finally {
+            CURRENT.remove();
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new RuntimeException("Error deshaciendo la transacción desechable: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Conexión compartida dentro de run(): el control de la transacción es de run().
+     */
+    private static final class PinnedHandler implements InvocationHandler {
+        private final Connection conn;
+
+        PinnedHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
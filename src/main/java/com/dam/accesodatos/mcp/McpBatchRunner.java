@@ -0,0 +1,218 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.BatchConnection;
+import com.dam.accesodatos.config.CallOptions;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lotes de llamadas a herramientas (POST /mcp/batch y lotes JSON-RPC de tools/call).
+ *
+ * Las llamadas se ejecutan en orden, en el hilo actual, con un solo turno del
+ * semáforo JDBC y una sola conexión ({@link BatchConnection}):
+ * - Lote normal: cada herramienta confirma sus escrituras; si una falla, las
+ *   siguientes se ejecutan igualmente.
+ * - Lote atómico: todo el lote es una transacción. La primera herramienta que
+ *   falla deshace el lote: las anteriores se marcan como deshechas y las
+ *   siguientes no se ejecutan. import_users y export_users no se admiten: el DDL
+ *   de los índices diferidos confirmaría la transacción a medias y el fichero
+ *   exportado no se puede deshacer ({@link #checkAtomic}).
+ *
+ * Las llamadas consecutivas a find_user_by_id (con las mismas opciones) se agrupan
+ * en una sola consulta con {@link DatabaseUserService#findUsersByIds}; en las
+ * métricas cuentan como una llamada.
+ */
+@Component
+public class McpBatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpBatchRunner.class);
+
+    static final String FIND_USER_BY_ID = "find_user_by_id";
+
+    // Herramientas con efectos fuera de la transacción del lote
+    private static final Set<String> NON_ATOMIC_TOOLS = Set.of("import_users", "export_users");
+
+    @Autowired
+    private McpToolExecutor toolExecutor;
+
+    @Autowired
+    private DatabaseUserService databaseUserService;
+
+    /**
+     * Llamada del lote con los argumentos ya convertidos por {@link McpToolInvoker#bind}
+     */
+    public static final class Call {
+        private final McpToolRegistry.McpToolInfo tool;
+        private final Object[] args;
+        private final CallOptions options;
+
+        public Call(McpToolRegistry.McpToolInfo tool, Object[] args, CallOptions options) {
+            this.tool = tool;
+            this.args = args;
+            this.options = options;
+        }
+
+        public String getToolName() {
+            return tool.getName();
+        }
+
+        public CallOptions getOptions() {
+            return options;
+        }
+
+        /**
+         * Ejecuta la herramienta fuera de un lote (sin semáforo ni opciones activas)
+         */
+        public Object invoke() {
+            return tool.getInvoker().invoke(args);
+        }
+    }
+
+    /**
+     * Ejecuta el lote.
+     *
+     * @param calls  llamadas en orden de ejecución
+     * @param atomic true para ejecutar todo el lote en una transacción
+     * @return una respuesta por llamada, en el mismo orden
+     */
+    public List<McpToolResponse> run(List<Call> calls, boolean atomic) {
+        McpToolResponse[] responses = new McpToolResponse[calls.size()];
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+        if (atomic) {
+            calls.forEach(call -> checkAtomic(call.getToolName()));
+        }
+
+        try {
+            toolExecutor.batch(calls.size(), () -> BatchConnection.run(atomic, () -> {
+                int next = 0;
+                while (next < calls.size()) {
+                    int end = endOfUserLookups(calls, next);
+                    if (end - next > 1) {
+                        findUsers(calls, next, end, responses, atomic);
+                    } else {
+                        execute(calls.get(next), next, responses, atomic);
+                    }
+                    next = end;
+                }
+                return null;
+            }));
+        } catch (AbortedBatch e) {
+            String cause = "el lote atómico falló en la llamada " + (e.index + 1)
+                    + " (" + calls.get(e.index).getToolName() + ")";
+            for (int i = 0; i < responses.length; i++) {
+                if (i != e.index) {
+                    responses[i] = McpToolResponse.error(calls.get(i).getToolName(),
+                            (i < e.index ? "Deshecha: " : "No ejecutada: ") + cause);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Sin turno, sin conexión o fallo del commit: en un lote atómico no queda nada confirmado
+            logger.error("Error ejecutando el lote de {} llamadas", calls.size(), e);
+            for (int i = 0; i < responses.length; i++) {
+                if (atomic || responses[i] == null) {
+                    responses[i] = McpToolResponse.error(calls.get(i).getToolName(), "Error en el lote: " + e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Comprueba que la herramienta se puede ejecutar dentro de un lote atómico.
+     *
+     * @throws IllegalArgumentException si no se puede (import_users, export_users)
+     */
+    public static void checkAtomic(String toolName) {
+        if (NON_ATOMIC_TOOLS.contains(toolName)) {
+            throw new IllegalArgumentException(toolName + " no se puede ejecutar en un lote atómico");
+        }
+    }
+
+    private void execute(Call call, int index, McpToolResponse[] responses, boolean atomic) {
+        String name = call.getToolName();
+        try {
+            Object result = toolExecutor.callInBatch(name, call.options, call::invoke);
+            responses[index] = McpToolResponse.success(name, result);
+        } catch (RuntimeException e) {
+            logger.error("Error ejecutando {} (lote)", name, e);
+            responses[index] = McpToolResponse.error(name, "Error ejecutando " + name + ": " + e.getMessage());
+            if (atomic) {
+                throw new AbortedBatch(index);
+            }
+        }
+    }
+
+    /**
+     * find_user_by_id de calls[from, to) en una sola consulta
+     */
+    private void findUsers(List<Call> calls, int from, int to, McpToolResponse[] responses, boolean atomic) {
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add((Long) calls.get(i).args[0]);
+        }
+        try {
+            Map<Long, User> users = toolExecutor.callInBatch(FIND_USER_BY_ID, calls.get(from).options,
+                    () -> databaseUserService.findUsersByIds(ids));
+            for (int i = from; i < to; i++) {
+                responses[i] = McpToolResponse.success(FIND_USER_BY_ID, users.get(ids.get(i - from)));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error ejecutando {} (lote, {} IDs)", FIND_USER_BY_ID, ids.size(), e);
+            for (int i = from; i < to; i++) {
+                responses[i] = McpToolResponse.error(FIND_USER_BY_ID, "Error ejecutando " + FIND_USER_BY_ID + ": " + e.getMessage());
+            }
+            if (atomic) {
+                throw new AbortedBatch(from);
+            }
+        }
+    }
+
+    /**
+     * Fin (exclusivo) de la serie de find_user_by_id agrupables que empieza en from;
+     * from + 1 si la llamada no se puede agrupar
+     */
+    private static int endOfUserLookups(List<Call> calls, int from) {
+        Call first = calls.get(from);
+        if (!isUserLookup(first)) {
+            return from + 1;
+        }
+        int end = from + 1;
+        while (end < calls.size() && isUserLookup(calls.get(end))
+                && sameOptions(first.options, calls.get(end).options)) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isUserLookup(Call call) {
+        return FIND_USER_BY_ID.equals(call.getToolName()) && call.args.length == 1 && call.args[0] != null;
+    }
+
+    private static boolean sameOptions(CallOptions a, CallOptions b) {
+        return a.isRequireFresh() == b.isRequireFresh() && a.isNoCache() == b.isNoCache();
+    }
+
+    /**
+     * Fallo en un lote atómico: sale de BatchConnection.run() para deshacer la transacción
+     */
+    private static final class AbortedBatch extends RuntimeException {
+        private final int index;
+
+        AbortedBatch(int index) {
+            super(null, null, false, false);
+            this.index = index;
+        }
+    }
+}
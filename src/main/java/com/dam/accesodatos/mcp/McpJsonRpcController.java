@@ -0,0 +1,79 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Transporte MCP "Streamable HTTP" en /mcp: los clientes MCP se conectan
+ * directamente al servidor Java (por ejemplo "type": "http" en .mcp.json), sin
+ * pasar por mcp_adapter.py ni por los endpoints REST.
+ *
+ * - POST /mcp recibe un mensaje JSON-RPC o un lote (array). Las notificaciones se
+ *   contestan con 202 sin cuerpo. Si el cliente acepta text/event-stream, la respuesta va como un
+ *   evento SSE ("event: message"); si no, como application/json.
+ * - GET /mcp (canal SSE de mensajes iniciados por el servidor) responde 405: el
+ *   servidor no envía peticiones ni notificaciones propias.
+ *
+ * El protocolo lo implementa {@link McpJsonRpcHandler}.
+ */
+@RestController
+@RequestMapping("/mcp")
+@CrossOrigin(origins = "*")
+public class McpJsonRpcController {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpJsonRpcController.class);
+
+    @Autowired
+    private McpJsonRpcHandler handler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping
+    public ResponseEntity<String> post(@RequestBody String body,
+                                       @RequestHeader(value = "Accept", required = false) String accept) {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            return respond(handler.error(null, McpJsonRpcHandler.PARSE_ERROR,
+                    "JSON no válido: " + e.getOriginalMessage()), accept);
+        }
+
+        JsonNode response = handler.handle(message);
+        if (response == null) {
+            return ResponseEntity.accepted().build();
+        }
+        return respond(response, accept);
+    }
+
+    @GetMapping
+    public ResponseEntity<String> openEventStream() {
+        return ResponseEntity.status(405).header("Allow", "POST").build();
+    }
+
+    private ResponseEntity<String> respond(JsonNode response, String accept) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializando la respuesta JSON-RPC", e);
+            return ResponseEntity.status(500).build();
+        }
+        if (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body("event: message\ndata: " + json + "\n\n");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+}
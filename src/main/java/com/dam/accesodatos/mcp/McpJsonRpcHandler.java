@@ -0,0 +1,268 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Protocolo MCP (JSON-RPC 2.0) servido directamente desde la JVM, sin mcp_adapter.py.
+ *
+ * Atiende initialize, ping, tools/list y tools/call a partir de las herramientas
+ * @Tool de {@link McpToolRegistry}: tools/call usa el {@link McpToolInvoker} de la
+ * herramienta (argumentos leídos del árbol JSON, MethodHandle) y pasa por
+ * {@link McpToolExecutor} igual que los endpoints REST.
+ *
+ * No depende del transporte: recibe un mensaje ya parseado y devuelve la respuesta
+ * (o null si el mensaje era una notificación o una respuesta del cliente).
+ *
+ * Lotes JSON-RPC (array de mensajes): las peticiones tools/call del lote se
+ * ejecutan en orden con una sola conexión mediante {@link McpBatchRunner}, y en una
+ * sola transacción si alguna lleva "atomic": true en params.
+ */
+@Component
+public class McpJsonRpcHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpJsonRpcHandler.class);
+
+    // Versiones del protocolo MCP aceptadas; si el cliente pide otra se responde con la primera
+    static final List<String> PROTOCOL_VERSIONS = List.of("2025-03-26", "2024-11-05");
+
+    static final int PARSE_ERROR = -32700;
+    static final int INVALID_REQUEST = -32600;
+    static final int METHOD_NOT_FOUND = -32601;
+    static final int INVALID_PARAMS = -32602;
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private McpToolExecutor toolExecutor;
+
+    @Autowired
+    private McpBatchRunner batchRunner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Resultado de tools/list: las herramientas no cambian tras el registro
+    private ObjectNode toolsList;
+
+    @PostConstruct
+    public void buildToolsList() {
+        toolsList = objectMapper.createObjectNode();
+        ArrayNode tools = toolsList.putArray("tools");
+        for (McpToolRegistry.McpToolInfo tool : toolRegistry.getRegisteredTools()) {
+            ObjectNode entry = tools.addObject();
+            entry.put("name", tool.getName());
+            entry.put("description", tool.getDescription());
+            entry.set("inputSchema", objectMapper.valueToTree(tool.getInvoker().getInputSchema()));
+        }
+    }
+
+    /**
+     * Procesa un mensaje JSON-RPC o un lote.
+     *
+     * @param message petición, notificación, respuesta o array de ellas ya parseado
+     * @return respuesta JSON-RPC (array para un lote), o null si no hay que responder
+     */
+    public JsonNode handle(JsonNode message) {
+        if (message != null && message.isArray()) {
+            return handleBatch(message);
+        }
+        if (message == null || !message.isObject()) {
+            return error(null, INVALID_REQUEST, "Se esperaba un objeto JSON-RPC");
+        }
+        JsonNode id = message.get("id");
+        JsonNode method = message.get("method");
+        if (method == null || !method.isTextual()) {
+            // Respuesta del cliente a una petición del servidor (no se envían) o mensaje inválido
+            return message.has("result") || message.has("error") ? null
+                    : error(id, INVALID_REQUEST, "Falta el método");
+        }
+        if (id == null) {
+            // Notificaciones (notifications/initialized, notifications/cancelled...): sin respuesta
+            logger.debug("Notificación MCP: {}", method.asText());
+            return null;
+        }
+
+        JsonNode params = message.get("params");
+        switch (method.asText()) {
+            case "initialize":
+                return result(id, initialize(params));
+            case "ping":
+                return result(id, objectMapper.createObjectNode());
+            case "tools/list":
+                return result(id, toolsList);
+            case "tools/call":
+                return callTool(id, params);
+            default:
+                return error(id, METHOD_NOT_FOUND, "Método no soportado: " + method.asText());
+        }
+    }
+
+    private ObjectNode initialize(JsonNode params) {
+        String requested = params != null ? params.path("protocolVersion").asText(null) : null;
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("protocolVersion", PROTOCOL_VERSIONS.contains(requested) ? requested : PROTOCOL_VERSIONS.get(0));
+        result.putObject("capabilities").putObject("tools").put("listChanged", false);
+        ObjectNode serverInfo = result.putObject("serverInfo");
+        serverInfo.put("name", "mcp-server-ra2-jdbc");
+        serverInfo.put("version", "1.0.0");
+        return result;
+    }
+
+    /**
+     * tools/call: los errores de la herramienta se devuelven como resultado con
+     * isError = true (para que el modelo los vea); los de la petición, como error JSON-RPC.
+     */
+    private JsonNode callTool(JsonNode id, JsonNode params) {
+        McpBatchRunner.Call call;
+        try {
+            call = bindCall(params);
+        } catch (IllegalArgumentException e) {
+            return error(id, INVALID_PARAMS, e.getMessage());
+        }
+
+        String name = call.getToolName();
+        try {
+            Object value = toolExecutor.call(name, call.getOptions(), call::invoke);
+            return result(id, content(text(value), false));
+        } catch (RuntimeException e) {
+            logger.error("Error ejecutando {} (JSON-RPC)", name, e);
+            return result(id, content("Error ejecutando " + name + ": " + e.getMessage(), true));
+        }
+    }
+
+    /**
+     * Herramienta y argumentos de los params de tools/call
+     *
+     * @throws IllegalArgumentException si la herramienta no existe o algún argumento no es válido
+     */
+    private McpBatchRunner.Call bindCall(JsonNode params) {
+        String name = params != null ? params.path("name").asText(null) : null;
+        McpToolRegistry.McpToolInfo tool = name != null ? toolRegistry.getTool(name) : null;
+        if (tool == null) {
+            throw new IllegalArgumentException("Herramienta desconocida: " + name);
+        }
+        JsonNode arguments = params.get("arguments");
+        return new McpBatchRunner.Call(tool, tool.getInvoker().bind(arguments), McpToolInvoker.callOptions(arguments));
+    }
+
+    /**
+     * Lote JSON-RPC: los tools/call válidos van juntos a {@link McpBatchRunner} y el
+     * resto de mensajes se atiende uno a uno. En un lote atómico, si algún tools/call
+     * no es válido (o es de una herramienta que no admite, ver
+     * {@link McpBatchRunner#checkAtomic}) no se ejecuta ninguno.
+     */
+    private JsonNode handleBatch(JsonNode batch) {
+        if (batch.isEmpty()) {
+            return error(null, INVALID_REQUEST, "Lote JSON-RPC vacío");
+        }
+
+        ArrayNode responses = objectMapper.createArrayNode();
+        List<McpBatchRunner.Call> calls = new ArrayList<>();
+        List<JsonNode> callIds = new ArrayList<>();
+        boolean atomic = false;
+        for (JsonNode message : batch) {
+            atomic |= isToolCall(message) && message.path("params").path("atomic").asBoolean(false);
+        }
+        boolean invalid = false;
+        for (JsonNode message : batch) {
+            if (!isToolCall(message)) {
+                JsonNode response = handle(message);
+                if (response != null) {
+                    responses.add(response);
+                }
+                continue;
+            }
+            try {
+                McpBatchRunner.Call call = bindCall(message.get("params"));
+                if (atomic) {
+                    McpBatchRunner.checkAtomic(call.getToolName());
+                }
+                calls.add(call);
+                callIds.add(message.get("id"));
+            } catch (IllegalArgumentException e) {
+                responses.add(error(message.get("id"), INVALID_PARAMS, e.getMessage()));
+                invalid = true;
+            }
+        }
+
+        if (atomic && invalid) {
+            for (int i = 0; i < calls.size(); i++) {
+                responses.add(result(callIds.get(i), content("No ejecutada: el lote atómico tiene llamadas no válidas", true)));
+            }
+        } else {
+            List<McpToolResponse> results = batchRunner.run(calls, atomic);
+            for (int i = 0; i < results.size(); i++) {
+                McpToolResponse response = results.get(i);
+                boolean failed = McpToolResponse.STATUS_ERROR.equals(response.getStatus());
+                responses.add(result(callIds.get(i),
+                        content(failed ? response.getError() : text(response.getResult()), failed)));
+            }
+        }
+        return responses.isEmpty() ? null : responses;
+    }
+
+    /**
+     * Petición tools/call (con id: las notificaciones no se ejecutan)
+     */
+    private static boolean isToolCall(JsonNode message) {
+        return message.isObject() && message.has("id")
+                && "tools/call".equals(message.path("method").asText());
+    }
+
+    /**
+     * Texto del resultado: las cadenas tal cual y el resto en JSON (una sola serialización)
+     */
+    private String text(Object value) {
+        if (value instanceof String text) {
+            return text;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializando el resultado: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectNode content(String text, boolean isError) {
+        ObjectNode result = objectMapper.createObjectNode();
+        ObjectNode content = result.putArray("content").addObject();
+        content.put("type", "text");
+        content.put("text", text);
+        result.put("isError", isError);
+        return result;
+    }
+
+    private ObjectNode result(JsonNode id, JsonNode result) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.set("result", result);
+        return response;
+    }
+
+    /**
+     * Respuesta de error JSON-RPC (id null si no se pudo leer el de la petición)
+     */
+    ObjectNode error(JsonNode id, int code, String message) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id != null ? id : objectMapper.nullNode());
+        ObjectNode error = response.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        return response;
+    }
+}
@@ -0,0 +1,114 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.metrics.Metrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Cuenta los bytes de respuesta de cada herramienta (POST /mcp/{tool} y
+ * POST /mcp/call/{tool}) para /mcp/metrics. POST /mcp/batch no se cuenta.
+ *
+ * Las respuestas en streaming (NDJSON) se escriben después de que el filtro
+ * termine: esas las cuenta McpServerController al escribirlas.
+ */
+@Component
+public class McpMetricsFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "/mcp/";
+    private static final String CALL_PREFIX = "/mcp/call/";
+    // Lotes: cada herramienta anota su llamada, pero la respuesta es de todo el lote
+    private static final String BATCH_PATH = "/mcp/batch";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || toolName(request) == null
+                || BATCH_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CountingResponse counting = new CountingResponse(response);
+        try {
+            chain.doFilter(request, counting);
+        } finally {
+            // 404: ruta que no es una herramienta (no se crea su entrada)
+            if (!request.isAsyncStarted() && counting.getStatus() != HttpServletResponse.SC_NOT_FOUND) {
+                Metrics.tool(toolName(request)).responded(counting.bytes);
+            }
+        }
+    }
+
+    /**
+     * Herramienta de la ruta: /mcp/find_all_users/stream y /mcp/call/find_all_users → find_all_users
+     */
+    private static String toolName(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String prefix = path.startsWith(CALL_PREFIX) ? CALL_PREFIX : PREFIX;
+        if (!path.startsWith(prefix) || path.length() == prefix.length()) {
+            return null;
+        }
+        int end = path.indexOf('/', prefix.length());
+        return path.substring(prefix.length(), end < 0 ? path.length() : end);
+    }
+
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private long bytes;
+        private ServletOutputStream stream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        delegate.setWriteListener(listener);
+                    }
+                };
+            }
+            return stream;
+        }
+    }
+}
@@ -3,15 +3,42 @@ package com.dam.accesodatos.mcp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.dam.accesodatos.bulk.UserImporter;
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.SchemaMetadataCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.CallOptions;
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.metrics.Metrics;
 import com.dam.accesodatos.ra2.DatabaseUserService;
+import com.dam.accesodatos.ra2.GroupCommitQueue;
+import com.dam.accesodatos.model.BatchInsertResult;
+import com.dam.accesodatos.model.ExportResult;
+import com.dam.accesodatos.model.ImportResult;
+import com.dam.accesodatos.model.SlowQuery;
+import com.dam.accesodatos.model.TransferResult;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportFilter;
+import com.dam.accesodatos.model.UserPage;
+import com.dam.accesodatos.model.UserQueryDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Controlador REST que expone las herramientas MCP via HTTP para operaciones JDBC.
@@ -20,6 +47,9 @@ import java.util.Map;
  * - Listar herramientas JDBC disponibles
  * - Ejecutar operaciones JDBC específicas
  * - Obtener información sobre el servidor MCP
+ *
+ * Las herramientas de solo lectura aceptan el parámetro opcional "requireFresh":
+ * con true leen de la base de datos principal aunque la réplica de lectura esté activa.
  */
 @RestController
 @RequestMapping("/mcp")
@@ -34,15 +64,58 @@ public class McpServerController {
     @Autowired
     private McpToolRegistry toolRegistry;
 
+    @Autowired
+    private McpToolExecutor toolExecutor;
+
+    @Autowired
+    private McpBatchRunner batchRunner;
+
+    @Autowired
+    private McpWarmup warmup;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @Autowired
+    private SchemaMetadataCache schemaCache;
+
+    @Autowired
+    private UserImporter userImporter;
+
+    @Autowired
+    private GroupCommitQueue groupCommitQueue;
+
+    // Filas escritas entre flush() en las respuestas NDJSON
+    private static final int STREAM_FLUSH_ROWS = 100;
+
     /**
      * Endpoint de health check
+     *
+     * Responde 503 (WARMING_UP) hasta que termina el calentamiento de arranque, y
+     * UP_DEGRADED si un error lo interrumpió (el servicio atiende, pero en frío).
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> getHealth() {
         Map<String, String> health = new HashMap<>();
-        health.put("status", "UP");
+        if (!warmup.isComplete()) {
+            health.put("status", "WARMING_UP");
+        } else {
+            health.put("status", warmup.isFailed() ? "UP_DEGRADED" : "UP");
+        }
         health.put("service", "MCP Server RA2 JDBC");
 
+        if (!warmup.isComplete()) {
+            return ResponseEntity.status(503).body(health);
+        }
         return ResponseEntity.ok(health);
     }
 
@@ -73,6 +146,48 @@ public class McpServerController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Endpoint de estadísticas de ejecución (pool de conexiones, etc.)
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pool", DatabaseConfig.getPoolStats());
+        stats.put("poolEnabled", DatabaseConfig.isPoolEnabled());
+        stats.put("replica", DatabaseConfig.getReplicaStats());
+        stats.put("replicaEnabled", DatabaseConfig.isReplicaEnabled());
+        stats.put("slowQueries", DatabaseConfig.getSlowQueryStats());
+        stats.put("execution", toolExecutor.getStats());
+        stats.put("warmup", warmup.getStats());
+
+        Map<String, Object> caches = new HashMap<>();
+        caches.put("users", userCache.getStats());
+        caches.put("queries", queryResultCache.getStats());
+        caches.put("departments", departmentCounters.getStats());
+        caches.put("schema", schemaCache.getStats());
+        stats.put("cache", caches);
+        stats.put("import", userImporter.getStats());
+        stats.put("groupCommit", groupCommitQueue.getStats());
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Métricas por herramienta, por sentencia SQL, de conexiones y de errores por SQLState (JSON, tiempos en µs)
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(Metrics.snapshot());
+    }
+
+    /**
+     * Las mismas métricas en formato de texto de Prometheus
+     */
+    @GetMapping(value = "/metrics/prometheus", produces = "text/plain;version=0.0.4;charset=utf-8")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok(Metrics.prometheus());
+    }
+
     // ========== JDBC OPERATION ENDPOINTS ==========
 
     /**
@@ -83,7 +198,7 @@ public class McpServerController {
         logger.debug("Probando conexión JDBC");
 
         try {
-            String result = databaseUserService.testConnection();
+            String result = toolExecutor.call("test_connection", () -> databaseUserService.testConnection());
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "test_connection");
@@ -117,7 +232,7 @@ public class McpServerController {
             String role = request.get("role");
 
             UserCreateDto dto = new UserCreateDto(name, email, department, role);
-            User user = databaseUserService.createUser(dto);
+            User user = toolExecutor.call("create_user", () -> databaseUserService.createUser(dto));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "create_user");
@@ -146,7 +261,7 @@ public class McpServerController {
 
         try {
             Long userId = ((Number) request.get("userId")).longValue();
-            User user = databaseUserService.findUserById(userId);
+            User user = toolExecutor.call("find_user_by_id", readOptions(request), () -> databaseUserService.findUserById(userId));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_user_by_id");
@@ -181,7 +296,7 @@ public class McpServerController {
             String role = (String) request.get("role");
 
             com.dam.accesodatos.model.UserUpdateDto dto = new com.dam.accesodatos.model.UserUpdateDto(name, email, department, role, true);
-            User user = databaseUserService.updateUser(userId, dto);
+            User user = toolExecutor.call("update_user", () -> databaseUserService.updateUser(userId, dto));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "update_user");
@@ -210,7 +325,7 @@ public class McpServerController {
 
         try {
             Long userId = ((Number) request.get("userId")).longValue();
-            boolean result = databaseUserService.deleteUser(userId);
+            boolean result = toolExecutor.call("delete_user", () -> databaseUserService.deleteUser(userId));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "delete_user");
@@ -234,11 +349,11 @@ public class McpServerController {
      * Obtiene todos los usuarios
      */
     @PostMapping("/find_all_users")
-    public ResponseEntity<Map<String, Object>> findAllUsers() {
+    public ResponseEntity<Map<String, Object>> findAllUsers(@RequestBody(required = false) Map<String, Object> request) {
         logger.debug("Obteniendo todos los usuarios");
 
         try {
-            List<User> users = databaseUserService.findAll();
+            List<User> users = toolExecutor.call("find_all_users", readOptions(request), () -> databaseUserService.findAll());
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_all_users");
@@ -268,7 +383,7 @@ public class McpServerController {
 
         try {
             String department = request.get("department");
-            List<User> users = databaseUserService.findUsersByDepartment(department);
+            List<User> users = toolExecutor.call("find_users_by_department", readOptions(request), () -> databaseUserService.findUsersByDepartment(department));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_users_by_department");
@@ -291,6 +406,9 @@ public class McpServerController {
 
     /**
      * Busca usuarios con filtros dinámicos y paginación
+     *
+     * Devuelve "nextCursor": se pasa como "cursor" (con los mismos filtros y limit)
+     * para obtener la página siguiente; es null en la última página.
      */
     @PostMapping("/search_users")
     public ResponseEntity<Map<String, Object>> searchUsers(@RequestBody Map<String, Object> request) {
@@ -314,13 +432,17 @@ public class McpServerController {
             if (request.containsKey("offset")) {
                 query.setOffset(((Number) request.get("offset")).intValue());
             }
+            if (request.containsKey("cursor")) {
+                query.setCursor((String) request.get("cursor"));
+            }
 
-            List<User> users = databaseUserService.searchUsers(query);
+            UserPage page = toolExecutor.call("search_users", readOptions(request), () -> databaseUserService.searchUsersPage(query));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "search_users");
-            response.put("result", users);
-            response.put("count", users.size());
+            response.put("result", page.getUsers());
+            response.put("count", page.getUsers().size());
+            response.put("nextCursor", page.getNextCursor());
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -361,13 +483,28 @@ public class McpServerController {
                     })
                     .collect(java.util.stream.Collectors.toList());
 
-            boolean result = databaseUserService.transferData(users);
+            // "all_or_nothing" (por defecto) o "best_effort": confirma las filas válidas
+            boolean bestEffort = TransferResult.MODE_BEST_EFFORT.equals(request.get("mode"));
+            TransferResult result = toolExecutor.call("transfer_data",
+                    () -> databaseUserService.transferData(users, bestEffort));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "transfer_data");
-            response.put("result", result);
-            response.put("inserted_count", users.size());
-            response.put("status", "success");
+            response.put("result", result.isComplete());
+            response.put("inserted_count", result.getInserted());
+            response.put("mode", result.getMode());
+            response.put("chunkSize", result.getChunkSize());
+            response.put("chunks", result.getChunks());
+            response.put("failures", result.getFailures());
+            response.put("totalMicros", result.getTotalMicros());
+
+            if (result.isRolledBack()) {
+                response.put("error", "Error en transacción, se hizo rollback");
+                response.put("status", "error");
+                return ResponseEntity.status(500).body(response);
+            }
+            // best_effort: las filas válidas quedan confirmadas aunque otras fallen
+            response.put("status", result.isComplete() ? "success" : "partial");
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -407,11 +544,25 @@ public class McpServerController {
                     })
                     .collect(java.util.stream.Collectors.toList());
 
-            int insertedCount = databaseUserService.batchInsertUsers(users);
+            BatchInsertResult result = toolExecutor.call("batch_insert_users", () -> databaseUserService.batchInsert(users));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "batch_insert_users");
-            response.put("result", insertedCount);
+            response.put("result", result.getInserted());
+            response.put("generatedIds", result.getGeneratedIds());
+            response.put("transaction", result.getTransaction());
+            response.put("chunkSize", result.getChunkSize());
+            response.put("chunks", result.getChunks());
+            response.put("totalMicros", result.getTotalMicros());
+
+            if (!result.isComplete()) {
+                // Con transacción por bloque, los bloques anteriores al fallo quedan confirmados
+                response.put("error", "Error en batch insert (bloque " + result.getFailedChunk() + "): " + result.getError());
+                response.put("failedChunk", result.getFailedChunk());
+                response.put("skippedRows", result.getSkippedRows());
+                response.put("status", "error");
+                return ResponseEntity.status(500).body(response);
+            }
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -427,15 +578,118 @@ public class McpServerController {
         }
     }
 
+    /**
+     * Importa usuarios desde un fichero CSV o NDJSON local del servidor
+     */
+    @PostMapping("/import_users")
+    public ResponseEntity<Map<String, Object>> importUsers(@RequestBody Map<String, Object> request) {
+        logger.debug("Importando usuarios desde fichero");
+
+        try {
+            String path = (String) request.get("path");
+            String format = (String) request.get("format");
+            boolean deferIndexes = Boolean.TRUE.equals(request.get("deferIndexes"));
+            ImportResult result = toolExecutor.call("import_users",
+                    () -> databaseUserService.importUsers(path, format, deferIndexes));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "import_users");
+            response.put("result", result.getInserted());
+            response.put("path", result.getPath());
+            response.put("format", result.getFormat());
+            response.put("rowsRead", result.getRowsRead());
+            response.put("rejected", result.getRejected());
+            response.put("failures", result.getFailures());
+            response.put("chunks", result.getChunks());
+            response.put("deferredIndexes", result.getDeferredIndexes());
+            response.put("rowsPerSecond", result.getRowsPerSecond());
+            response.put("totalMicros", result.getTotalMicros());
+
+            if (!result.isComplete()) {
+                // Los bloques insertados antes del error quedan confirmados
+                response.put("error", "Error en la importación: " + result.getError());
+                response.put("status", "error");
+                return ResponseEntity.status(500).body(response);
+            }
+            response.put("status", result.getRejected() == 0 ? "success" : "partial");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error en la importación", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error en la importación: " + e.getMessage());
+            error.put("tool", "import_users");
+            error.put("status", "error");
+
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    /**
+     * Exporta users o user_statistics a un fichero CSV o NDJSON local del servidor
+     */
+    @PostMapping("/export_users")
+    public ResponseEntity<Map<String, Object>> exportUsers(@RequestBody Map<String, Object> request) {
+        logger.debug("Exportando usuarios a fichero");
+
+        try {
+            String path = (String) request.get("path");
+            String format = (String) request.get("format");
+            String table = (String) request.get("table");
+            @SuppressWarnings("unchecked")
+            List<String> columns = (List<String>) request.get("columns");
+
+            UserExportFilter filter = null;
+            @SuppressWarnings("unchecked")
+            Map<String, Object> filterData = (Map<String, Object>) request.get("filter");
+            if (filterData != null) {
+                filter = new UserExportFilter();
+                filter.setDepartment((String) filterData.get("department"));
+                filter.setRole((String) filterData.get("role"));
+                filter.setActive((Boolean) filterData.get("active"));
+                if (filterData.containsKey("limit")) {
+                    filter.setLimit(((Number) filterData.get("limit")).intValue());
+                }
+            }
+            UserExportFilter query = filter;
+            ExportResult result = toolExecutor.call("export_users", readOptions(request),
+                    () -> databaseUserService.exportUsers(path, format, table, columns, query));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "export_users");
+            response.put("result", result.getRows());
+            response.put("path", result.getPath());
+            response.put("format", result.getFormat());
+            response.put("table", result.getTable());
+            response.put("columns", result.getColumns());
+            response.put("bytes", result.getBytes());
+            response.put("rowsPerSecond", result.getRowsPerSecond());
+            response.put("totalMicros", result.getTotalMicros());
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error en la exportación", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error en la exportación: " + e.getMessage());
+            error.put("tool", "export_users");
+            error.put("status", "error");
+
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
     /**
      * Obtiene metadatos de la base de datos
      */
     @PostMapping("/get_database_info")
-    public ResponseEntity<Map<String, Object>> getDatabaseInfo() {
+    public ResponseEntity<Map<String, Object>> getDatabaseInfo(@RequestBody(required = false) Map<String, Object> request) {
         logger.debug("Obteniendo información de la base de datos");
 
         try {
-            String info = databaseUserService.getDatabaseInfo();
+            String info = toolExecutor.call("get_database_info", readOptions(request), () -> databaseUserService.getDatabaseInfo());
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "get_database_info");
@@ -464,7 +718,7 @@ public class McpServerController {
 
         try {
             String tableName = request.get("tableName");
-            List<Map<String, Object>> columns = databaseUserService.getTableColumns(tableName);
+            List<Map<String, Object>> columns = toolExecutor.call("get_table_columns", readOptions(request), () -> databaseUserService.getTableColumns(tableName));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "get_table_columns");
@@ -485,6 +739,34 @@ public class McpServerController {
         }
     }
 
+    /**
+     * Describe todas las tablas del esquema (columnas, clave primaria, índices, claves foráneas)
+     */
+    @PostMapping("/describe_schema")
+    public ResponseEntity<Map<String, Object>> describeSchema(@RequestBody(required = false) Map<String, Object> request) {
+        logger.debug("Describiendo el esquema");
+
+        try {
+            Map<String, Object> schema = toolExecutor.call("describe_schema", readOptions(request), () -> databaseUserService.describeSchema());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "describe_schema");
+            response.put("result", schema);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error describiendo el esquema", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error describiendo el esquema: " + e.getMessage());
+            error.put("tool", "describe_schema");
+            error.put("status", "error");
+
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
     /**
      * Cuenta usuarios activos por departamento
      */
@@ -494,7 +776,7 @@ public class McpServerController {
 
         try {
             String department = request.get("department");
-            int count = databaseUserService.executeCountByDepartment(department);
+            int count = toolExecutor.call("execute_count_by_department", readOptions(request), () -> databaseUserService.executeCountByDepartment(department));
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "execute_count_by_department");
@@ -515,4 +797,208 @@ public class McpServerController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Últimas consultas lentas con su plan. No usa JDBC: no espera turno en el executor
+     */
+    @PostMapping("/get_slow_queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries(@RequestBody(required = false) Map<String, Object> request) {
+        logger.debug("Obteniendo consultas lentas");
+
+        try {
+            Object limitValue = request != null ? request.get("limit") : null;
+            Integer limit = limitValue instanceof Number number ? number.intValue() : null;
+            List<SlowQuery> queries = databaseUserService.getSlowQueries(limit);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "get_slow_queries");
+            response.put("result", queries);
+            response.put("count", queries.size());
+            response.put("enabled", DatabaseConfig.isSlowQueryLogEnabled());
+            response.put("stats", DatabaseConfig.getSlowQueryStats());
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error obteniendo consultas lentas", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error obteniendo consultas lentas: " + e.getMessage());
+            error.put("tool", "get_slow_queries");
+            error.put("status", "error");
+
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+
+    // ========== GENERIC DISPATCHER ==========
+
+    /**
+     * Llamada genérica a cualquier herramienta registrada (POST /mcp/call/find_user_by_id
+     * con {"userId": 1}). Los argumentos JSON se convierten directamente a los parámetros
+     * del método con los lectores preparados en {@link McpToolInvoker}; también acepta
+     * "requireFresh" y "noCache".
+     *
+     * Responde {"tool", "status", "result"}; 404 si la herramienta no existe y 400 si
+     * algún argumento no tiene el tipo esperado.
+     */
+    @PostMapping("/call/{tool}")
+    public ResponseEntity<McpToolResponse> callTool(@PathVariable("tool") String tool,
+                                                    @RequestBody(required = false) JsonNode arguments) {
+        McpToolRegistry.McpToolInfo info = toolRegistry.getTool(tool);
+        if (info == null) {
+            return ResponseEntity.status(404).body(McpToolResponse.error(tool, "Herramienta desconocida: " + tool));
+        }
+
+        McpToolInvoker invoker = info.getInvoker();
+        Object[] args;
+        try {
+            args = invoker.bind(arguments);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(McpToolResponse.error(tool, e.getMessage()));
+        }
+
+        try {
+            Object result = toolExecutor.call(tool, McpToolInvoker.callOptions(arguments), () -> invoker.invoke(args));
+            return ResponseEntity.ok(McpToolResponse.success(tool, result));
+        } catch (Exception e) {
+            logger.error("Error ejecutando {}", tool, e);
+            return ResponseEntity.status(500).body(McpToolResponse.error(tool, "Error ejecutando " + tool + ": " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Lote de llamadas (POST /mcp/batch):
+     * {"atomic": true, "calls": [{"tool": "create_user", "arguments": {...}}, ...]}.
+     *
+     * Las llamadas se ejecutan en orden con una sola conexión y, con "atomic", en una
+     * sola transacción (ver {@link McpBatchRunner}). Responde un array con un
+     * {"tool", "status", "result"} por llamada; 400 sin ejecutar nada si alguna
+     * herramienta no existe, algún argumento no es válido o un lote atómico incluye
+     * una herramienta que no admite (import_users, export_users).
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<McpToolResponse>> batch(@RequestBody JsonNode request) {
+        boolean atomic = request.path("atomic").asBoolean(false);
+        JsonNode calls = request.path("calls");
+
+        List<McpBatchRunner.Call> batch = new ArrayList<>(calls.size());
+        List<McpToolResponse> invalid = new ArrayList<>(calls.size());
+        boolean valid = true;
+        for (JsonNode call : calls) {
+            String tool = call.path("tool").asText(null);
+            McpToolRegistry.McpToolInfo info = tool != null ? toolRegistry.getTool(tool) : null;
+            if (info == null) {
+                invalid.add(McpToolResponse.error(tool, "Herramienta desconocida: " + tool));
+                valid = false;
+                continue;
+            }
+            JsonNode arguments = call.get("arguments");
+            try {
+                if (atomic) {
+                    McpBatchRunner.checkAtomic(tool);
+                }
+                batch.add(new McpBatchRunner.Call(info, info.getInvoker().bind(arguments), McpToolInvoker.callOptions(arguments)));
+                invalid.add(McpToolResponse.error(tool, "No ejecutada: el lote tiene llamadas no válidas"));
+            } catch (IllegalArgumentException e) {
+                invalid.add(McpToolResponse.error(tool, e.getMessage()));
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+
+        logger.debug("Lote de {} llamadas (atomic = {})", batch.size(), atomic);
+        return ResponseEntity.ok(batchRunner.run(batch, atomic));
+    }
+
+    // ========== STREAMING ENDPOINTS (NDJSON) ==========
+
+    /**
+     * Todos los usuarios en streaming: un objeto JSON por línea (NDJSON).
+     * Los primeros usuarios se envían antes de terminar de leer la consulta.
+     */
+    @PostMapping(value = "/find_all_users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestBody(required = false) Map<String, Object> request) {
+        logger.debug("Obteniendo todos los usuarios en streaming");
+
+        return streamNdjson("find_all_users", readOptions(request), () -> databaseUserService.streamAll());
+    }
+
+    /**
+     * Búsqueda con filtros en streaming (NDJSON), mismos filtros que /search_users.
+     */
+    @PostMapping(value = "/search_users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchUsers(@RequestBody Map<String, Object> request) {
+        logger.debug("Buscando usuarios en streaming");
+
+        UserQueryDto query = new UserQueryDto();
+        if (request.containsKey("department")) {
+            query.setDepartment((String) request.get("department"));
+        }
+        if (request.containsKey("role")) {
+            query.setRole((String) request.get("role"));
+        }
+        if (request.containsKey("active")) {
+            query.setActive((Boolean) request.get("active"));
+        }
+        if (request.containsKey("cursor")) {
+            query.setCursor((String) request.get("cursor"));
+        }
+
+        return streamNdjson("search_users", readOptions(request), () -> databaseUserService.streamSearchUsers(query));
+    }
+
+    /**
+     * Escribe cada elemento del Stream como una línea JSON y hace flush cada
+     * STREAM_FLUSH_ROWS filas (y tras la primera), con respuesta HTTP chunked.
+     * El Stream se abre y se cierra en el hilo que escribe la respuesta.
+     */
+    private <T> ResponseEntity<StreamingResponseBody> streamNdjson(String toolName, CallOptions options,
+                                                                   Supplier<Stream<T>> action) {
+        StreamingResponseBody body = (OutputStream out) -> {
+            long bytes = 0;
+            try (Stream<T> rows = toolExecutor.stream(toolName, options, action)) {
+                int written = 0;
+                Iterator<T> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    byte[] json = objectMapper.writeValueAsBytes(iterator.next());
+                    out.write(json);
+                    out.write('\n');
+                    bytes += json.length + 1;
+                    if (++written == 1 || written % STREAM_FLUSH_ROWS == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (RuntimeException e) {
+                // Las cabeceras ya se enviaron: solo queda cortar la respuesta
+                logger.error("Error en streaming de {}", toolName, e);
+                throw new IOException("Error en streaming de " + toolName + ": " + e.getMessage(), e);
+            } finally {
+                // El filtro de métricas ya terminó: el tamaño de esta respuesta se anota aquí
+                Metrics.tool(toolName).responded(bytes);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Opciones de una herramienta de lectura: "requireFresh" (true/"true") fuerza
+     * la lectura desde la base de datos principal en lugar de la réplica y
+     * "noCache" salta las cachés de resultados.
+     */
+    private static CallOptions readOptions(Map<String, ?> request) {
+        return CallOptions.of(flag(request, "requireFresh"), flag(request, "noCache"));
+    }
+
+    private static boolean flag(Map<String, ?> request, String name) {
+        Object value = request != null ? request.get(name) : null;
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+}
@@ -0,0 +1,130 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transporte MCP stdio: el cliente MCP lanza el jar con --stdio y habla JSON-RPC
+ * por la entrada y la salida estándar del proceso, sin Tomcat ni mcp_adapter.py.
+ *
+ * Cada mensaje es una línea de JSON terminada en '\n'. El hilo lector solo separa
+ * las líneas (sobre un buffer de bytes que se reutiliza y crece si una línea no
+ * cabe) y las parsea; la petición se atiende en un hilo virtual, de modo que una
+ * herramienta lenta no retrasa la lectura de los mensajes siguientes (ping,
+ * notifications/cancelled...). Las respuestas se escriben de una en una, cada una
+ * en su línea, en el orden en que terminan.
+ *
+ * El protocolo lo implementa {@link McpJsonRpcHandler}, igual que en POST /mcp.
+ */
+@Component
+public class McpStdioServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpStdioServer.class);
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    @Autowired
+    private McpJsonRpcHandler handler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Atiende mensajes hasta el fin de la entrada (el cliente cierra stdin) y espera
+     * a que terminen las peticiones en curso.
+     *
+     * @param in  entrada de mensajes JSON-RPC (System.in)
+     * @param out salida de respuestas; solo se escriben respuestas JSON-RPC
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        logger.info("Servidor MCP stdio escuchando en la entrada estándar");
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+            // Bytes pendientes (línea aún incompleta): buffer[start, end)
+            int start = 0;
+            int end = 0;
+            int read;
+            while ((read = in.read(buffer, end, buffer.length - end)) != -1) {
+                int scan = end;
+                end += read;
+                for (int i = scan; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        dispatch(buffer, start, i, requests, out);
+                        start = i + 1;
+                    }
+                }
+
+                if (start == end) {
+                    start = 0;
+                    end = 0;
+                } else if (end == buffer.length) {
+                    // Buffer lleno con una línea incompleta: se mueve al principio o se dobla
+                    int pending = end - start;
+                    byte[] target = pending > buffer.length / 2 ? new byte[buffer.length * 2] : buffer;
+                    System.arraycopy(buffer, start, target, 0, pending);
+                    buffer = target;
+                    start = 0;
+                    end = pending;
+                }
+            }
+            // Última línea sin '\n' final
+            dispatch(buffer, start, end, requests, out);
+        }
+        logger.info("Entrada estándar cerrada: fin del servidor MCP stdio");
+    }
+
+    /**
+     * Parsea la línea buffer[from, to) en el hilo lector y la atiende en otro hilo
+     */
+    private void dispatch(byte[] buffer, int from, int to, ExecutorService requests, OutputStream out) {
+        // Se ignoran "\r" finales y líneas en blanco
+        while (to > from && Character.isWhitespace(buffer[to - 1])) {
+            to--;
+        }
+        if (to == from) {
+            return;
+        }
+
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(buffer, from, to - from);
+        } catch (IOException e) {
+            write(handler.error(null, McpJsonRpcHandler.PARSE_ERROR, "JSON no válido: " + e.getMessage()), out);
+            return;
+        }
+
+        requests.execute(() -> {
+            JsonNode response = handler.handle(message);
+            if (response != null) {
+                write(response, out);
+            }
+        });
+    }
+
+    private void write(JsonNode response, OutputStream out) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            synchronized (out) {
+                out.write(json);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializando la respuesta JSON-RPC", e);
+        } catch (IOException e) {
+            // El cliente ha cerrado la salida; el bucle de lectura terminará con la entrada
+            logger.warn("No se pudo escribir la respuesta MCP: {}", e.getMessage());
+        }
+    }
+}
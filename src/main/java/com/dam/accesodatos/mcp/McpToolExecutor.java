@@ -0,0 +1,224 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.CallOptions;
+import com.dam.accesodatos.metrics.Histogram;
+import com.dam.accesodatos.metrics.Metrics;
+import com.dam.accesodatos.metrics.ToolMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Ejecuta las herramientas MCP limitando cuántas tocan la base de datos a la vez.
+ *
+ * Con spring.threads.virtual.enabled=true Tomcat atiende cada petición en un hilo
+ * virtual, así que una llamada JDBC bloqueada ya no ocupa un hilo de plataforma.
+ * Al desaparecer ese límite natural, un semáforo justo (FIFO) acota las llamadas
+ * concurrentes a JDBC: el resto espera en cola en su hilo virtual.
+ *
+ * Para transportes sin Tomcat, submit() lanza la herramienta en un hilo virtual propio.
+ *
+ * Expone en /mcp/stats el tiempo de espera en cola y las llamadas en curso, y
+ * anota en {@link Metrics} la duración y los errores de cada herramienta.
+ */
+@Component
+public class McpToolExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpToolExecutor.class);
+
+    private final Semaphore jdbcGate;
+    private final int maxConcurrentJdbc;
+    private final long acquireTimeoutMillis;
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator maxInFlight = new LongAccumulator(Long::max, 0L);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Histogram queueWaitNanos = new Histogram();
+
+    public McpToolExecutor(@Value("${ra2.mcp.execution.max-concurrent-jdbc:10}") int maxConcurrentJdbc,
+                           @Value("${ra2.mcp.execution.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        this.maxConcurrentJdbc = maxConcurrentJdbc;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.jdbcGate = new Semaphore(maxConcurrentJdbc, true);
+    }
+
+    /**
+     * Ejecuta una herramienta en el hilo actual, esperando turno en el semáforo JDBC.
+     *
+     * @param toolName nombre de la herramienta (para logs)
+     * @param action llamada al servicio
+     * @return resultado de la herramienta
+     * @throws RuntimeException si se agota la espera o la herramienta falla
+     */
+    public <T> T call(String toolName, Supplier<T> action) {
+        ToolMetrics metrics = Metrics.tool(toolName);
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            acquire(toolName);
+            try {
+                T result = action.get();
+                completed.increment();
+                ok = true;
+                return result;
+            } catch (RuntimeException e) {
+                failed.increment();
+                Metrics.sqlError(e);
+                throw e;
+            } finally {
+                release();
+            }
+        } finally {
+            metrics.completed(start, !ok);
+        }
+    }
+
+    /**
+     * Igual que {@link #call(String, Supplier)}, con opciones de llamada activas
+     * (por ejemplo requireFresh) mientras se ejecuta la herramienta.
+     */
+    public <T> T call(String toolName, CallOptions options, Supplier<T> action) {
+        return call(toolName, () -> CallOptions.run(options, action));
+    }
+
+    /**
+     * Ejecuta un lote de herramientas con un solo turno del semáforo JDBC: el lote
+     * ocupa una conexión todo el tiempo, así que no vuelve a la cola entre llamadas.
+     * Cada herramienta del lote se ejecuta con {@link #callInBatch}.
+     *
+     * @param calls número de llamadas del lote (para logs)
+     */
+    public <T> T batch(int calls, Supplier<T> action) {
+        acquire("lote de " + calls + " llamadas");
+        try {
+            return action.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Una herramienta dentro de {@link #batch}: mismas métricas y contadores que
+     * {@link #call(String, CallOptions, Supplier)}, sin pedir otro turno.
+     */
+    public <T> T callInBatch(String toolName, CallOptions options, Supplier<T> action) {
+        ToolMetrics metrics = Metrics.tool(toolName);
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            T result = CallOptions.run(options, action);
+            completed.increment();
+            ok = true;
+            return result;
+        } catch (RuntimeException e) {
+            failed.increment();
+            Metrics.sqlError(e);
+            throw e;
+        } finally {
+            metrics.completed(start, !ok);
+        }
+    }
+
+    /**
+     * Abre un Stream de resultados ocupando un turno del semáforo JDBC hasta que
+     * el Stream se cierra (no solo hasta que el método retorna).
+     *
+     * @param action abre el Stream; se ejecuta con las opciones de llamada activas
+     * @return Stream que libera el turno en close()
+     */
+    public <T> Stream<T> stream(String toolName, CallOptions options, Supplier<Stream<T>> action) {
+        ToolMetrics metrics = Metrics.tool(toolName);
+        long start = System.nanoTime();
+        try {
+            acquire(toolName);
+        } catch (RuntimeException e) {
+            metrics.completed(start, true);
+            throw e;
+        }
+        Stream<T> stream;
+        try {
+            stream = CallOptions.run(options, action);
+        } catch (RuntimeException e) {
+            failed.increment();
+            Metrics.sqlError(e);
+            release();
+            metrics.completed(start, true);
+            throw e;
+        }
+        return stream.onClose(() -> {
+            completed.increment();
+            release();
+            metrics.completed(start, false);
+        });
+    }
+
+    private void acquire(String toolName) {
+        long start = System.nanoTime();
+        try {
+            if (!jdbcGate.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new RuntimeException("Demasiadas llamadas concurrentes: " + toolName
+                        + " no obtuvo turno en " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrumpido esperando turno para " + toolName, e);
+        }
+        queueWaitNanos.record(System.nanoTime() - start);
+        maxInFlight.accumulate(inFlight.incrementAndGet());
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        jdbcGate.release();
+    }
+
+    /**
+     * Ejecuta una herramienta en un hilo virtual nuevo.
+     *
+     * @return future que se completa con el resultado o la excepción de la herramienta
+     */
+    public <T> CompletableFuture<T> submit(String toolName, Supplier<T> action) {
+        return CompletableFuture.supplyAsync(() -> call(toolName, action), virtualThreads);
+    }
+
+    /**
+     * Estadísticas de ejecución: en curso, en cola y espera por el semáforo (µs).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrentJdbc", maxConcurrentJdbc);
+        stats.put("inFlight", inFlight.get());
+        stats.put("maxInFlight", maxInFlight.get());
+        stats.put("queued", jdbcGate.getQueueLength());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("queueWaitMicros", queueWaitNanos.snapshot(1000));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        virtualThreads.shutdown();
+        logger.debug("Ejecutor de herramientas MCP detenido");
+    }
+}
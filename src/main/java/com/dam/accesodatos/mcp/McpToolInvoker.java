@@ -0,0 +1,198 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.CallOptions;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.springframework.ai.mcp.server.annotation.ToolParam;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.time.temporal.Temporal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Llamada preparada a una herramienta MCP para /mcp/call/{tool}.
+ *
+ * Se construye una vez al registrar la herramienta:
+ * - MethodHandle enlazado al servicio y con firma (Object[]) → Object, de modo que
+ *   cada llamada es un invokeExact sin comprobaciones de Method.invoke()
+ * - Un ObjectReader de Jackson por parámetro, con su tipo genérico ya resuelto
+ *   (List&lt;User&gt;, UserQueryDto...), que lee el argumento directamente del árbol JSON
+ *
+ * Cada parámetro se lee del campo JSON con su nombre o, con
+ * {@link ToolParam#flatten()}, de los campos de primer nivel de los argumentos.
+ * Si falta, vale null (o el valor por defecto si es un tipo primitivo).
+ *
+ * También se calcula aquí el JSON Schema de los argumentos para tools/list del
+ * endpoint JSON-RPC, a partir de los tipos de los parámetros y de las propiedades
+ * que Jackson ve en los DTO.
+ */
+public final class McpToolInvoker {
+
+    private final String toolName;
+    private final MethodHandle handle;
+    private final Binding[] bindings;
+    private final Map<String, Object> inputSchema;
+
+    McpToolInvoker(String toolName, Method method, Object service, ObjectMapper objectMapper) {
+        this.toolName = toolName;
+        try {
+            this.handle = MethodHandles.publicLookup().unreflect(method)
+                    .bindTo(service)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("No se puede enlazar la herramienta " + toolName + ": " + e.getMessage(), e);
+        }
+
+        Parameter[] parameters = method.getParameters();
+        this.bindings = new Binding[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            bindings[i] = new Binding(parameters[i], objectMapper);
+        }
+        this.inputSchema = buildInputSchema(objectMapper);
+    }
+
+    /**
+     * Convierte los argumentos JSON en los parámetros del método.
+     *
+     * @param arguments objeto JSON de la llamada (null = sin argumentos)
+     * @throws IllegalArgumentException si algún argumento no tiene el tipo esperado
+     */
+    public Object[] bind(JsonNode arguments) {
+        Object[] args = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            args[i] = bindings[i].read(arguments);
+        }
+        return args;
+    }
+
+    /**
+     * Ejecuta la herramienta con parámetros ya convertidos por {@link #bind(JsonNode)}.
+     *
+     * @throws RuntimeException la excepción de la herramienta, o envolviendo una comprobada
+     */
+    public Object invoke(Object[] args) {
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Error ejecutando " + toolName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return JSON Schema (type object) de los argumentos de la herramienta
+     */
+    public Map<String, Object> getInputSchema() {
+        return inputSchema;
+    }
+
+    /**
+     * Opciones de llamada de los argumentos: "requireFresh" lee de la base de datos
+     * principal aunque haya réplica y "noCache" salta las cachés de resultados.
+     */
+    public static CallOptions callOptions(JsonNode arguments) {
+        return CallOptions.of(flag(arguments, "requireFresh"), flag(arguments, "noCache"));
+    }
+
+    private static boolean flag(JsonNode arguments, String name) {
+        JsonNode value = arguments != null ? arguments.get(name) : null;
+        return value != null && Boolean.parseBoolean(value.asText());
+    }
+
+    private Map<String, Object> buildInputSchema(ObjectMapper objectMapper) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Binding binding : bindings) {
+            if (binding.flatten) {
+                properties.putAll(beanProperties(objectMapper, binding.type, 0));
+            } else {
+                properties.put(binding.name, schema(objectMapper, binding.type, 0));
+            }
+        }
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        return Collections.unmodifiableMap(schema);
+    }
+
+    private static Map<String, Object> schema(ObjectMapper objectMapper, JavaType type, int depth) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        Class<?> raw = type.getRawClass();
+        if (CharSequence.class.isAssignableFrom(raw) || raw.isEnum() || Temporal.class.isAssignableFrom(raw)) {
+            schema.put("type", "string");
+        } else if (raw == boolean.class || raw == Boolean.class) {
+            schema.put("type", "boolean");
+        } else if (raw == long.class || raw == int.class || raw == short.class
+                || raw == Long.class || raw == Integer.class || raw == Short.class) {
+            schema.put("type", "integer");
+        } else if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+            schema.put("type", "number");
+        } else if (type.isCollectionLikeType() || type.isArrayType()) {
+            schema.put("type", "array");
+            schema.put("items", schema(objectMapper, type.getContentType(), depth));
+        } else {
+            schema.put("type", "object");
+            // Un nivel de DTO anidado (filter, users[]); más allá, objeto libre
+            if (depth < 1 && !type.isMapLikeType()) {
+                schema.put("properties", beanProperties(objectMapper, type, depth + 1));
+            }
+        }
+        return schema;
+    }
+
+    private static Map<String, Object> beanProperties(ObjectMapper objectMapper, JavaType type, int depth) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (BeanPropertyDefinition property : objectMapper.getDeserializationConfig().introspect(type).findProperties()) {
+            if (property.hasSetter() || property.hasField() || property.hasConstructorParameter()) {
+                properties.put(property.getName(), schema(objectMapper, property.getPrimaryType(), depth));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Lectura de un parámetro desde el JSON
+     */
+    private final class Binding {
+        private final String name;
+        private final boolean flatten;
+        private final JavaType type;
+        private final ObjectReader reader;
+        private final Object missing;
+
+        Binding(Parameter parameter, ObjectMapper objectMapper) {
+            ToolParam annotation = parameter.getAnnotation(ToolParam.class);
+            this.name = annotation != null && !annotation.name().isEmpty() ? annotation.name() : parameter.getName();
+            this.flatten = annotation != null && annotation.flatten();
+            this.type = objectMapper.constructType(parameter.getParameterizedType());
+            this.reader = objectMapper.readerFor(type);
+            Class<?> raw = parameter.getType();
+            this.missing = raw.isPrimitive() ? Array.get(Array.newInstance(raw, 1), 0) : null;
+        }
+
+        Object read(JsonNode arguments) {
+            JsonNode node = arguments == null || flatten ? arguments : arguments.get(name);
+            if (node == null || node.isNull() || node.isMissingNode()) {
+                return missing;
+            }
+            try {
+                return reader.readValue(node);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Argumento '" + name + "' no válido para "
+                        + toolName + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
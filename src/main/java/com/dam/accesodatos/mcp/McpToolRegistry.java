@@ -1,23 +1,32 @@
 package com.dam.accesodatos.mcp;
 
 import com.dam.accesodatos.ra2.DatabaseUserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.server.annotation.Tool;
+import org.springframework.ai.mcp.server.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Registro de herramientas MCP disponibles para LLMs.
  * 
  * Esta clase escanea automáticamente todos los métodos anotados con @Tool
  * y los registra como herramientas disponibles para el protocolo MCP.
+ *
+ * Para cada herramienta prepara además un {@link McpToolInvoker} (MethodHandle y
+ * lectores JSON de sus parámetros) que usa /mcp/call/{tool}; getTool() la busca
+ * por nombre en un mapa que no cambia tras el registro.
  */
 @Component
 public class McpToolRegistry {
@@ -29,8 +38,12 @@ public class McpToolRegistry {
     
     @Autowired
     private DatabaseUserService databaseUserService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     private final List<McpToolInfo> registeredTools = new ArrayList<>();
+    private final Map<String, McpToolInfo> toolsByName = new HashMap<>();
     
     @PostConstruct
     public void registerTools() {
@@ -56,8 +69,16 @@ public class McpToolRegistry {
                 String toolName = toolAnnotation.name().isEmpty() ? method.getName() : toolAnnotation.name();
                 String description = toolAnnotation.description();
                 
-                McpToolInfo toolInfo = new McpToolInfo(toolName, description, method, service);
+                for (Parameter parameter : method.getParameters()) {
+                    if (!parameter.isNamePresent() && !parameter.isAnnotationPresent(ToolParam.class)) {
+                        logger.warn("Herramienta {}: sin nombres de parámetros (compilar con -parameters); "
+                                + "/mcp/call/{} leerá '{}'", toolName, toolName, parameter.getName());
+                    }
+                }
+                McpToolInvoker invoker = new McpToolInvoker(toolName, method, service, objectMapper);
+                McpToolInfo toolInfo = new McpToolInfo(toolName, description, method, service, invoker);
                 registeredTools.add(toolInfo);
+                toolsByName.put(toolName, toolInfo);
                 
                 logger.debug("Registrada herramienta MCP: {} - {}", toolName, description);
             }
@@ -67,6 +88,13 @@ public class McpToolRegistry {
     public List<McpToolInfo> getRegisteredTools() {
         return new ArrayList<>(registeredTools);
     }
+
+    /**
+     * @return la herramienta con ese nombre, o null si no existe
+     */
+    public McpToolInfo getTool(String name) {
+        return toolsByName.get(name);
+    }
     
     /**
      * Información sobre una herramienta MCP registrada
@@ -76,12 +104,14 @@ public class McpToolRegistry {
         private final String description;
         private final Method method;
         private final Object service;
+        private final McpToolInvoker invoker;
         
-        public McpToolInfo(String name, String description, Method method, Object service) {
+        public McpToolInfo(String name, String description, Method method, Object service, McpToolInvoker invoker) {
             this.name = name;
             this.description = description;
             this.method = method;
             this.service = service;
+            this.invoker = invoker;
         }
         
         public String getName() {
@@ -99,5 +129,9 @@ public class McpToolRegistry {
         public Object getService() {
             return service;
         }
+
+        public McpToolInvoker getInvoker() {
+            return invoker;
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Respuesta de /mcp/call/{tool}: {"tool", "status", "result"} o {"tool", "status", "error"}.
+ *
+ * Sustituye a los dos HashMap (respuesta y error) que construye cada endpoint
+ * escrito a mano: Jackson serializa directamente estos campos.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class McpToolResponse {
+
+    public static final String STATUS_SUCCESS = "success";
+    public static final String STATUS_ERROR = "error";
+
+    private final String tool;
+    private final String status;
+    private final Object result;
+    private final String error;
+
+    private McpToolResponse(String tool, String status, Object result, String error) {
+        this.tool = tool;
+        this.status = status;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static McpToolResponse success(String tool, Object result) {
+        return new McpToolResponse(tool, STATUS_SUCCESS, result, null);
+    }
+
+    public static McpToolResponse error(String tool, String error) {
+        return new McpToolResponse(tool, STATUS_ERROR, null, error);
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,300 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.config.ThrowawayTransaction;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import com.dam.accesodatos.ra2.DatabaseUserServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Calentamiento de arranque de las herramientas MCP.
+ *
+ * Tras arrancar, las primeras llamadas a cada herramienta son mucho más lentas:
+ * carga de clases, planificación de consultas en H2, creación de serializadores
+ * de Jackson y JIT en frío. Este componente ejecuta una carga sintética contra cada
+ * herramienta registrada en {@link McpToolRegistry} (y serializa su resultado)
+ * antes de que /mcp/health responda UP.
+ *
+ * Se hace en dos partes:
+ * - Base principal: se abren las conexiones del pool hasta min-idle y en cada una se
+ *   preparan las sentencias de solo lectura de texto fijo
+ *   ({@link DatabaseUserServiceImpl#READ_STATEMENTS}), que quedan en su caché de
+ *   PreparedStatement con el plan de H2 ya hecho. Solo se preparan, no se ejecutan.
+ * - Herramientas: la carga sintética nunca toca la base de datos real. Se ejecuta
+ *   sobre una base en memoria aparte con el mismo esquema
+ *   ({@link DatabaseConfig#openScratchDatabase}), y cada iteración en una
+ *   {@link ThrowawayTransaction} que se deshace al terminar. Así las herramientas de
+ *   escritura se ejecutan de verdad sin bloquear filas ni consumir identidades de
+ *   users, y sin pasar por las cachés ni los contadores (que ignoran las
+ *   transacciones desechables).
+ *
+ * Contrapartida: la carga de herramientas calienta el código (clases, JIT, Jackson,
+ * el MethodHandle de cada herramienta) pero no los planes de la base principal de
+ * las sentencias que no están en READ_STATEMENTS, como las de escritura o las
+ * búsquedas con otras combinaciones de filtros; esas se preparan en la primera
+ * llamada real de cada conexión.
+ *
+ * Si una excepción interrumpe el calentamiento, /mcp/health responde UP_DEGRADED y
+ * las estadísticas lo indican con failed y failure.
+ *
+ * Configuración en ra2.mcp.warmup (enabled, iterations, max-duration-ms).
+ */
+@Component
+public class McpWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpWarmup.class);
+
+    private static final String SCRATCH_DATABASE = "ra2db_warmup";
+
+    // Usuario de los datos iniciales sobre el que se ejecutan find/update
+    private static final long SAMPLE_USER_ID = 1L;
+    private static final String SAMPLE_DEPARTMENT = "IT";
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private DatabaseUserService databaseUserService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ra2.mcp.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ra2.mcp.warmup.iterations:50}")
+    private int iterations;
+
+    @Value("${ra2.mcp.warmup.max-duration-ms:30000}")
+    private long maxDurationMillis;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Function<Long, Object[]>> sampleArguments = buildSampleArguments();
+    private volatile Map<String, ToolTimings> timings = Map.of();
+
+    private volatile boolean complete = false;
+    private volatile boolean failed = false;
+    private volatile String failure;
+    private volatile int pooledConnections = 0;
+    private volatile int completedIterations = 0;
+    private volatile long durationMillis = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || iterations <= 0) {
+            complete = true;
+            logger.info("Calentamiento de arranque desactivado");
+            return;
+        }
+        Thread.ofVirtual().name("ra2-warmup").start(this::run);
+    }
+
+    /**
+     * Ejecuta todas las iteraciones (o hasta agotar max-duration-ms) y marca el fin.
+     */
+    void run() {
+        long start = System.currentTimeMillis();
+        List<McpToolRegistry.McpToolInfo> tools = toolRegistry.getRegisteredTools();
+        Map<String, ToolTimings> toolTimings = new LinkedHashMap<>();
+        for (McpToolRegistry.McpToolInfo tool : tools) {
+            toolTimings.put(tool.getName(), new ToolTimings(sampleArguments.containsKey(tool.getName())));
+        }
+        timings = toolTimings;
+        logger.info("Calentando {} herramientas MCP ({} iteraciones)...", tools.size(), iterations);
+
+        try {
+            pooledConnections = DatabaseConfig.prewarmPool(DatabaseUserServiceImpl.READ_STATEMENTS);
+            runTools(tools, start);
+        } catch (SQLException | RuntimeException e) {
+            failed = true;
+            failure = e.getMessage();
+            logger.warn("Calentamiento interrumpido por un error: {}", e.getMessage(), e);
+        } finally {
+            durationMillis = System.currentTimeMillis() - start;
+            complete = true;
+        }
+        if (!failed) {
+            logger.info("Calentamiento completado en {} ms ({} iteraciones, {} conexiones del pool)",
+                    durationMillis, completedIterations, pooledConnections);
+        }
+    }
+
+    /**
+     * Iteraciones de la carga sintética sobre la base desechable
+     */
+    private void runTools(List<McpToolRegistry.McpToolInfo> tools, long start) throws SQLException {
+        // La base desechable desaparece al cerrar su conexión
+        try (Connection scratch = DatabaseConfig.openScratchDatabase(SCRATCH_DATABASE)) {
+            for (int i = 0; i < iterations; i++) {
+                if (System.currentTimeMillis() - start > maxDurationMillis) {
+                    logger.info("Calentamiento interrumpido tras {} ms", maxDurationMillis);
+                    break;
+                }
+                ThrowawayTransaction.run(scratch, () -> {
+                    for (McpToolRegistry.McpToolInfo tool : tools) {
+                        invoke(tool);
+                    }
+                    return null;
+                });
+                completedIterations = i + 1;
+            }
+        }
+    }
+
+    private void invoke(McpToolRegistry.McpToolInfo tool) {
+        Function<Long, Object[]> arguments = sampleArguments.get(tool.getName());
+        ToolTimings toolTimings = timings.get(tool.getName());
+        if (arguments == null) {
+            return;
+        }
+
+        try {
+            Object[] args = arguments.apply(sequence.incrementAndGet());
+            long start = System.nanoTime();
+            // Mismo camino que /mcp/call y tools/call: el MethodHandle del invoker
+            Object result = tool.getInvoker().invoke(args);
+            objectMapper.writeValueAsBytes(result);
+            toolTimings.record(System.nanoTime() - start);
+        } catch (Exception e) {
+            toolTimings.recordError(e);
+        }
+    }
+
+    /**
+     * Argumentos de ejemplo de cada herramienta; seq hace únicos los emails insertados.
+     * Las herramientas sin entrada aquí se marcan como no calentadas.
+     */
+    private Map<String, Function<Long, Object[]>> buildSampleArguments() {
+        Map<String, Function<Long, Object[]>> args = new LinkedHashMap<>();
+        args.put("test_connection", seq -> new Object[0]);
+        args.put("create_user", seq -> new Object[]{
+                new UserCreateDto("Warm-up " + seq, sampleEmail(seq), SAMPLE_DEPARTMENT, "Developer")});
+        args.put("find_user_by_id", seq -> new Object[]{SAMPLE_USER_ID});
+        args.put("update_user", seq -> new Object[]{
+                SAMPLE_USER_ID, new UserUpdateDto("Warm-up " + seq, null, null, null, null)});
+        args.put("delete_user", seq -> new Object[]{
+                databaseUserService.createUser(new UserCreateDto("Warm-up", sampleEmail(seq), SAMPLE_DEPARTMENT, "Developer")).getId()});
+        args.put("find_all_users", seq -> new Object[0]);
+        args.put("find_users_by_department", seq -> new Object[]{SAMPLE_DEPARTMENT});
+        args.put("search_users", seq -> new Object[]{new UserQueryDto(SAMPLE_DEPARTMENT, null, true, 10, 0)});
+        args.put("transfer_data", seq -> new Object[]{sampleUsers(seq)});
+        args.put("batch_insert_users", seq -> new Object[]{sampleUsers(seq)});
+        args.put("get_database_info", seq -> new Object[0]);
+        args.put("get_table_columns", seq -> new Object[]{"users"});
+        args.put("describe_schema", seq -> new Object[0]);
+        args.put("execute_count_by_department", seq -> new Object[]{SAMPLE_DEPARTMENT});
+        args.put("get_slow_queries", seq -> new Object[]{10});
+        return args;
+    }
+
+    private static String sampleEmail(long seq) {
+        return "warmup-" + seq + "@warmup.local";
+    }
+
+    private static List<User> sampleUsers(long seq) {
+        User first = new User("Warm-up A", "warmup-" + seq + "-a@warmup.local", SAMPLE_DEPARTMENT, "Developer");
+        User second = new User("Warm-up B", "warmup-" + seq + "-b@warmup.local", SAMPLE_DEPARTMENT, "Developer");
+        first.setActive(true);
+        second.setActive(true);
+        return List.of(first, second);
+    }
+
+    /**
+     * @return true cuando el calentamiento ha terminado (o está desactivado)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true si una excepción interrumpió el calentamiento antes de terminar
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Progreso y tiempos por herramienta: primera llamada, última y media (µs).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("complete", complete);
+        stats.put("failed", failed);
+        if (failure != null) {
+            stats.put("failure", failure);
+        }
+        stats.put("pooledConnections", pooledConnections);
+        stats.put("iterations", completedIterations);
+        stats.put("durationMillis", durationMillis);
+
+        Map<String, Object> tools = new LinkedHashMap<>();
+        timings.forEach((name, toolTimings) -> tools.put(name, toolTimings.snapshot()));
+        stats.put("tools", tools);
+        return stats;
+    }
+
+    /**
+     * Tiempos de calentamiento de una herramienta. Solo la escribe el hilo de calentamiento.
+     */
+    private static final class ToolTimings {
+        private final boolean warmed;
+        private volatile long calls;
+        private volatile long errors;
+        private volatile long firstNanos;
+        private volatile long lastNanos;
+        private volatile long totalNanos;
+        private volatile String lastError;
+
+        ToolTimings(boolean warmed) {
+            this.warmed = warmed;
+        }
+
+        void record(long nanos) {
+            if (calls == 0) {
+                firstNanos = nanos;
+            }
+            lastNanos = nanos;
+            totalNanos += nanos;
+            calls++;
+        }
+
+        void recordError(Throwable error) {
+            errors++;
+            lastError = error.getMessage();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("warmed", warmed);
+            snapshot.put("calls", calls);
+            snapshot.put("errors", errors);
+            snapshot.put("firstCallMicros", firstNanos / 1000);
+            snapshot.put("lastCallMicros", lastNanos / 1000);
+            snapshot.put("meanMicros", calls == 0 ? 0 : totalNanos / calls / 1000);
+            if (lastError != null) {
+                snapshot.put("lastError", lastError);
+            }
+            return snapshot;
+        }
+    }
+}
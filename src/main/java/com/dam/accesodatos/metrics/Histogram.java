@@ -0,0 +1,107 @@
+package com.dam.accesodatos.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma concurrente de bajo coste para latencias (o cualquier valor positivo).
+ *
+ * Los valores se agrupan en cubos de potencias de 2, cada uno con su propio LongAdder,
+ * así que record() no reserva memoria ni bloquea: basta para medir en el camino caliente.
+ * Los percentiles son aproximados (límite superior del cubo, error máximo x2).
+ */
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra un valor (negativos cuentan como 0).
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        buckets[BUCKETS - Long.numberOfLeadingZeros(v)].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Percentil aproximado.
+     *
+     * @param percentile valor entre 0 y 100
+     * @return límite superior del cubo que contiene el percentil
+     */
+    public long getPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Cuenta de cada cubo no vacío, indexada por su límite superior (para exportar).
+     */
+    public Map<Long, Long> getBuckets() {
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = buckets[i].sum();
+            if (c > 0) {
+                result.put(upperBound(i), c);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resumen con las unidades indicadas (p. ej. nanos → micros con divisor 1000).
+     */
+    public Map<String, Object> snapshot(long divisor) {
+        long total = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0 : sum.sum() / total / divisor);
+        snapshot.put("p50", getPercentile(50) / divisor);
+        snapshot.put("p99", getPercentile(99) / divisor);
+        snapshot.put("p999", getPercentile(99.9) / divisor);
+        snapshot.put("max", max.get() / divisor);
+        return snapshot;
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1);
+    }
+}
@@ -0,0 +1,120 @@
+package com.dam.accesodatos.metrics;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de métricas de la aplicación (expuesto en /mcp/metrics).
+ *
+ * - Por herramienta MCP: duración, errores y bytes de respuesta ({@link ToolMetrics})
+ * - Por sentencia SQL: tiempo de ejecución y filas ({@link StatementMetrics})
+ * - Tiempo de obtención de conexiones de DatabaseConfig
+ * - Errores por SQLState
+ *
+ * Es estático, como DatabaseConfig: lo usan también clases sin Spring. Todo se
+ * registra en LongAdder e {@link Histogram}, sin bloqueos ni reservas de memoria;
+ * solo la primera vez que aparece un nombre se crea su entrada.
+ */
+public final class Metrics {
+
+    private static final Map<String, ToolMetrics> tools = new ConcurrentHashMap<>();
+    private static final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> sqlErrors = new ConcurrentHashMap<>();
+    private static final Histogram connectionAcquireNanos = new Histogram();
+
+    private Metrics() {
+    }
+
+    public static ToolMetrics tool(String name) {
+        ToolMetrics metrics = tools.get(name);
+        return metrics != null ? metrics : tools.computeIfAbsent(name, ToolMetrics::new);
+    }
+
+    public static StatementMetrics statement(String name) {
+        StatementMetrics metrics = statements.get(name);
+        return metrics != null ? metrics : statements.computeIfAbsent(name, StatementMetrics::new);
+    }
+
+    /**
+     * Anota una conexión obtenida (pool, réplica o DriverManager) que se pidió en startNanos
+     */
+    public static void connectionAcquired(long startNanos) {
+        connectionAcquireNanos.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Cuenta el SQLState de la primera SQLException de la cadena de causas, si la hay
+     * ("unknown" si el driver no da SQLState).
+     */
+    public static void sqlError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql) {
+                String state = sql.getSQLState() != null ? sql.getSQLState() : "unknown";
+                LongAdder counter = sqlErrors.get(state);
+                if (counter == null) {
+                    counter = sqlErrors.computeIfAbsent(state, key -> new LongAdder());
+                }
+                counter.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Todas las métricas (tiempos en µs), ordenadas por nombre
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> toolStats = new TreeMap<>();
+        tools.forEach((name, metrics) -> toolStats.put(name, metrics.snapshot()));
+        Map<String, Object> statementStats = new TreeMap<>();
+        statements.forEach((name, metrics) -> statementStats.put(name, metrics.snapshot()));
+        Map<String, Object> errorStats = new TreeMap<>();
+        sqlErrors.forEach((state, counter) -> errorStats.put(state, counter.sum()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("tools", toolStats);
+        snapshot.put("statements", statementStats);
+        snapshot.put("connectionAcquireMicros", connectionAcquireNanos.snapshot(1000));
+        snapshot.put("sqlErrors", errorStats);
+        return snapshot;
+    }
+
+    /**
+     * Las mismas métricas en formato de texto de Prometheus (versión 0.0.4)
+     */
+    public static String prometheus() {
+        PrometheusWriter out = new PrometheusWriter();
+
+        out.help("ra2_tool_duration_seconds", "histogram", "Duración de las llamadas a herramientas MCP");
+        new TreeMap<>(tools).forEach((name, metrics) ->
+                out.histogram("ra2_tool_duration_seconds", "tool", name, metrics.getDurationNanos(), 1e9));
+        out.help("ra2_tool_errors_total", "counter", "Llamadas a herramientas MCP fallidas");
+        new TreeMap<>(tools).forEach((name, metrics) ->
+                out.sample("ra2_tool_errors_total", "tool", name, metrics.getErrors()));
+        out.help("ra2_tool_response_bytes", "histogram", "Tamaño de las respuestas HTTP de las herramientas");
+        new TreeMap<>(tools).forEach((name, metrics) ->
+                out.histogram("ra2_tool_response_bytes", "tool", name, metrics.getResponseBytes(), 1));
+
+        out.help("ra2_statement_duration_seconds", "histogram", "Tiempo de ejecución de las sentencias SQL");
+        new TreeMap<>(statements).forEach((name, metrics) ->
+                out.histogram("ra2_statement_duration_seconds", "statement", name, metrics.getExecuteNanos(), 1e9));
+        out.help("ra2_statement_rows_returned_total", "counter", "Filas leídas de los ResultSet");
+        new TreeMap<>(statements).forEach((name, metrics) ->
+                out.sample("ra2_statement_rows_returned_total", "statement", name, metrics.getRowsReturned()));
+        out.help("ra2_statement_rows_affected_total", "counter", "Filas insertadas, actualizadas o borradas");
+        new TreeMap<>(statements).forEach((name, metrics) ->
+                out.sample("ra2_statement_rows_affected_total", "statement", name, metrics.getRowsAffected()));
+
+        out.help("ra2_connection_acquire_seconds", "histogram", "Tiempo de obtención de conexiones JDBC");
+        out.histogram("ra2_connection_acquire_seconds", null, null, connectionAcquireNanos, 1e9);
+
+        out.help("ra2_sql_errors_total", "counter", "Errores SQL por SQLState");
+        new TreeMap<>(sqlErrors).forEach((state, counter) ->
+                out.sample("ra2_sql_errors_total", "sqlstate", state, counter.sum()));
+        return out.toString();
+    }
+}
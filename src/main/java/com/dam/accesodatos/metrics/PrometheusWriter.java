@@ -0,0 +1,98 @@
+package com.dam.accesodatos.metrics;
+
+import java.util.Map;
+
+/**
+ * Formato de texto de Prometheus (exposición 0.0.4) para {@link Metrics#prometheus()}.
+ */
+final class PrometheusWriter {
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    void help(String metric, String type, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    void sample(String metric, String label, String value, long sample) {
+        out.append(metric);
+        labels(label, value, null);
+        out.append(' ').append(sample).append('\n');
+    }
+
+    /**
+     * Histograma con un bucket acumulado por cubo no vacío de {@link Histogram}
+     *
+     * @param divisor unidades del histograma por unidad de la métrica (1e9 para ns → s)
+     */
+    void histogram(String metric, String label, String value, Histogram histogram, double divisor) {
+        long cumulative = 0;
+        for (Map.Entry<Long, Long> bucket : histogram.getBuckets().entrySet()) {
+            if (bucket.getKey() == Long.MAX_VALUE) {
+                continue;
+            }
+            cumulative += bucket.getValue();
+            out.append(metric).append("_bucket");
+            labels(label, value, number(bucket.getKey() / divisor));
+            out.append(' ').append(cumulative).append('\n');
+        }
+        long count = histogram.getCount();
+        out.append(metric).append("_bucket");
+        labels(label, value, "+Inf");
+        out.append(' ').append(count).append('\n');
+
+        out.append(metric).append("_sum");
+        labels(label, value, null);
+        out.append(' ').append(number(histogram.getSum() / divisor)).append('\n');
+        out.append(metric).append("_count");
+        labels(label, value, null);
+        out.append(' ').append(count).append('\n');
+    }
+
+    private void labels(String label, String value, String le) {
+        if (label == null && le == null) {
+            return;
+        }
+        out.append('{');
+        if (label != null) {
+            out.append(label).append("=\"");
+            escape(value);
+            out.append('"');
+        }
+        if (le != null) {
+            if (label != null) {
+                out.append(',');
+            }
+            out.append("le=\"").append(le).append('"');
+        }
+        out.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.dam.accesodatos.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una sentencia SQL: tiempo de ejecución y filas devueltas o afectadas.
+ *
+ * Se obtiene una vez con {@link Metrics#statement(String)} y se guarda en una
+ * constante; registrar es sumar en LongAdder, sin reservar memoria.
+ */
+public final class StatementMetrics {
+
+    private final String name;
+    private final Histogram executeNanos = new Histogram();
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder rowsAffected = new LongAdder();
+
+    StatementMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Anota una ejecución que empezó en startNanos (System.nanoTime())
+     */
+    public void executed(long startNanos) {
+        executeNanos.record(System.nanoTime() - startNanos);
+    }
+
+    public void returned(long rows) {
+        rowsReturned.add(rows);
+    }
+
+    public void affected(long rows) {
+        rowsAffected.add(rows);
+    }
+
+    Histogram getExecuteNanos() {
+        return executeNanos;
+    }
+
+    long getRowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    long getRowsAffected() {
+        return rowsAffected.sum();
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("executeMicros", executeNanos.snapshot(1000));
+        snapshot.put("rowsReturned", rowsReturned.sum());
+        snapshot.put("rowsAffected", rowsAffected.sum());
+        return snapshot;
+    }
+}
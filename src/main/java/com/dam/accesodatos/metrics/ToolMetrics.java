@@ -0,0 +1,59 @@
+package com.dam.accesodatos.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una herramienta MCP: duración de la llamada (incluida la espera por
+ * turno JDBC), errores y tamaño de la respuesta HTTP.
+ */
+public final class ToolMetrics {
+
+    private final String name;
+    private final Histogram durationNanos = new Histogram();
+    private final LongAdder errors = new LongAdder();
+    private final Histogram responseBytes = new Histogram();
+
+    ToolMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Anota una llamada que empezó en startNanos (System.nanoTime())
+     */
+    public void completed(long startNanos, boolean failed) {
+        durationNanos.record(System.nanoTime() - startNanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public void responded(long bytes) {
+        responseBytes.record(bytes);
+    }
+
+    Histogram getDurationNanos() {
+        return durationNanos;
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    Histogram getResponseBytes() {
+        return responseBytes;
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("durationMicros", durationNanos.snapshot(1000));
+        snapshot.put("errors", errors.sum());
+        snapshot.put("responseBytes", responseBytes.snapshot(1));
+        return snapshot;
+    }
+}
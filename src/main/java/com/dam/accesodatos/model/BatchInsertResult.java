@@ -0,0 +1,158 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado detallado de una inserción por lotes (batch_insert_users)
+ *
+ * La entrada se divide en bloques de chunkSize filas; cada bloque es una sentencia
+ * INSERT multifila. Con transaction = "chunk" cada bloque se confirma por separado
+ * y un fallo deja confirmados los bloques anteriores; con "call" todo va en una
+ * transacción y un fallo lo deshace todo.
+ */
+public class BatchInsertResult {
+
+    public static final String STATUS_COMMITTED = "committed";
+    public static final String STATUS_ROLLED_BACK = "rolled_back";
+
+    private final int chunkSize;
+    private final String transaction;
+    private final List<Long> generatedIds = new ArrayList<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int skippedRows;
+    private Integer failedChunk;
+    private String error;
+    private long totalMicros;
+
+    public BatchInsertResult(int chunkSize, String transaction) {
+        this.chunkSize = chunkSize;
+        this.transaction = transaction;
+    }
+
+    /**
+     * @return filas confirmadas (una por id generado)
+     */
+    public int getInserted() {
+        return generatedIds.size();
+    }
+
+    public List<Long> getGeneratedIds() {
+        return generatedIds;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public String getTransaction() {
+        return transaction;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return filas que no llegaron a enviarse porque un bloque anterior falló
+     */
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    public void setSkippedRows(int skippedRows) {
+        this.skippedRows = skippedRows;
+    }
+
+    /**
+     * @return índice del bloque que falló, o null si no hubo fallo
+     */
+    public Integer getFailedChunk() {
+        return failedChunk;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void fail(int chunkIndex, String error) {
+        this.failedChunk = chunkIndex;
+        this.error = error;
+    }
+
+    public boolean isComplete() {
+        return error == null;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public void setTotalMicros(long totalMicros) {
+        this.totalMicros = totalMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchInsertResult{" +
+                "inserted=" + getInserted() +
+                ", chunks=" + chunks.size() +
+                ", transaction='" + transaction + '\'' +
+                ", failedChunk=" + failedChunk +
+                ", error='" + error + '\'' +
+                '}';
+    }
+
+    /**
+     * Un bloque de la inserción: filas [firstRow, firstRow + rows) de la entrada
+     */
+    public static class Chunk {
+
+        private final int index;
+        private final int firstRow;
+        private final int rows;
+        private final long micros;
+        private String status;
+        private String error;
+
+        public Chunk(int index, int firstRow, int rows, long micros, String status, String error) {
+            this.index = index;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.micros = micros;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * @return tiempo del INSERT del bloque (y de su commit con transaction = "chunk")
+         */
+        public long getMicros() {
+            return micros;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
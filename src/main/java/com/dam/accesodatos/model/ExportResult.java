@@ -0,0 +1,84 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una exportación a fichero (export_users)
+ */
+public class ExportResult {
+
+    private final String path;
+    private final String format;
+    private final String table;
+    private final List<String> columns = new ArrayList<>();
+    private long rows;
+    private long bytes;
+    private long totalMicros;
+
+    public ExportResult(String path, String format, String table) {
+        this.path = path;
+        this.format = format;
+        this.table = table;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return columnas exportadas, en el orden del fichero
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * @return tamaño del fichero escrito
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public void setTotalMicros(long totalMicros) {
+        this.totalMicros = totalMicros;
+    }
+
+    public long getRowsPerSecond() {
+        return totalMicros == 0 ? 0 : rows * 1_000_000 / totalMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportResult{" +
+                "path='" + path + '\'' +
+                ", table='" + table + '\'' +
+                ", rows=" + rows +
+                ", bytes=" + bytes +
+                '}';
+    }
+}
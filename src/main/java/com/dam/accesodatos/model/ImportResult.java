@@ -0,0 +1,123 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva desde fichero (import_users)
+ *
+ * Las filas se insertan por bloques, cada uno en su transacción y en modo
+ * best_effort (ver TransferResult): una fila rechazada, por formato o por la base
+ * de datos, no impide cargar las demás. En failures, row es el número de línea
+ * del fichero; solo se guardan las primeras filas rechazadas (rejected las cuenta todas).
+ */
+public class ImportResult {
+
+    private final String path;
+    private final String format;
+    private final List<String> deferredIndexes = new ArrayList<>();
+    private final List<TransferResult.RowFailure> failures = new ArrayList<>();
+    private long rowsRead;
+    private long inserted;
+    private long rejected;
+    private int chunks;
+    private String error;
+    private long totalMicros;
+
+    public ImportResult(String path, String format) {
+        this.path = path;
+        this.format = format;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * @return índices eliminados durante la carga y recreados al terminar
+     */
+    public List<String> getDeferredIndexes() {
+        return deferredIndexes;
+    }
+
+    public List<TransferResult.RowFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return filas de datos leídas del fichero (válidas o no)
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return error que detuvo la importación (las filas de bloques ya confirmados se mantienen)
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isComplete() {
+        return error == null;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public void setTotalMicros(long totalMicros) {
+        this.totalMicros = totalMicros;
+    }
+
+    public long getRowsPerSecond() {
+        return totalMicros == 0 ? 0 : inserted * 1_000_000 / totalMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{" +
+                "path='" + path + '\'' +
+                ", inserted=" + inserted +
+                ", rejected=" + rejected +
+                ", rowsPerSecond=" + getRowsPerSecond() +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
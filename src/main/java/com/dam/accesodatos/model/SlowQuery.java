@@ -0,0 +1,85 @@
+package com.dam.accesodatos.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sentencia JDBC que superó el umbral del registro de consultas lentas (get_slow_queries)
+ *
+ * El plan se captura después, en segundo plano, con EXPLAIN ANALYZE (solo SELECT,
+ * que H2 vuelve a ejecutar) o con EXPLAIN (resto de sentencias, sin ejecutarlas).
+ * Mientras tanto planStatus vale "pending".
+ */
+public class SlowQuery {
+
+    public static final String PLAN_PENDING = "pending";
+    public static final String PLAN_CAPTURED = "captured";
+    public static final String PLAN_REUSED = "reused";
+    public static final String PLAN_SKIPPED = "skipped";
+    public static final String PLAN_FAILED = "failed";
+
+    private final String sql;
+    private final List<String> parameters;
+    private final int batchSize;
+    private final long durationMicros;
+    private final LocalDateTime executedAt;
+    private final String thread;
+    private volatile String plan;
+    private volatile String planStatus = PLAN_PENDING;
+
+    public SlowQuery(String sql, List<String> parameters, int batchSize, long durationMicros,
+                     LocalDateTime executedAt, String thread) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.batchSize = batchSize;
+        this.durationMicros = durationMicros;
+        this.executedAt = executedAt;
+        this.thread = thread;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return parámetros ligados en orden (los de la última fila si era un batch)
+     */
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return filas de executeBatch() (0 si no era un batch)
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public LocalDateTime getExecutedAt() {
+        return executedAt;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * @return plan de H2, o el motivo si planStatus es "skipped" o "failed"
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    public String getPlanStatus() {
+        return planStatus;
+    }
+
+    public void setPlan(String planStatus, String plan) {
+        this.plan = plan;
+        this.planStatus = planStatus;
+    }
+}
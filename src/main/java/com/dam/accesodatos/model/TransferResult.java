@@ -0,0 +1,147 @@
+package com.dam.accesodatos.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado detallado de transfer_data
+ *
+ * Las filas se envían con executeBatch() en bloques de chunkSize filas, todas en
+ * una transacción:
+ * - all_or_nothing: el primer bloque que falla deshace toda la transacción
+ * - best_effort: cada bloque tiene su savepoint; si falla, se deshace solo ese bloque
+ *   y se reintenta fila a fila, de modo que se confirman todas las filas válidas
+ *   y las demás quedan en failures
+ */
+public class TransferResult {
+
+    public static final String MODE_ALL_OR_NOTHING = "all_or_nothing";
+    public static final String MODE_BEST_EFFORT = "best_effort";
+
+    private final String mode;
+    private final int chunkSize;
+    private final List<RowFailure> failures = new ArrayList<>();
+    private int inserted;
+    private int chunks;
+    private boolean rolledBack;
+    private long totalMicros;
+    private SQLException firstError;
+
+    public TransferResult(String mode, int chunkSize) {
+        this.mode = mode;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return filas confirmadas
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return true si la transacción completa se deshizo (all_or_nothing con fallo)
+     */
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+
+    public void setRolledBack(boolean rolledBack) {
+        this.rolledBack = rolledBack;
+    }
+
+    public List<RowFailure> getFailures() {
+        return failures;
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty() && !rolledBack;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public void setTotalMicros(long totalMicros) {
+        this.totalMicros = totalMicros;
+    }
+
+    /**
+     * @return primera SQLException de las filas rechazadas (no se serializa), o null
+     */
+    @JsonIgnore
+    public SQLException getFirstError() {
+        return firstError;
+    }
+
+    /**
+     * Anota una fila rechazada; la primera excepción se guarda como causa del fallo.
+     */
+    public void addFailure(int row, String email, SQLException error) {
+        failures.add(new RowFailure(row, email, error.getMessage()));
+        if (firstError == null) {
+            firstError = error;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "mode='" + mode + '\'' +
+                ", inserted=" + inserted +
+                ", failures=" + failures.size() +
+                ", rolledBack=" + rolledBack +
+                '}';
+    }
+
+    /**
+     * Fila rechazada: posición en la lista de entrada, email y error de la base de datos
+     */
+    public static class RowFailure {
+
+        private final int row;
+        private final String email;
+        private final String error;
+
+        public RowFailure(int row, String email, String error) {
+            this.row = row;
+            this.email = email;
+            this.error = error;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
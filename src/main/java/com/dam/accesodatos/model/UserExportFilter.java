@@ -0,0 +1,67 @@
+package com.dam.accesodatos.model;
+
+/**
+ * Filtro de export_users sobre la tabla users
+ *
+ * A diferencia de UserQueryDto no tiene límite por defecto: sin limit se
+ * exportan todas las filas que cumplen el filtro.
+ */
+public class UserExportFilter {
+
+    private String department;
+    private String role;
+    private Boolean active;
+    private Integer limit;
+
+    public UserExportFilter() {
+    }
+
+    public UserExportFilter(String department, String role, Boolean active, Integer limit) {
+        this.department = department;
+        this.role = role;
+        this.active = active;
+        this.limit = limit;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return "UserExportFilter{" +
+                "department='" + department + '\'' +
+                ", role='" + role + '\'' +
+                ", active=" + active +
+                ", limit=" + limit +
+                '}';
+    }
+}
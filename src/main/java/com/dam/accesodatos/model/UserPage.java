@@ -0,0 +1,40 @@
+package com.dam.accesodatos.model;
+
+import java.util.List;
+
+/**
+ * Página de resultados de una búsqueda de usuarios
+ *
+ * nextCursor es un token opaco para pedir la página siguiente
+ * (UserQueryDto.cursor); es null si no hay más resultados.
+ */
+public class UserPage {
+
+    private final List<User> users;
+    private final String nextCursor;
+
+    public UserPage(List<User> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPage{" +
+                "users=" + users.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
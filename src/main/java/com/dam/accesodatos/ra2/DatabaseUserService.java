@@ -1,30 +1,44 @@
 package com.dam.accesodatos.ra2;
 
+import com.dam.accesodatos.model.BatchInsertResult;
+import com.dam.accesodatos.model.ExportResult;
+import com.dam.accesodatos.model.ImportResult;
+import com.dam.accesodatos.model.SlowQuery;
+import com.dam.accesodatos.model.TransferResult;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportFilter;
+import com.dam.accesodatos.model.UserPage;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
 import org.springframework.ai.mcp.server.annotation.Tool;
+import org.springframework.ai.mcp.server.annotation.ToolParam;
 
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface de servicio para operaciones JDBC con usuarios
  *
  * RA2: Desarrolla aplicaciones que gestionan información almacenada mediante conectores
  *
- * Esta interface define 13 herramientas MCP (métodos @Tool) que los estudiantes deben implementar
+ * Esta interface define 17 herramientas MCP (métodos @Tool) que los estudiantes deben implementar
  * usando JDBC puro (Connection, PreparedStatement, ResultSet, etc.)
  *
+ * /mcp/call/{tool} lee cada parámetro del campo JSON con su nombre; @ToolParam
+ * indica otro nombre o un DTO cuyos campos llegan sin anidar.
+ *
  * Métodos organizados por criterios de evaluación:
  * - CE2.a: Conexión y gestión de conexiones (1 método)
  * - CE2.b: Operaciones CRUD básicas (5 métodos)
  * - CE2.c: Consultas avanzadas (2 métodos)
- * - CE2.d: Transacciones (2 métodos)
- * - CE2.e: Metadatos (2 métodos)
+ * - CE2.d: Transacciones y carga masiva (4 métodos): transfer_data, batch_insert_users,
+ *   import_users y export_users
+ * - CE2.e: Metadatos (3 métodos): get_database_info, get_table_columns y describe_schema
  * - CE2.f: Funciones de agregación (1 método)
+ * - Diagnóstico: consultas lentas (1 método)
  */
 public interface DatabaseUserService {
 
@@ -76,7 +90,7 @@ public interface DatabaseUserService {
      */
     @Tool(name = "create_user",
             description = "Inserta un nuevo usuario usando PreparedStatement y retorna el ID generado")
-    User createUser(UserCreateDto dto);
+    User createUser(@ToolParam(flatten = true) UserCreateDto dto);
 
     /**
      * CE2.b: Busca un usuario por su ID
@@ -98,7 +112,18 @@ public interface DatabaseUserService {
      */
     @Tool(name = "find_user_by_id",
             description = "Busca un usuario por ID usando SELECT con PreparedStatement")
-    User findUserById(Long id);
+    User findUserById(@ToolParam(name = "userId") Long id);
+
+    /**
+     * Varias búsquedas por ID en una sola consulta (SELECT ... WHERE id IN (...)).
+     * No es una herramienta MCP: la usan los lotes de herramientas para agrupar
+     * llamadas consecutivas a find_user_by_id.
+     *
+     * @param ids IDs a buscar (sin nulls; puede haber repetidos)
+     * @return usuarios encontrados por ID; los que no existen no aparecen
+     * @throws RuntimeException si hay error de BD
+     */
+    Map<Long, User> findUsersByIds(List<Long> ids);
 
     /**
      * CE2.b: Actualiza los datos de un usuario existente
@@ -121,7 +146,7 @@ public interface DatabaseUserService {
      */
     @Tool(name = "update_user",
             description = "Actualiza un usuario existente usando UPDATE statement")
-    User updateUser(Long id, UserUpdateDto dto);
+    User updateUser(@ToolParam(name = "userId") Long id, @ToolParam(flatten = true) UserUpdateDto dto);
 
     /**
      * CE2.b: Elimina un usuario de la base de datos
@@ -141,7 +166,7 @@ public interface DatabaseUserService {
      */
     @Tool(name = "delete_user",
             description = "Elimina un usuario usando DELETE statement")
-    boolean deleteUser(Long id);
+    boolean deleteUser(@ToolParam(name = "userId") Long id);
 
     /**
      * CE2.b: Obtiene todos los usuarios
@@ -205,7 +230,43 @@ public interface DatabaseUserService {
      */
     @Tool(name = "search_users",
             description = "Busca usuarios con múltiples filtros opcionales y paginación")
-    List<User> searchUsers(UserQueryDto query);
+    List<User> searchUsers(@ToolParam(flatten = true) UserQueryDto query);
+
+    /**
+     * Igual que searchUsers(), pero devuelve también el cursor de la página siguiente.
+     *
+     * La paginación es por clave (ORDER BY id, WHERE id > último id): cada página
+     * cuesta lo mismo por profunda que sea. Para continuar, pasar nextCursor en
+     * UserQueryDto.cursor con los mismos filtros y limit.
+     *
+     * @param query DTO con filtros opcionales, limit y cursor
+     * @return página de usuarios y cursor siguiente (null si es la última)
+     * @throws RuntimeException si hay error o el cursor no es válido
+     */
+    UserPage searchUsersPage(UserQueryDto query);
+
+    // ========== Streaming (no son herramientas MCP) ==========
+
+    /**
+     * Variante en streaming de findAll(): las filas se leen del cursor a medida
+     * que se consume el Stream, sin construir la lista completa en memoria.
+     *
+     * El Stream mantiene abiertos Connection, PreparedStatement y ResultSet:
+     * debe cerrarse con try-with-resources.
+     *
+     * @return Stream de todos los usuarios (mismo orden que findAll)
+     * @throws RuntimeException si hay error
+     */
+    Stream<User> streamAll();
+
+    /**
+     * Variante en streaming de searchUsers(), con las mismas reglas que streamAll().
+     *
+     * @param query DTO con filtros opcionales
+     * @return Stream de los usuarios que cumplen los criterios
+     * @throws RuntimeException si hay error
+     */
+    Stream<User> streamSearchUsers(UserQueryDto query);
 
 
     // ========== CE2.d: Transactions ==========
@@ -241,6 +302,9 @@ public interface DatabaseUserService {
      * - Ejecutar con executeBatch()
      * - Procesar int[] resultados
      *
+     * La implementación actual agrupa las filas en INSERT multifila por bloques
+     * (ver {@link #batchInsert(List)}) y lanza excepción si algún bloque falla.
+     *
      * Clases JDBC requeridas:
      * - java.sql.PreparedStatement
      * - Métodos: addBatch(), executeBatch()
@@ -253,6 +317,79 @@ public interface DatabaseUserService {
             description = "Inserta múltiples usuarios usando batch operations")
     int batchInsertUsers(List<User> users);
 
+    /**
+     * Inserción por lotes con detalle: divide la entrada en bloques de
+     * ra2.jdbc.batch.chunk-size filas, cada uno un INSERT multifila, con una
+     * transacción por bloque o por llamada (ra2.jdbc.batch.transaction).
+     *
+     * Asigna a cada User insertado su id generado. No lanza excepción si falla un
+     * bloque: el fallo queda en el resultado (failedChunk, error) junto con los
+     * tiempos de cada bloque.
+     *
+     * @param users Lista de usuarios a insertar
+     * @return Ids generados, bloques y, si lo hubo, el fallo
+     * @throws RuntimeException si no se puede obtener o preparar la conexión
+     */
+    BatchInsertResult batchInsert(List<User> users);
+
+    /**
+     * Transferencia con detalle: inserta los usuarios en una transacción, con
+     * executeBatch() en bloques de ra2.jdbc.transfer.chunk-size filas.
+     *
+     * - bestEffort = false (all_or_nothing): el primer bloque que falla deshace todo
+     * - bestEffort = true: un savepoint por bloque; si un bloque falla se deshace solo
+     *   ese bloque y se reintenta fila a fila, confirmando las filas válidas
+     *
+     * No lanza excepción por filas rechazadas: quedan en el resultado con su posición
+     * en la lista de entrada y el error de la base de datos.
+     *
+     * @param users Lista de usuarios a insertar
+     * @param bestEffort true para confirmar las filas válidas aunque otras fallen
+     * @return Filas insertadas, fallos por fila y si se deshizo la transacción
+     * @throws RuntimeException si no se puede obtener la conexión o falla el commit
+     */
+    TransferResult transferData(List<User> users, boolean bestEffort);
+
+    /**
+     * Importación masiva desde un fichero local del servidor (CSV con cabecera o
+     * NDJSON), dentro de ra2.bulk.base-dir.
+     *
+     * El fichero se lee en streaming en un hilo y las filas se insertan en otro, por
+     * bloques de ra2.bulk.import.chunk-size filas (transferData en modo best_effort),
+     * con una cola acotada entre ambos. Las filas mal formadas o rechazadas por la
+     * base de datos se cuentan y se informa de su línea.
+     *
+     * @param path Ruta del fichero relativa a ra2.bulk.base-dir
+     * @param format "csv", "ndjson" o null para deducirlo de la extensión
+     * @param deferIndexes true para eliminar los índices secundarios durante la carga y recrearlos al final
+     * @return Filas leídas, insertadas y rechazadas, filas/s e índices diferidos
+     * @throws RuntimeException si la ruta o el formato no son válidos o ya hay una importación en curso
+     */
+    @Tool(name = "import_users",
+            description = "Importa usuarios desde un fichero CSV o NDJSON del servidor en bloques, con informe de filas rechazadas")
+    ImportResult importUsers(String path, String format, boolean deferIndexes);
+
+    /**
+     * Exportación a un fichero local del servidor (CSV o NDJSON), dentro de
+     * ra2.bulk.base-dir.
+     *
+     * Las filas se escriben según se leen de un cursor de solo avance, sin cargar la
+     * tabla en memoria. El fichero exportado con la tabla users se puede volver a
+     * cargar con import_users.
+     *
+     * @param path Ruta del fichero relativa a ra2.bulk.base-dir (se sobrescribe)
+     * @param format "csv", "ndjson" o null para deducirlo de la extensión
+     * @param table "users" (por defecto) o "user_statistics"
+     * @param columns Columnas a exportar, en orden (null o vacía = todas)
+     * @param filter Filtros department, role y active como en search_users y limit opcional
+     *               (solo users; null = sin filtro; sin limit se exportan todas las filas)
+     * @return Filas y bytes escritos, columnas y filas/s
+     * @throws RuntimeException si algún parámetro no es válido o hay error de E/S o SQL
+     */
+    @Tool(name = "export_users",
+            description = "Exporta users o user_statistics a un fichero CSV o NDJSON del servidor, con selección de columnas y filtros")
+    ExportResult exportUsers(String path, String format, String table, List<String> columns, UserExportFilter filter);
+
     // ========== CE2.e: Metadata ==========
 
     /**
@@ -295,6 +432,19 @@ public interface DatabaseUserService {
             description = "Obtiene metadatos de las columnas de una tabla usando ResultSetMetaData")
     List<Map<String, Object>> getTableColumns(String tableName);
 
+    /**
+     * Describe el esquema completo en una sola respuesta: para cada tabla, sus
+     * columnas, clave primaria, índices y claves foráneas.
+     *
+     * La respuesta se cachea hasta que cambia el esquema (DDL).
+     *
+     * @return Mapa con tableCount y la lista de tablas
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "describe_schema",
+            description = "Describe todas las tablas del esquema: columnas, clave primaria, índices y claves foráneas")
+    Map<String, Object> describeSchema();
+
     // ========== CE2.f: Funciones de Agregación ==========
 
     /**
@@ -317,4 +467,18 @@ public interface DatabaseUserService {
     @Tool(name = "execute_count_by_department",
             description = "Cuenta usuarios activos por departamento usando COUNT")
     int executeCountByDepartment(String department);
-}
\ No newline at end of file
+
+    // ========== Diagnóstico ==========
+
+    /**
+     * Últimas sentencias JDBC que superaron ra2.jdbc.slow-query.threshold-ms, de la
+     * más reciente a la más antigua, con sus parámetros, duración y plan de H2
+     * (EXPLAIN ANALYZE en las SELECT; un "tableScan" indica un recorrido completo).
+     *
+     * @param limit Máximo de consultas a devolver (null o 0 = todas las conservadas)
+     * @return Consultas lentas (vacía si el registro está desactivado)
+     */
+    @Tool(name = "get_slow_queries",
+            description = "Lista las últimas consultas SQL lentas con sus parámetros, duración y plan EXPLAIN ANALYZE de H2")
+    List<SlowQuery> getSlowQueries(Integer limit);
+}
@@ -1,18 +1,55 @@
 package com.dam.accesodatos.ra2;
 
+import com.dam.accesodatos.bulk.UserExporter;
+import com.dam.accesodatos.bulk.UserImporter;
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.SchemaMetadataCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.BatchConnection;
+import com.dam.accesodatos.config.CallOptions;
 import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.config.ThrowawayTransaction;
+import com.dam.accesodatos.metrics.Metrics;
+import com.dam.accesodatos.metrics.StatementMetrics;
+import com.dam.accesodatos.model.BatchInsertResult;
+import com.dam.accesodatos.model.ExportResult;
+import com.dam.accesodatos.model.ImportResult;
+import com.dam.accesodatos.model.SlowQuery;
+import com.dam.accesodatos.model.TransferResult;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportFilter;
+import com.dam.accesodatos.model.UserPage;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementación del servicio JDBC para gestión de usuarios
@@ -46,6 +83,190 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
     // JDBC PURO - SIN Spring DataSource
     // Los estudiantes usan DatabaseConfig.getConnection() directamente
     // para obtener conexiones usando DriverManager
+    //
+    // Las herramientas de solo lectura usan DatabaseConfig.getReadConnection(): si la
+    // réplica de lectura está activa, se sirven desde ella. Las escrituras usan
+    // getConnection() y anotan las filas escritas con recordWrites(), que además
+    // invalida la caché de resultados de consultas.
+
+    // Filas que el driver trae por cada viaje al leer un cursor en streaming
+    @Value("${ra2.jdbc.fetch-size:500}")
+    private int fetchSize = 500;
+
+    // batch_insert_users: filas por INSERT multifila y transacción por bloque ("chunk")
+    // o por llamada ("call")
+    @Value("${ra2.jdbc.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    @Value("${ra2.jdbc.batch.transaction:chunk}")
+    private String batchTransaction = "chunk";
+
+    // transfer_data: filas por executeBatch() (y por savepoint en modo best_effort)
+    @Value("${ra2.jdbc.transfer.chunk-size:1000}")
+    private int transferChunkSize = 1000;
+
+    // Caché de User por id (se invalida al escribir). Sin Spring se usa con la configuración por defecto
+    @Autowired
+    private UserCache userCache = new UserCache();
+
+    // Caché de resultados de find_users_by_department y search_users
+    @Autowired
+    private QueryResultCache queryResultCache = new QueryResultCache();
+
+    // Usuarios activos por departamento en memoria (execute_count_by_department)
+    @Autowired
+    private DepartmentCounters departmentCounters = new DepartmentCounters();
+
+    // Metadatos del esquema (info, columnas, describe_schema) hasta el siguiente DDL
+    @Autowired
+    private SchemaMetadataCache schemaCache = new SchemaMetadataCache();
+
+    // import_users: lectura del fichero e inserción por bloques en hilos separados
+    @Autowired
+    private UserImporter userImporter = new UserImporter();
+
+    // export_users: del cursor al fichero sin pasar por List<User>
+    @Autowired
+    private UserExporter userExporter = new UserExporter();
+
+    // create_user y update_user con commit agrupado (desactivado por defecto)
+    @Autowired
+    private GroupCommitQueue groupCommitQueue = new GroupCommitQueue();
+
+    // ========== MÉTRICAS ==========
+    // Tiempo de ejecución y filas de cada sentencia (/mcp/metrics)
+
+    private static final StatementMetrics TEST_CONNECTION_METRICS = Metrics.statement("test_connection");
+    private static final StatementMetrics INSERT_USER_METRICS = Metrics.statement("insert_user");
+    private static final StatementMetrics SELECT_USER_BY_ID_METRICS = Metrics.statement("select_user_by_id");
+    private static final StatementMetrics SELECT_USERS_BY_IDS_METRICS = Metrics.statement("select_users_by_ids");
+    private static final StatementMetrics UPDATE_USER_METRICS = Metrics.statement("update_user");
+    private static final StatementMetrics DELETE_USER_METRICS = Metrics.statement("delete_user");
+    private static final StatementMetrics SELECT_ALL_USERS_METRICS = Metrics.statement("select_all_users");
+    private static final StatementMetrics SELECT_BY_DEPARTMENT_METRICS = Metrics.statement("select_users_by_department");
+    private static final StatementMetrics SEARCH_USERS_METRICS = Metrics.statement("search_users");
+    private static final StatementMetrics STREAM_USERS_METRICS = Metrics.statement("stream_users");
+    private static final StatementMetrics TRANSFER_INSERT_METRICS = Metrics.statement("transfer_insert");
+    private static final StatementMetrics BATCH_INSERT_METRICS = Metrics.statement("batch_insert");
+    private static final StatementMetrics GROUP_INSERT_METRICS = Metrics.statement("group_commit_insert");
+    private static final StatementMetrics COUNT_BY_DEPARTMENT_METRICS = Metrics.statement("count_by_department");
+
+    // ========== SQL ==========
+    // Sentencias de texto fijo: si el pool de DatabaseConfig está activo, su caché
+    // de PreparedStatement las reutiliza ya parseadas en cada llamada.
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (name, email, department, role, active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // batch_insert_users: INSERT multifila por número de filas (ver multiRowInsertSql)
+    private static final Map<Integer, String> MULTI_ROW_INSERT_SQL = new ConcurrentHashMap<>();
+
+    private static final String SELECT_USER_BY_ID_SQL =
+            "SELECT id, name, email, department, role, active, created_at, updated_at " +
+            "FROM users WHERE id = ?";
+
+    // findUsersByIds: IN con un número de marcadores potencia de 2 (el resto se
+    // rellena repitiendo el último id), así hay pocos textos SQL distintos que cachear
+    private static final int MAX_IDS_PER_QUERY = 1024;
+    private static final Map<Integer, String> SELECT_USERS_BY_IDS_SQL = new ConcurrentHashMap<>();
+
+
+    // OLD TABLE devuelve la fila borrada (departamento y activo para los contadores)
+    private static final String DELETE_USER_SQL =
+            "SELECT department, active FROM OLD TABLE (DELETE FROM users WHERE id = ?)";
+
+    private static final String SELECT_ALL_USERS_SQL = "SELECT * FROM users ORDER BY created_at DESC";
+
+    private static final String SELECT_USERS_BY_DEPARTMENT_SQL =
+            "SELECT * FROM users WHERE department = ? AND active = TRUE";
+
+    private static final String COUNT_BY_DEPARTMENT_SQL =
+            "SELECT COUNT(*) FROM users WHERE department=? AND active=TRUE";
+
+    // searchUsers: los filtros y la paginación solo admiten 64 combinaciones, así que
+    // el SQL de cada una se construye una vez y se indexa por una máscara de bits.
+    // La paginación es por clave (keyset): ORDER BY id y "id > último id visto" en
+    // lugar de OFFSET, apoyada en los índices (department, id) y (role, id).
+    private static final int FILTER_DEPARTMENT = 1;
+    private static final int FILTER_ROLE = 1 << 1;
+    private static final int FILTER_ACTIVE = 1 << 2;
+    private static final int SEEK_AFTER_ID = 1 << 3;
+    private static final int PAGE_LIMIT = 1 << 4;
+    private static final int PAGE_OFFSET = 1 << 5;
+
+    private static final String[] SEARCH_USERS_SQL = buildSearchTemplates();
+
+    /**
+     * Sentencias de solo lectura que el calentamiento de arranque prepara en cada
+     * conexión del pool de la base principal (ver DatabaseConfig.prewarmPool): quedan
+     * parseadas y planificadas en su caché de PreparedStatement sin tocar datos.
+     */
+    public static final List<String> READ_STATEMENTS = List.of(
+            SELECT_USER_BY_ID_SQL,
+            SELECT_ALL_USERS_SQL,
+            SELECT_USERS_BY_DEPARTMENT_SQL,
+            COUNT_BY_DEPARTMENT_SQL,
+            SEARCH_USERS_SQL[FILTER_DEPARTMENT | FILTER_ACTIVE | PAGE_LIMIT]);
+
+    // Prefijo de versión del cursor de paginación (el token es opaco para el cliente)
+    private static final String CURSOR_PREFIX = "id:";
+
+    private static String[] buildSearchTemplates() {
+        String[] templates = new String[64];
+        for (int mask = 0; mask < templates.length; mask++) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE 1=1");
+            if ((mask & FILTER_DEPARTMENT) != 0) {
+                sql.append(" AND department = ?");
+            }
+            if ((mask & FILTER_ROLE) != 0) {
+                sql.append(" AND role = ?");
+            }
+            if ((mask & FILTER_ACTIVE) != 0) {
+                sql.append(" AND active = ?");
+            }
+            if ((mask & SEEK_AFTER_ID) != 0) {
+                sql.append(" AND id > ?");
+            }
+            sql.append(" ORDER BY id");
+            if ((mask & PAGE_LIMIT) != 0) {
+                sql.append(" LIMIT ?");
+            }
+            if ((mask & PAGE_OFFSET) != 0) {
+                sql.append(" OFFSET ?");
+            }
+            templates[mask] = sql.toString();
+        }
+        return templates;
+    }
+
+    // updateUser: el SET solo incluye las columnas que trae el DTO (5 columnas, 32
+    // combinaciones indexadas por máscara de bits). El UPDATE va envuelto en
+    // OLD TABLE de H2 para devolver la fila anterior en la misma sentencia (la nueva
+    // es la anterior con el DTO aplicado), y solo escribe si algún valor cambia
+    // (IS DISTINCT FROM).
+    private static final String[] UPDATE_COLUMNS = {"name", "email", "department", "role", "active"};
+
+    private static final String[] UPDATE_USER_SQL = buildUpdateTemplates();
+
+    private static String[] buildUpdateTemplates() {
+        String[] templates = new String[1 << UPDATE_COLUMNS.length];
+        for (int mask = 1; mask < templates.length; mask++) {
+            StringBuilder set = new StringBuilder();
+            StringBuilder changed = new StringBuilder();
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    set.append(UPDATE_COLUMNS[i]).append(" = ?, ");
+                    changed.append(changed.length() == 0 ? "" : " OR ")
+                            .append(UPDATE_COLUMNS[i]).append(" IS DISTINCT FROM ?");
+                }
+            }
+            templates[mask] = "SELECT id, name, email, department, role, active, created_at, updated_at " +
+                    "FROM OLD TABLE (UPDATE users SET " + set + "updated_at = ? " +
+                    "WHERE id = ? AND (" + changed + "))";
+        }
+        return templates;
+    }
 
     // ========== CE2.a: Connection Management ==========
 
@@ -61,9 +282,11 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
     @Override
     public String testConnection() {
         // Patrón try-with-resources: cierra automáticamente Connection, Statement, ResultSet
+        long start = System.nanoTime();
         try (Connection conn = DatabaseConfig.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT 1 as test, DATABASE() as db_name")) {
+            TEST_CONNECTION_METRICS.executed(start);
 
             // Validar que la conexión está abierta
             if (conn.isClosed()) {
@@ -105,11 +328,12 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
      */
     @Override
     public User createUser(UserCreateDto dto) {
-        String sql = "INSERT INTO users (name, email, department, role, active, created_at, updated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        if (isGroupCommit()) {
+            return awaitGroupCommit(GroupCommitQueue.PendingWrite.insert(dto));
+        }
+        try (DepartmentCounters.Update counts = departmentCounters.begin();
+             Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
             // Setear parámetros del PreparedStatement
             // Índices empiezan en 1, no en 0
@@ -122,16 +346,22 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
             pstmt.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now())); // updated_at
 
             // Ejecutar INSERT y obtener número de filas afectadas
+            long start = System.nanoTime();
             int affectedRows = pstmt.executeUpdate();
+            INSERT_USER_METRICS.executed(start);
+            INSERT_USER_METRICS.affected(affectedRows);
 
             if (affectedRows == 0) {
                 throw new RuntimeException("Error: INSERT no afectó ninguna fila");
             }
+            recordWrites(affectedRows);
+            counts.add(dto.getDepartment(), 1);
 
             // Obtener el ID autogenerado
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     Long generatedId = generatedKeys.getLong(1);
+                    afterWrite(() -> userCache.invalidate(generatedId));
 
                     // Crear objeto User con el ID generado
                     User newUser = new User(generatedId, dto.getName(), dto.getEmail(),
@@ -147,14 +377,18 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
             }
 
         } catch (SQLException e) {
-            // Manejar errores específicos como email duplicado
-            if (e.getMessage().contains("Unique index or primary key violation")) {
-                throw new RuntimeException("Error: El email '" + dto.getEmail() + "' ya está registrado", e);
-            }
-            throw new RuntimeException("Error al crear usuario: " + e.getMessage(), e);
+            throw createUserError(dto, e);
         }
     }
 
+    private static RuntimeException createUserError(UserCreateDto dto, SQLException e) {
+        // Manejar errores específicos como email duplicado
+        if (e.getMessage().contains("Unique index or primary key violation")) {
+            return new RuntimeException("Error: El email '" + dto.getEmail() + "' ya está registrado", e);
+        }
+        return new RuntimeException("Error al crear usuario: " + e.getMessage(), e);
+    }
+
     /**
      * ✅ EJEMPLO IMPLEMENTADO 3/5: SELECT y mapeo de ResultSet
      *
@@ -166,20 +400,35 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
      */
     @Override
     public User findUserById(Long id) {
-        String sql = "SELECT id, name, email, department, role, active, created_at, updated_at " +
-                     "FROM users WHERE id = ?";
+        // Caché por id: con requireFresh se consulta siempre la base de datos
+        boolean useCache = isCacheUsable() && !CallOptions.current().isNoCache();
+        if (useCache && !CallOptions.current().isRequireFresh()) {
+            User cached = userCache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long stamp = userCache.stamp(id);
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConfig.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_USER_BY_ID_SQL)) {
 
             // Setear parámetro WHERE id = ?
             pstmt.setLong(1, id);
 
+            long start = System.nanoTime();
             try (ResultSet rs = pstmt.executeQuery()) {
+                SELECT_USER_BY_ID_METRICS.executed(start);
                 // next() retorna true si hay un resultado, false si no
                 if (rs.next()) {
+                    SELECT_USER_BY_ID_METRICS.returned(1);
                     // Mapear ResultSet a objeto User
-                    return mapResultSetToUser(rs);
+                    User user = mapResultSetToUser(rs);
+                    // Lo leído de la réplica puede ir por detrás: solo se cachea lo de la principal
+                    if (useCache && isReadFromPrimary()) {
+                        userCache.putIfUnchanged(user, stamp);
+                    }
+                    return user;
                 } else {
                     // No se encontró usuario con ese ID
                     return null;
@@ -191,72 +440,210 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
         }
     }
 
+    @Override
+    public Map<Long, User> findUsersByIds(List<Long> ids) {
+        Map<Long, User> found = new HashMap<>();
+        // Mismas reglas de caché que findUserById: solo se consultan los que faltan
+        boolean useCache = isCacheUsable() && !CallOptions.current().isNoCache();
+        Set<Long> pending = new LinkedHashSet<>();
+        for (Long id : ids) {
+            User cached = useCache && !CallOptions.current().isRequireFresh() ? userCache.get(id) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                pending.add(id);
+            }
+        }
+        if (pending.isEmpty()) {
+            return found;
+        }
+        List<Long> missing = new ArrayList<>(pending);
+
+        Map<Long, Long> stamps = new HashMap<>();
+        for (Long id : missing) {
+            stamps.put(id, userCache.stamp(id));
+        }
+        try (Connection conn = DatabaseConfig.getReadConnection()) {
+            for (int from = 0; from < missing.size(); from += MAX_IDS_PER_QUERY) {
+                List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + MAX_IDS_PER_QUERY));
+                int placeholders = Integer.highestOneBit(chunk.size() * 2 - 1);
+                try (PreparedStatement pstmt = conn.prepareStatement(selectUsersByIdsSql(placeholders))) {
+                    for (int i = 0; i < placeholders; i++) {
+                        pstmt.setLong(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+
+                    long start = System.nanoTime();
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        SELECT_USERS_BY_IDS_METRICS.executed(start);
+                        int rows = 0;
+                        while (rs.next()) {
+                            User user = mapResultSetToUser(rs);
+                            found.put(user.getId(), user);
+                            if (useCache && isReadFromPrimary()) {
+                                userCache.putIfUnchanged(user, stamps.get(user.getId()));
+                            }
+                            rows++;
+                        }
+                        SELECT_USERS_BY_IDS_METRICS.returned(rows);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al buscar usuarios por ID " + missing + ": " + e.getMessage(), e);
+        }
+        return found;
+    }
+
+    private static String selectUsersByIdsSql(int placeholders) {
+        return SELECT_USERS_BY_IDS_SQL.computeIfAbsent(placeholders, n -> {
+            StringBuilder sql = new StringBuilder(SELECT_USER_BY_ID_SQL.substring(0, SELECT_USER_BY_ID_SQL.indexOf("id = ?")))
+                    .append("id IN (");
+            for (int i = 0; i < n; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            return sql.append(")").toString();
+        });
+    }
+
     /**
      * ✅ EJEMPLO IMPLEMENTADO 4/5: UPDATE statement
      *
      * Este método muestra cómo:
-     * - Validar que un registro existe antes de actualizar
      * - Construir UPDATE statement con campos opcionales
      * - Actualizar solo los campos proporcionados
-     * - Verificar filas afectadas
+     * - Obtener la fila anterior en la misma sentencia (OLD TABLE) y aplicarle el DTO
+     * - Distinguir "no existe" de "no había nada que cambiar"
      */
     @Override
     public User updateUser(Long id, UserUpdateDto dto) {
-        // Primero verificar que el usuario existe
-        User existing = findUserById(id);
-        if (existing == null) {
-            throw new RuntimeException("No se encontró usuario con ID " + id);
+        if (isGroupCommit()) {
+            return awaitGroupCommit(GroupCommitQueue.PendingWrite.update(id, dto));
         }
+        try (DepartmentCounters.Update counts = departmentCounters.begin();
+             Connection conn = DatabaseConfig.getConnection()) {
+            User[] change = executeUpdate(conn, id, dto);
+            if (change != null) {
+                recordWrites(1);
+                updated(change[0], change[1], counts);
+                return change[1];
+            }
 
-        // Aplicar actualizaciones del DTO al usuario existente
-        dto.applyTo(existing);
+            // Ninguna fila actualizada: o no existe, o el DTO no cambia nada (sin escritura)
+            return selectExistingUser(conn, id);
 
-        // Construir UPDATE statement
-        String sql = "UPDATE users SET name = ?, email = ?, department = ?, role = ?, " +
-                     "active = ?, updated_at = ? WHERE id = ?";
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al actualizar usuario con ID " + id + ": " + e.getMessage(), e);
+        }
+    }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Setear todos los parámetros (incluso los no modificados)
-            pstmt.setString(1, existing.getName());
-            pstmt.setString(2, existing.getEmail());
-            pstmt.setString(3, existing.getDepartment());
-            pstmt.setString(4, existing.getRole());
-            pstmt.setBoolean(5, existing.getActive());
-            pstmt.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
-            pstmt.setLong(7, id);
-
-            // Ejecutar UPDATE
-            int affectedRows = pstmt.executeUpdate();
+    /**
+     * UPDATE de las columnas que trae el DTO en conn.
+     *
+     * @return {fila anterior, fila nueva}, o null si no existe o el DTO no cambia nada
+     */
+    private User[] executeUpdate(Connection conn, Long id, UserUpdateDto dto) throws SQLException {
+        Object[] values = {dto.getName(), dto.getEmail(), dto.getDepartment(), dto.getRole(), dto.getActive()};
+        int mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        if (mask == 0) {
+            return null;
+        }
 
-            if (affectedRows == 0) {
-                throw new RuntimeException("Error: UPDATE no afectó ninguna fila");
+        try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_USER_SQL[mask])) {
+            // SET con los campos del DTO, luego updated_at e id,
+            // y de nuevo los campos para la condición IS DISTINCT FROM
+            int index = 1;
+            for (Object value : values) {
+                if (value != null) {
+                    pstmt.setObject(index++, value);
+                }
+            }
+            // TIMESTAMP guarda microsegundos: así la fila devuelta coincide con la guardada
+            LocalDateTime updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            pstmt.setTimestamp(index++, Timestamp.valueOf(updatedAt));
+            pstmt.setLong(index++, id);
+            for (Object value : values) {
+                if (value != null) {
+                    pstmt.setObject(index++, value);
+                }
+            }
+
+            long start = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                UPDATE_USER_METRICS.executed(start);
+                if (!rs.next()) {
+                    return null;
+                }
+                UPDATE_USER_METRICS.affected(1);
+                User previous = mapResultSetToUser(rs);
+                User updated = mapResultSetToUser(rs);
+                dto.applyTo(updated);
+                updated.setUpdatedAt(updatedAt);
+                return new User[]{previous, updated};
             }
+        }
+    }
 
-            // Retornar usuario actualizado
-            return findUserById(id);
+    /**
+     * Contadores y caché tras confirmar un UPDATE
+     */
+    private void updated(User previous, User updated, DepartmentCounters.Update counts) {
+        // Activos por departamento: sale la fila anterior y entra la nueva
+        counts.add(previous.getDepartment(), Boolean.TRUE.equals(previous.getActive()) ? -1 : 0);
+        counts.add(updated.getDepartment(), Boolean.TRUE.equals(updated.getActive()) ? 1 : 0);
+        // Se invalida en lugar de cachear updated: dos UPDATE concurrentes pueden
+        // confirmar en un orden y llegar aquí en el otro, y la caché se quedaría con
+        // la fila antigua. La siguiente lectura la recarga con stamp/putIfUnchanged.
+        afterWrite(() -> userCache.invalidate(updated.getId()));
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al actualizar usuario con ID " + id + ": " + e.getMessage(), e);
+    private User selectExistingUser(Connection conn, Long id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_USER_BY_ID_SQL)) {
+            pstmt.setLong(1, id);
+            long start = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                SELECT_USER_BY_ID_METRICS.executed(start);
+                if (rs.next()) {
+                    SELECT_USER_BY_ID_METRICS.returned(1);
+                    return mapResultSetToUser(rs);
+                }
+            }
         }
+        throw new RuntimeException("No se encontró usuario con ID " + id);
     }
 
     @Override
     public boolean deleteUser(Long id) {
-        User existing = findUserById(id);
-        if (existing == null) {
-            System.out.println("No se encontró usuario con ID " + id);
-            return false;
-        }
-        String sql = "DELETE FROM users WHERE id = ?";
-
-        try(Connection conn = DatabaseConfig.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)){
+        try(DepartmentCounters.Update counts = departmentCounters.begin();
+            Connection conn = DatabaseConfig.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(DELETE_USER_SQL)){
             pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+
+            int affectedRows = 0;
+            long start = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                DELETE_USER_METRICS.executed(start);
+                while (rs.next()) {
+                    affectedRows++;
+                    counts.add(rs.getString("department"), rs.getBoolean("active") ? -1 : 0);
+                }
+            }
+            DELETE_USER_METRICS.affected(affectedRows);
+
+            afterWrite(() -> userCache.invalidate(id));
+            if (affectedRows == 0) {
+                System.out.println("No se encontró usuario con ID " + id);
+                return false;
+            }
+            recordWrites(affectedRows);
 
         }catch(SQLException e){
+            // No llega a McpToolExecutor como excepción: se cuenta aquí
+            Metrics.sqlError(e);
             System.out.println("Error al eliminar usuario con ID " + id + ": " + e.getMessage());
             return false;
         }
@@ -267,16 +654,19 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
     public List<User> findAll() {
 
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users ORDER BY created_at DESC";
 
-        try(Connection conn = DatabaseConfig.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            ResultSet rs = pstmt.executeQuery()){
+        try(Connection conn = DatabaseConfig.getReadConnection();
+            PreparedStatement pstmt = conn.prepareStatement(SELECT_ALL_USERS_SQL)){
 
-            while (rs.next()) {
-                User user = mapResultSetToUser(rs);
-                users.add(user);
+            long start = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                SELECT_ALL_USERS_METRICS.executed(start);
+                while (rs.next()) {
+                    User user = mapResultSetToUser(rs);
+                    users.add(user);
+                }
             }
+            SELECT_ALL_USERS_METRICS.returned(users.size());
 
 
         }catch (SQLException e) {
@@ -290,21 +680,28 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
 
     @Override
     public List<User> findUsersByDepartment(String department) {
-        List<User> users = new ArrayList<>();
+        StringBuilder key = queryKey("department");
+        appendKeyPart(key, department);
+        return cachedQuery(key.toString(), () -> new UserPage(queryUsersByDepartment(department), null)).getUsers();
+    }
 
-        String sql = "SELECT * FROM users WHERE department = ? AND active = TRUE";
+    private List<User> queryUsersByDepartment(String department) {
+        List<User> users = new ArrayList<>();
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConfig.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_USERS_BY_DEPARTMENT_SQL)) {
 
 
             pstmt.setString(1, department);//setea el parametro
 
+            long start = System.nanoTime();
             try (ResultSet rs = pstmt.executeQuery()) {
+                SELECT_BY_DEPARTMENT_METRICS.executed(start);
                 while (rs.next()) {
                     users.add(mapResultSetToUser(rs));
                 }
             }
+            SELECT_BY_DEPARTMENT_METRICS.returned(users.size());
 
         } catch (SQLException e) {
             throw new RuntimeException("Error al consultar usuarios por departamento: " + e.getMessage(), e);
@@ -315,46 +712,124 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
 
     @Override
     public List<User> searchUsers(UserQueryDto query) {
-        List<User> users = new ArrayList<>();
-
-        StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE 1=1");
-
-        List<Object> params = new ArrayList<>();
-
-        if (query.getDepartment() != null && !query.getDepartment().isEmpty()) {
-            sql.append(" AND department = ?");
-            params.add(query.getDepartment());
-        }
+        return searchUsersPage(query).getUsers();
+    }
 
-        if (query.getRole() != null && !query.getRole().isEmpty()) {
-            sql.append(" AND role = ?");
-            params.add(query.getRole());
-        }
+    @Override
+    public UserPage searchUsersPage(UserQueryDto query) {
+        int mask = searchMask(query, true);
+        return cachedQuery(searchKey(query, mask), () -> querySearchPage(query, mask));
+    }
 
-        if (query.getActive() != null) {
-            sql.append(" AND active = ?");
-            params.add(query.getActive());
-        }
+    private UserPage querySearchPage(UserQueryDto query, int mask) {
+        List<User> users = new ArrayList<>();
+        // Se pide una fila de más para saber si hay página siguiente
+        int limit = (mask & PAGE_LIMIT) != 0 ? query.getLimit() : Integer.MAX_VALUE;
 
-        try(Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql.toString())){
-            for (int i = 0; i < params.size(); i++) {
-                pstmt.setObject(i + 1, params.get(i));
-            }
+        try(Connection conn = DatabaseConfig.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SEARCH_USERS_SQL[mask])){
+            bindSearchParameters(pstmt, query, mask);
 
+            long start = System.nanoTime();
             try (ResultSet rs = pstmt.executeQuery()){
+                SEARCH_USERS_METRICS.executed(start);
                 while (rs.next()) {
                     User user = mapResultSetToUser(rs);
                     users.add(user);
 
                 }
             }
+            SEARCH_USERS_METRICS.returned(users.size());
 
         }catch(SQLException e){
             throw new RuntimeException("Error al buscar usuarios:" + e.getMessage(), e);
         }
 
-        return users;
+        if (users.size() > limit) {
+            users.remove(users.size() - 1);
+            return new UserPage(users, encodeCursor(users.get(users.size() - 1).getId()));
+        }
+        return new UserPage(users, null);
+    }
+
+    // ========== Streaming ==========
+
+    @Override
+    public Stream<User> streamAll() {
+        return streamQuery(SELECT_ALL_USERS_SQL, pstmt -> { });
+    }
+
+    @Override
+    public Stream<User> streamSearchUsers(UserQueryDto query) {
+        int mask = searchMask(query, false);
+        return streamQuery(SEARCH_USERS_SQL[mask], pstmt -> bindSearchParameters(pstmt, query, mask));
+    }
+
+    /**
+     * Ejecuta una consulta y expone su ResultSet como Stream perezoso.
+     *
+     * El PreparedStatement usa el cursor por defecto de JDBC (TYPE_FORWARD_ONLY,
+     * CONCUR_READ_ONLY) con fetchSize filas por viaje. Los recursos se cierran
+     * en onClose(), así que el Stream debe cerrarse siempre.
+     */
+    private Stream<User> streamQuery(String sql, ParameterBinder binder) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DatabaseConfig.getReadConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(fetchSize);
+            binder.bind(pstmt);
+            long start = System.nanoTime();
+            ResultSet rs = pstmt.executeQuery();
+            STREAM_USERS_METRICS.executed(start);
+
+            Spliterator<User> rows = new Spliterators.AbstractSpliterator<User>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super User> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        STREAM_USERS_METRICS.returned(1);
+                        action.accept(mapResultSetToUser(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Error leyendo usuarios en streaming: " + e.getMessage(), e);
+                    }
+                }
+            };
+
+            Connection openConn = conn;
+            PreparedStatement openStmt = pstmt;
+            return StreamSupport.stream(rows, false)
+                    .onClose(() -> closeQuietly(rs, openStmt, openConn));
+
+        } catch (SQLException e) {
+            closeQuietly(null, pstmt, conn);
+            throw new RuntimeException("Error al consultar usuarios en streaming: " + e.getMessage(), e);
+        }
+    }
+
+    private static void closeQuietly(ResultSet rs, Statement stmt, Connection conn) {
+        for (AutoCloseable resource : new AutoCloseable[]{rs, stmt, conn}) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    System.err.println("Error al cerrar recurso JDBC: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Asigna los parámetros de un PreparedStatement (puede lanzar SQLException).
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
     }
 
 
@@ -369,115 +844,534 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
      * - Hacer commit si todo tiene éxito
      * - Hacer rollback si hay algún error
      * - Restaurar auto-commit al estado original
+     *
+     * Las filas se envían con addBatch()/executeBatch() en bloques de
+     * ra2.jdbc.transfer.chunk-size filas (ver transferData(List, boolean)).
      */
     @Override
     public boolean transferData(List<User> users) {
-        Connection conn = null;
+        TransferResult result = transferData(users, false);
+        if (!result.isComplete()) {
+            String cause = result.getFailures().isEmpty() ? "error en el lote"
+                    : "fila " + result.getFailures().get(0).getRow() + " ("
+                    + result.getFailures().get(0).getEmail() + "): " + result.getFailures().get(0).getError();
+            throw new RuntimeException("Error en transacción, se hizo rollback: " + cause, result.getFirstError());
+        }
+        return true;
+    }
 
-        try {
-            // Obtener conexión
-            conn = DatabaseConfig.getConnection();
+    @Override
+    public TransferResult transferData(List<User> users, boolean bestEffort) {
+        int chunkSize = Math.max(1, transferChunkSize);
+        TransferResult result = new TransferResult(
+                bestEffort ? TransferResult.MODE_BEST_EFFORT : TransferResult.MODE_ALL_OR_NOTHING, chunkSize);
+        if (users == null || users.isEmpty()) {
+            return result;
+        }
+        long start = System.nanoTime();
+        List<User> inserted = new ArrayList<>(users.size());
+
+        try (DepartmentCounters.Update counts = departmentCounters.begin();
+             Connection conn = DatabaseConfig.getConnection()) {
 
             // IMPORTANTE: Desactivar auto-commit para control manual
             conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_USER_SQL)) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+                for (int from = 0; from < users.size(); from += chunkSize) {
+                    List<User> chunk = users.subList(from, Math.min(from + chunkSize, users.size()));
+                    result.setChunks(result.getChunks() + 1);
+                    // Savepoint por bloque solo en best_effort: all_or_nothing deshace todo
+                    Savepoint savepoint = bestEffort ? conn.setSavepoint() : null;
+                    try {
+                        for (User user : chunk) {
+                            bindInsertParameters(pstmt, user, now);
+                            pstmt.addBatch();
+                        }
+                        long batchStart = System.nanoTime();
+                        pstmt.executeBatch();
+                        TRANSFER_INSERT_METRICS.executed(batchStart);
+                        TRANSFER_INSERT_METRICS.affected(chunk.size());
+                        inserted.addAll(chunk);
+
+                    } catch (SQLException e) {
+                        pstmt.clearBatch();
+                        if (!bestEffort) {
+                            // ROLLBACK: deshacer todos los cambios de la transacción
+                            conn.rollback();
+                            recordBatchFailures(result, chunk, from, e);
+                            result.setRolledBack(true);
+                            return result;
+                        }
+                        conn.rollback(savepoint);
+                        insertRowByRow(conn, pstmt, chunk, from, now, result, inserted);
+                    }
+                }
 
-            String sql = "INSERT INTO users (name, email, department, role, active, created_at, updated_at) " +
-                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
+                // COMMIT: hacer permanentes los cambios
+                conn.commit();
 
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                // Insertar cada usuario en la transacción
-                for (User user : users) {
-                    pstmt.setString(1, user.getName());
-                    pstmt.setString(2, user.getEmail());
-                    pstmt.setString(3, user.getDepartment());
-                    pstmt.setString(4, user.getRole());
-                    pstmt.setBoolean(5, user.getActive() != null ? user.getActive() : true);
-                    pstmt.setTimestamp(6, Timestamp.valueOf(
-                            user.getCreatedAt() != null ? user.getCreatedAt() : LocalDateTime.now()));
-                    pstmt.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
-
-                    pstmt.executeUpdate();
-                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                // IMPORTANTE: Restaurar auto-commit antes de devolver la conexión
+                conn.setAutoCommit(true);
+                result.setTotalMicros((System.nanoTime() - start) / 1000);
             }
 
-            // Si llegamos aquí, todas las inserciones fueron exitosas
-            // COMMIT: hacer permanentes los cambios
-            conn.commit();
-
-            return true;
+            result.setInserted(inserted.size());
+            recordWrites(inserted.size());
+            // Solo inserta filas con ids nuevos: ninguna puede estar en userCache
+            for (User user : inserted) {
+                counts.add(user.getDepartment(), user.getActive() == null || user.getActive() ? 1 : 0);
+            }
+            return result;
 
         } catch (SQLException e) {
-            // Si hubo algún error, deshacer TODOS los cambios
-            if (conn != null) {
-                try {
-                    // ROLLBACK: deshacer todos los cambios de la transacción
-                    conn.rollback();
-                } catch (SQLException rollbackEx) {
-                    throw new RuntimeException("Error crítico en rollback: " + rollbackEx.getMessage(), rollbackEx);
-                }
+            throw new RuntimeException("Error en transacción, se hizo rollback: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ImportResult importUsers(String path, String format, boolean deferIndexes) {
+        // Cada bloque es una transferencia best_effort: confirma sus filas válidas,
+        // actualiza contadores y cachés, e informa de las rechazadas
+        return userImporter.importFile(path, format, deferIndexes, chunk -> transferData(chunk, true));
+    }
+
+    @Override
+    public ExportResult exportUsers(String path, String format, String table, List<String> columns, UserExportFilter filter) {
+        return userExporter.export(path, format, table, columns, filter);
+    }
+
+    /**
+     * best_effort: reintenta un bloque fallido fila a fila, cada una con su savepoint,
+     * para confirmar las válidas y anotar el error de las demás.
+     */
+    private static void insertRowByRow(Connection conn, PreparedStatement pstmt, List<User> chunk, int firstRow,
+                                       Timestamp now, TransferResult result, List<User> inserted) throws SQLException {
+        for (int i = 0; i < chunk.size(); i++) {
+            User user = chunk.get(i);
+            Savepoint row = conn.setSavepoint();
+            try {
+                bindInsertParameters(pstmt, user, now);
+                long start = System.nanoTime();
+                pstmt.executeUpdate();
+                TRANSFER_INSERT_METRICS.executed(start);
+                TRANSFER_INSERT_METRICS.affected(1);
+                inserted.add(user);
+            } catch (SQLException e) {
+                conn.rollback(row);
+                result.addFailure(firstRow + i, user.getEmail(), e);
             }
+        }
+    }
 
-            throw new RuntimeException("Error en transacción, se hizo rollback: " + e.getMessage(), e);
+    /**
+     * all_or_nothing: filas culpables de un executeBatch() fallido. Si el driver
+     * indica qué filas fallaron (EXECUTE_FAILED o lote cortado) se anotan esas;
+     * si no, se anota todo el bloque.
+     */
+    private static void recordBatchFailures(TransferResult result, List<User> chunk, int firstRow, SQLException e) {
+        int[] updateCounts = e instanceof BatchUpdateException batch ? batch.getUpdateCounts() : null;
+        for (int i = 0; i < chunk.size(); i++) {
+            boolean failed = updateCounts == null
+                    || (i < updateCounts.length ? updateCounts[i] == Statement.EXECUTE_FAILED : i == updateCounts.length);
+            if (failed) {
+                result.addFailure(firstRow + i, chunk.get(i).getEmail(), e);
+            }
+        }
+    }
 
-        } finally {
-            // IMPORTANTE: Restaurar auto-commit y cerrar conexión
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true); // Restaurar estado original
-                    conn.close();
-                } catch (SQLException e) {
-                    // Registrar error pero no lanzar excepción en finally
-                    System.err.println("Error al cerrar conexión: " + e.getMessage());
-                }
+    /**
+     * Parámetros de INSERT_USER_SQL (active null cuenta como true).
+     */
+    private static void bindInsertParameters(PreparedStatement pstmt, User user, Timestamp now) throws SQLException {
+        pstmt.setString(1, user.getName());
+        pstmt.setString(2, user.getEmail());
+        pstmt.setString(3, user.getDepartment());
+        pstmt.setString(4, user.getRole());
+        pstmt.setBoolean(5, user.getActive() != null ? user.getActive() : true);
+        pstmt.setTimestamp(6, user.getCreatedAt() != null ? Timestamp.valueOf(user.getCreatedAt()) : now);
+        pstmt.setTimestamp(7, now);
+    }
+
+    // ========== GROUP COMMIT ==========
+
+    /**
+     * create_user y update_user pasan por la cola de group commit si está activa
+     * (nunca dentro de una transacción desechable ni de un lote de herramientas:
+     * esa escritura debe quedarse en su conexión).
+     */
+    private boolean isGroupCommit() {
+        return groupCommitQueue.isEnabled() && !ThrowawayTransaction.isActive() && !BatchConnection.isActive();
+    }
+
+    /**
+     * Encola la escritura y espera a que el hilo escritor confirme su grupo.
+     */
+    private User awaitGroupCommit(GroupCommitQueue.PendingWrite write) {
+        groupCommitQueue.start(this::flushGroup);
+        groupCommitQueue.submit(write);
+        try {
+            return write.getResult().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw new RuntimeException("Error en el commit agrupado: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
-    @Override
-    public int batchInsertUsers(List<User> users) {
-        if (users == null || users.isEmpty()) {
-            return 0;
+    /**
+     * Ejecuta un grupo de la cola en una sola transacción (hilo escritor de GroupCommitQueue).
+     *
+     * - Los INSERT van en un executeBatch(); si alguno falla, se repiten uno a uno
+     *   y solo falla la llamada de esa fila.
+     * - Los UPDATE del mismo id se fusionan en uno (el campo más reciente gana) y
+     *   todas esas llamadas reciben la fila final.
+     * - Cada escritura tiene su savepoint: un error no deshace las demás.
+     *
+     * Contadores, cachés y futuros se actualizan después del commit; si el commit
+     * falla, fallan todas las llamadas del grupo.
+     */
+    private void flushGroup(List<GroupCommitQueue.PendingWrite> writes) {
+        List<GroupCommitQueue.PendingWrite> inserts = new ArrayList<>();
+        Map<Long, List<GroupCommitQueue.PendingWrite>> updatesById = new LinkedHashMap<>();
+        for (GroupCommitQueue.PendingWrite write : writes) {
+            if (write.isInsert()) {
+                inserts.add(write);
+            } else {
+                updatesById.computeIfAbsent(write.getId(), id -> new ArrayList<>()).add(write);
+            }
         }
 
-        String sql = "INSERT INTO users (name, email, department, role, active, created_at, updated_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        Map<GroupCommitQueue.PendingWrite, User> results = new IdentityHashMap<>();
+        Map<GroupCommitQueue.PendingWrite, RuntimeException> errors = new IdentityHashMap<>();
+        List<User> inserted = new ArrayList<>();
+        List<User[]> changes = new ArrayList<>();
 
+        try (DepartmentCounters.Update counts = departmentCounters.begin();
+             Connection conn = DatabaseConfig.getConnection()) {
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                insertGroup(conn, inserts, results, errors, inserted);
+                for (Map.Entry<Long, List<GroupCommitQueue.PendingWrite>> entry : updatesById.entrySet()) {
+                    Long id = entry.getKey();
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        User[] change = executeUpdate(conn, id, coalesce(entry.getValue()));
+                        User row;
+                        if (change != null) {
+                            changes.add(change);
+                            row = change[1];
+                        } else {
+                            row = selectExistingUser(conn, id);
+                        }
+                        for (GroupCommitQueue.PendingWrite write : entry.getValue()) {
+                            results.put(write, row);
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        RuntimeException error = e instanceof RuntimeException runtime ? runtime
+                                : new RuntimeException("Error al actualizar usuario con ID " + id + ": " + e.getMessage(), e);
+                        for (GroupCommitQueue.PendingWrite write : entry.getValue()) {
+                            errors.put(write, error);
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
+            // Ya visible para otras conexiones
+            if (!inserted.isEmpty() || !changes.isEmpty()) {
+                recordWrites(inserted.size() + changes.size());
+            }
+            for (User user : inserted) {
+                counts.add(user.getDepartment(), 1);
+                afterWrite(() -> userCache.invalidate(user.getId()));
+            }
+            for (User[] change : changes) {
+                updated(change[0], change[1], counts);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error en el commit agrupado de " + writes.size() + " escrituras: " + e.getMessage(), e);
+        }
+
+        for (GroupCommitQueue.PendingWrite write : writes) {
+            RuntimeException error = errors.get(write);
+            if (error != null) {
+                write.getResult().completeExceptionally(error);
+            } else {
+                write.getResult().complete(results.get(write));
+            }
+        }
+    }
 
-            for (User user : users) {
-                pstmt.setString(1, user.getName());
-                pstmt.setString(2, user.getEmail());
-                pstmt.setString(3, user.getDepartment());
-                pstmt.setString(4, user.getRole());
-                pstmt.setBoolean(5, user.getActive());
-                LocalDateTime now = LocalDateTime.now();
-                pstmt.setTimestamp(6, user.getCreatedAt() != null ? Timestamp.valueOf(user.getCreatedAt()) : Timestamp.valueOf(now));
-                pstmt.setTimestamp(7, Timestamp.valueOf(now));
+    /**
+     * INSERT de las altas del grupo: un executeBatch() y, si falla, fila a fila con savepoint.
+     */
+    private void insertGroup(Connection conn, List<GroupCommitQueue.PendingWrite> inserts,
+                                    Map<GroupCommitQueue.PendingWrite, User> results,
+                                    Map<GroupCommitQueue.PendingWrite, RuntimeException> errors,
+                                    List<User> inserted) throws SQLException {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp now = Timestamp.valueOf(createdAt);
+        List<User> users = new ArrayList<>(inserts.size());
+        for (GroupCommitQueue.PendingWrite write : inserts) {
+            UserCreateDto dto = write.getCreate();
+            User user = new User(null, dto.getName(), dto.getEmail(), dto.getDepartment(), dto.getRole());
+            user.setActive(true);
+            user.setCreatedAt(createdAt);
+            user.setUpdatedAt(createdAt);
+            users.add(user);
+        }
 
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                for (User user : users) {
+                    bindInsertParameters(pstmt, user, now);
+                    pstmt.addBatch();
+                }
+                long start = System.nanoTime();
+                pstmt.executeBatch();
+                GROUP_INSERT_METRICS.executed(start);
+                int keys = 0;
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    while (keys < users.size() && generatedKeys.next()) {
+                        users.get(keys++).setId(generatedKeys.getLong(1));
+                    }
+                }
+                if (keys < users.size()) {
+                    throw new SQLException("INSERT por lotes sin id generado para todas las filas");
+                }
+            } catch (SQLException e) {
+                // Deshacer el lote y repetir fila a fila para saber cuál falla
+                pstmt.clearBatch();
+                conn.rollback(savepoint);
+                for (int i = 0; i < users.size(); i++) {
+                    User user = users.get(i);
+                    Savepoint row = conn.setSavepoint();
+                    try {
+                        bindInsertParameters(pstmt, user, now);
+                        long start = System.nanoTime();
+                        pstmt.executeUpdate();
+                        GROUP_INSERT_METRICS.executed(start);
+                        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("INSERT exitoso pero no se generó ID");
+                            }
+                            user.setId(generatedKeys.getLong(1));
+                        }
+                    } catch (SQLException rowError) {
+                        conn.rollback(row);
+                        user.setId(null);
+                        errors.put(inserts.get(i), createUserError(inserts.get(i).getCreate(), rowError));
+                    }
+                }
+            }
+        }
 
-                pstmt.addBatch();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user.getId() != null) {
+                results.put(inserts.get(i), user);
+                inserted.add(user);
             }
+        }
+        GROUP_INSERT_METRICS.affected(inserted.size());
+    }
+
+    /**
+     * UPDATE equivalente a aplicar los DTO en orden: el último valor no nulo de cada campo gana.
+     */
+    private static UserUpdateDto coalesce(List<GroupCommitQueue.PendingWrite> updates) {
+        if (updates.size() == 1) {
+            return updates.get(0).getUpdate();
+        }
+        UserUpdateDto merged = new UserUpdateDto();
+        for (GroupCommitQueue.PendingWrite write : updates) {
+            UserUpdateDto dto = write.getUpdate();
+            if (dto.getName() != null) {
+                merged.setName(dto.getName());
+            }
+            if (dto.getEmail() != null) {
+                merged.setEmail(dto.getEmail());
+            }
+            if (dto.getDepartment() != null) {
+                merged.setDepartment(dto.getDepartment());
+            }
+            if (dto.getRole() != null) {
+                merged.setRole(dto.getRole());
+            }
+            if (dto.getActive() != null) {
+                merged.setActive(dto.getActive());
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public int batchInsertUsers(List<User> users) {
+        BatchInsertResult result = batchInsert(users);
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error durante la inserción por lotes (batch insert) de usuarios: bloque "
+                    + result.getFailedChunk() + ": " + result.getError()
+                    + " (" + result.getInserted() + " filas ya confirmadas)");
+        }
+        return result.getInserted();
+    }
+
+    @Override
+    public BatchInsertResult batchInsert(List<User> users) {
+        boolean perCall = "call".equalsIgnoreCase(batchTransaction);
+        int chunkSize = Math.max(1, batchChunkSize);
+        BatchInsertResult result = new BatchInsertResult(chunkSize, perCall ? "call" : "chunk");
+        if (users == null || users.isEmpty()) {
+            return result;
+        }
+        long start = System.nanoTime();
+
+        try (DepartmentCounters.Update counts = departmentCounters.begin();
+             Connection conn = DatabaseConfig.getConnection()) {
+
+            conn.setAutoCommit(false);
+            try {
+                // Con transaction = "call", ids de los bloques aún sin confirmar
+                List<Long> pendingIds = new ArrayList<>();
+
+                for (int from = 0, index = 0; from < users.size(); from += chunkSize, index++) {
+                    List<User> chunk = users.subList(from, Math.min(from + chunkSize, users.size()));
+                    long chunkStart = System.nanoTime();
+                    try {
+                        List<Long> ids = insertChunk(conn, chunk);
+                        if (perCall) {
+                            pendingIds.addAll(ids);
+                        } else {
+                            conn.commit();
+                            committed(chunk, ids, result, counts);
+                        }
+                        result.getChunks().add(new BatchInsertResult.Chunk(index, from, chunk.size(),
+                                (System.nanoTime() - chunkStart) / 1000, BatchInsertResult.STATUS_COMMITTED, null));
+
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        result.getChunks().add(new BatchInsertResult.Chunk(index, from, chunk.size(),
+                                (System.nanoTime() - chunkStart) / 1000, BatchInsertResult.STATUS_ROLLED_BACK, e.getMessage()));
+                        result.fail(index, e.getMessage());
+                        result.setSkippedRows(users.size() - from - chunk.size());
+                        if (perCall) {
+                            // El rollback deshace también los bloques anteriores
+                            result.getChunks().forEach(c -> c.setStatus(BatchInsertResult.STATUS_ROLLED_BACK));
+                        }
+                        return result;
+                    }
+                }
 
-            int[] updateCounts = pstmt.executeBatch();
+                if (perCall) {
+                    conn.commit();
+                    committed(users, pendingIds, result, counts);
+                }
+                return result;
 
-            int totalInserted = 0;
-            for (int count : updateCounts) {
-                totalInserted += count;
+            } finally {
+                conn.setAutoCommit(true);
+                result.setTotalMicros((System.nanoTime() - start) / 1000);
             }
-            return totalInserted;
 
         } catch (SQLException e) {
             throw new RuntimeException("Error durante la inserción por lotes (batch insert) de usuarios", e);
         }
     }
 
+    /**
+     * Inserta un bloque con un único INSERT multifila y devuelve sus ids generados,
+     * en el mismo orden que las filas.
+     */
+    private List<Long> insertChunk(Connection conn, List<User> chunk) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(multiRowInsertSql(chunk.size()),
+                Statement.RETURN_GENERATED_KEYS)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int index = 1;
+            for (User user : chunk) {
+                pstmt.setString(index++, user.getName());
+                pstmt.setString(index++, user.getEmail());
+                pstmt.setString(index++, user.getDepartment());
+                pstmt.setString(index++, user.getRole());
+                pstmt.setBoolean(index++, user.getActive() == null || user.getActive());
+                pstmt.setTimestamp(index++, user.getCreatedAt() != null ? Timestamp.valueOf(user.getCreatedAt()) : now);
+                pstmt.setTimestamp(index++, now);
+            }
+            long start = System.nanoTime();
+            BATCH_INSERT_METRICS.affected(pstmt.executeUpdate());
+            BATCH_INSERT_METRICS.executed(start);
+
+            List<Long> ids = new ArrayList<>(chunk.size());
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                }
+            }
+            if (ids.size() != chunk.size()) {
+                throw new SQLException("Se esperaban " + chunk.size() + " ids generados y se recibieron " + ids.size());
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Anota filas ya confirmadas: ids en los User y en el resultado, réplica,
+     * cachés y contadores por departamento.
+     */
+    private void committed(List<User> rows, List<Long> ids, BatchInsertResult result, DepartmentCounters.Update counts) {
+        for (int i = 0; i < rows.size(); i++) {
+            User user = rows.get(i);
+            user.setId(ids.get(i));
+            if (user.getActive() == null || user.getActive()) {
+                counts.add(user.getDepartment(), 1);
+            }
+        }
+        result.getGeneratedIds().addAll(ids);
+        // Solo inserta filas con ids nuevos: ninguna puede estar en userCache
+        recordWrites(rows.size());
+    }
+
+    /**
+     * INSERT con rows filas en VALUES. El de bloques completos se reutiliza en cada
+     * llamada (y lo cachea el pool); solo el último bloque suele tener otro tamaño.
+     */
+    private static String multiRowInsertSql(int rows) {
+        return MULTI_ROW_INSERT_SQL.computeIfAbsent(rows, n -> {
+            StringBuilder sql = new StringBuilder(INSERT_USER_SQL.substring(0, INSERT_USER_SQL.indexOf("VALUES")))
+                    .append("VALUES ");
+            for (int i = 0; i < n; i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+            }
+            return sql.toString();
+        });
+    }
+
     // ========== CE2.e: Metadata ==========
 
     @Override
     public String getDatabaseInfo() {
+        return schemaCache.get("info", this::loadDatabaseInfo);
+    }
+
+    private String loadDatabaseInfo() {
         StringBuilder infoBuilder = new StringBuilder();
 
         try (Connection conn = DatabaseConfig.getConnection()) {
@@ -522,9 +1416,21 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
 
     @Override
     public List<Map<String, Object>> getTableColumns(String tableName) {
+        // Se cachea la lista original y se devuelve una copia modificable
+        List<Map<String, Object>> cached = schemaCache.get("columns:" + tableName.toUpperCase(),
+                () -> loadTableColumns(tableName));
+        List<Map<String, Object>> columns = new ArrayList<>(cached.size());
+        for (Map<String, Object> column : cached) {
+            columns.add(new HashMap<>(column));
+        }
+        return columns;
+    }
+
+    private List<Map<String, Object>> loadTableColumns(String tableName) {
 
         List<Map<String, Object>> columns = new ArrayList<>();
 
+        // Metadatos siempre de la principal: la réplica puede no tener aún el último DDL
         try (Connection cnn = DatabaseConfig.getConnection()) {
             DatabaseMetaData dmd = cnn.getMetaData();
 
@@ -552,17 +1458,171 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
 
     // ========== CE2.f: Funciones de Agregación ==========
 
+    @Override
+    public Map<String, Object> describeSchema() {
+        return schemaCache.get("schema", this::loadSchemaDescription);
+    }
+
+    /**
+     * Recorre DatabaseMetaData para todas las tablas de usuario del esquema.
+     * El resultado es de solo lectura (se comparte desde la caché).
+     */
+    private Map<String, Object> loadSchemaDescription() {
+        List<Map<String, Object>> tables = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            DatabaseMetaData dmd = conn.getMetaData();
+
+            try (ResultSet rs = dmd.getTables(null, null, "%", null)) {
+                while (rs.next()) {
+                    // H2 2.x informa "BASE TABLE"; otros drivers, "TABLE"
+                    String type = rs.getString("TABLE_TYPE");
+                    if ("TABLE".equals(type) || "BASE TABLE".equals(type)) {
+                        Map<String, Object> table = new LinkedHashMap<>();
+                        table.put("schema", rs.getString("TABLE_SCHEM"));
+                        table.put("name", rs.getString("TABLE_NAME"));
+                        tables.add(table);
+                    }
+                }
+            }
+
+            for (Map<String, Object> table : tables) {
+                String schema = (String) table.get("schema");
+                String name = (String) table.get("name");
+                table.put("columns", describeColumns(dmd, schema, name));
+                table.put("primaryKey", describePrimaryKey(dmd, schema, name));
+                table.put("indexes", describeIndexes(dmd, schema, name));
+                table.put("foreignKeys", describeForeignKeys(dmd, schema, name));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al describir el esquema: " + e.getMessage(), e);
+        }
+
+        List<Object> frozenTables = new ArrayList<>();
+        for (Map<String, Object> table : tables) {
+            frozenTables.add(Collections.unmodifiableMap(table));
+        }
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("tableCount", tables.size());
+        description.put("tables", Collections.unmodifiableList(frozenTables));
+        return Collections.unmodifiableMap(description);
+    }
+
+    private static List<Map<String, Object>> describeColumns(DatabaseMetaData dmd, String schema, String table) throws SQLException {
+        List<Map<String, Object>> columns = new ArrayList<>();
+        try (ResultSet rs = dmd.getColumns(null, schema, table, "%")) {
+            while (rs.next()) {
+                Map<String, Object> column = new LinkedHashMap<>();
+                column.put("name", rs.getString("COLUMN_NAME"));
+                column.put("typeName", rs.getString("TYPE_NAME"));
+                column.put("size", rs.getInt("COLUMN_SIZE"));
+                column.put("nullable", "YES".equalsIgnoreCase(rs.getString("IS_NULLABLE")));
+                column.put("default", rs.getString("COLUMN_DEF"));
+                column.put("autoIncrement", "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT")));
+                columns.add(Collections.unmodifiableMap(column));
+            }
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+    private static List<String> describePrimaryKey(DatabaseMetaData dmd, String schema, String table) throws SQLException {
+        Map<Integer, String> columns = new TreeMap<>();
+        try (ResultSet rs = dmd.getPrimaryKeys(null, schema, table)) {
+            while (rs.next()) {
+                columns.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return List.copyOf(columns.values());
+    }
+
+    private static List<Map<String, Object>> describeIndexes(DatabaseMetaData dmd, String schema, String table) throws SQLException {
+        Map<String, Map<String, Object>> indexes = new LinkedHashMap<>();
+        try (ResultSet rs = dmd.getIndexInfo(null, schema, table, false, false)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (name == null || column == null) {
+                    continue; // filas de estadísticas de la tabla
+                }
+                boolean unique = !rs.getBoolean("NON_UNIQUE");
+                Map<String, Object> index = indexes.computeIfAbsent(name, n -> {
+                    Map<String, Object> created = new LinkedHashMap<>();
+                    created.put("name", n);
+                    created.put("unique", unique);
+                    created.put("columns", new ArrayList<String>());
+                    return created;
+                });
+                @SuppressWarnings("unchecked")
+                List<String> columns = (List<String>) index.get("columns");
+                columns.add(column);
+            }
+        }
+        return freezeGroups(indexes, "columns");
+    }
+
+    private static List<Map<String, Object>> describeForeignKeys(DatabaseMetaData dmd, String schema, String table) throws SQLException {
+        Map<String, Map<String, Object>> foreignKeys = new LinkedHashMap<>();
+        try (ResultSet rs = dmd.getImportedKeys(null, schema, table)) {
+            while (rs.next()) {
+                String name = rs.getString("FK_NAME");
+                String referencedTable = rs.getString("PKTABLE_NAME");
+                Map<String, Object> foreignKey = foreignKeys.computeIfAbsent(name + "|" + referencedTable, n -> {
+                    Map<String, Object> created = new LinkedHashMap<>();
+                    created.put("name", name);
+                    created.put("columns", new ArrayList<String>());
+                    created.put("referencedTable", referencedTable);
+                    created.put("referencedColumns", new ArrayList<String>());
+                    return created;
+                });
+                @SuppressWarnings("unchecked")
+                List<String> columns = (List<String>) foreignKey.get("columns");
+                @SuppressWarnings("unchecked")
+                List<String> referencedColumns = (List<String>) foreignKey.get("referencedColumns");
+                columns.add(rs.getString("FKCOLUMN_NAME"));
+                referencedColumns.add(rs.getString("PKCOLUMN_NAME"));
+            }
+        }
+        return freezeGroups(foreignKeys, "columns", "referencedColumns");
+    }
+
+    /**
+     * Convierte los grupos (índices, claves foráneas) y sus listas de columnas en inmutables.
+     */
+    private static List<Map<String, Object>> freezeGroups(Map<String, Map<String, Object>> groups, String... listKeys) {
+        List<Map<String, Object>> frozen = new ArrayList<>();
+        for (Map<String, Object> group : groups.values()) {
+            for (String key : listKeys) {
+                @SuppressWarnings("unchecked")
+                List<String> values = (List<String>) group.get(key);
+                group.put(key, List.copyOf(values));
+            }
+            frozen.add(Collections.unmodifiableMap(group));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
     @Override
     public int executeCountByDepartment(String department) {
-        String sql = "SELECT COUNT(*) FROM users WHERE department=? AND active=TRUE";
+        // Se responde desde memoria salvo que la llamada pida requireFresh o noCache, o
+        // esté en un lote atómico o una transacción desechable (los contadores no
+        // incluyen sus escrituras)
+        CallOptions options = CallOptions.current();
+        if (departmentCounters.isEnabled() && !options.isRequireFresh() && !options.isNoCache()
+                && isCacheUsable()) {
+            return departmentCounters.count(department);
+        }
 
-        try(Connection conn = DatabaseConfig.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)){
+        try(Connection conn = DatabaseConfig.getReadConnection();
+            PreparedStatement pstmt = conn.prepareStatement(COUNT_BY_DEPARTMENT_SQL)){
 
             pstmt.setString(1, department);
 
+            long start = System.nanoTime();
             try(ResultSet rs = pstmt.executeQuery()){
+                COUNT_BY_DEPARTMENT_METRICS.executed(start);
                 if(rs.next()){
+                    COUNT_BY_DEPARTMENT_METRICS.returned(1);
                     return rs.getInt(1);
                 }
             }
@@ -572,8 +1632,190 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
 
         return 0;
     }
+
+    @Override
+    public List<SlowQuery> getSlowQueries(Integer limit) {
+        return DatabaseConfig.getSlowQueries(limit != null ? limit : 0);
+    }
+
     // ========== HELPER METHODS ==========
 
+    /**
+     * Las cachés no se leen dentro de una transacción desechable (calentamiento) ni
+     * de un lote atómico: esas llamadas deben ver sus propias escrituras sin confirmar.
+     */
+    private static boolean isCacheUsable() {
+        return !ThrowawayTransaction.isActive() && !BatchConnection.isAtomic();
+    }
+
+    /**
+     * Efecto en las cachés de una escritura ya ejecutada: nunca en una transacción
+     * desechable (se deshace) y, en un lote atómico, solo cuando el lote se confirma.
+     */
+    private static void afterWrite(Runnable action) {
+        if (!ThrowawayTransaction.isActive()) {
+            BatchConnection.afterCommit(action);
+        }
+    }
+
+    /**
+     * Las lecturas van a la principal si no hay réplica, la llamada pide requireFresh
+     * o forma parte de un lote (que lee con su conexión compartida).
+     */
+    private static boolean isReadFromPrimary() {
+        return !DatabaseConfig.isReplicaEnabled() || CallOptions.current().isRequireFresh()
+                || BatchConnection.isActive();
+    }
+
+    /**
+     * Anota filas escritas (réplica) e invalida los resultados de consultas cacheados.
+     * Se llama después de que la escritura sea visible para otras conexiones.
+     */
+    private void recordWrites(long rows) {
+        afterWrite(() -> {
+            DatabaseConfig.recordWrites(rows);
+            queryResultCache.bumpVersion();
+        });
+    }
+
+    /**
+     * Ejecuta una consulta de lista pasando por queryResultCache.
+     *
+     * La versión de datos se toma antes de consultar: si una escritura se confirma
+     * mientras tanto, el resultado no llega a cachearse. Con noCache no se usa la caché;
+     * con requireFresh se consulta siempre y, como con réplica, solo se cachea lo leído
+     * de la principal.
+     */
+    private UserPage cachedQuery(String key, Supplier<UserPage> query) {
+        boolean useCache = isCacheUsable() && !CallOptions.current().isNoCache();
+        if (useCache && !CallOptions.current().isRequireFresh()) {
+            UserPage cached = queryResultCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long version = queryResultCache.version();
+
+        UserPage page = query.get();
+        if (useCache && isReadFromPrimary()) {
+            queryResultCache.put(key, page, version);
+        }
+        return page;
+    }
+
+    /**
+     * Clave normalizada de una búsqueda: solo los parámetros que usa la plantilla
+     * SEARCH_USERS_SQL[mask] (cadenas vacías, limit 0 u offset con cursor no cuentan)
+     * y el cursor ya decodificado a id.
+     */
+    private static String searchKey(UserQueryDto query, int mask) {
+        StringBuilder key = queryKey("search").append(mask);
+        if ((mask & FILTER_DEPARTMENT) != 0) {
+            appendKeyPart(key, query.getDepartment());
+        }
+        if ((mask & FILTER_ROLE) != 0) {
+            appendKeyPart(key, query.getRole());
+        }
+        if ((mask & FILTER_ACTIVE) != 0) {
+            key.append('|').append(query.getActive());
+        }
+        if ((mask & SEEK_AFTER_ID) != 0) {
+            key.append('|').append(decodeCursor(query.getCursor()));
+        }
+        if ((mask & PAGE_LIMIT) != 0) {
+            key.append('|').append(query.getLimit());
+        }
+        if ((mask & PAGE_OFFSET) != 0) {
+            key.append('|').append(query.getOffset());
+        }
+        return key.toString();
+    }
+
+    private static StringBuilder queryKey(String kind) {
+        return new StringBuilder(kind).append(':');
+    }
+
+    /**
+     * Añade una cadena con su longitud delante, para que ningún valor pueda
+     * confundirse con el separador o con null.
+     */
+    private static void appendKeyPart(StringBuilder key, String value) {
+        key.append('|');
+        if (value == null) {
+            key.append('-');
+        } else {
+            key.append(value.length()).append(':').append(value);
+        }
+    }
+
+    /**
+     * Máscara de filtros y paginación de la búsqueda (índice en SEARCH_USERS_SQL).
+     *
+     * @param paged si se aplican limit/offset (el streaming solo usa filtros y cursor)
+     */
+    private static int searchMask(UserQueryDto query, boolean paged) {
+        int mask = (query.getDepartment() != null && !query.getDepartment().isEmpty() ? FILTER_DEPARTMENT : 0)
+                | (query.getRole() != null && !query.getRole().isEmpty() ? FILTER_ROLE : 0)
+                | (query.getActive() != null ? FILTER_ACTIVE : 0);
+        boolean hasCursor = query.getCursor() != null && !query.getCursor().isEmpty();
+        if (hasCursor) {
+            mask |= SEEK_AFTER_ID;
+        }
+        if (paged && query.getLimit() != null && query.getLimit() > 0) {
+            mask |= PAGE_LIMIT;
+        }
+        if (paged && !hasCursor && query.getOffset() != null && query.getOffset() > 0) {
+            mask |= PAGE_OFFSET;
+        }
+        return mask;
+    }
+
+    /**
+     * Asigna los parámetros de la plantilla de búsqueda en el orden de sus filtros.
+     * El LIMIT se pide con una fila de más para detectar si hay página siguiente.
+     */
+    private static void bindSearchParameters(PreparedStatement pstmt, UserQueryDto query, int mask) throws SQLException {
+        int index = 1;
+        if ((mask & FILTER_DEPARTMENT) != 0) {
+            pstmt.setString(index++, query.getDepartment());
+        }
+        if ((mask & FILTER_ROLE) != 0) {
+            pstmt.setString(index++, query.getRole());
+        }
+        if ((mask & FILTER_ACTIVE) != 0) {
+            pstmt.setBoolean(index++, query.getActive());
+        }
+        if ((mask & SEEK_AFTER_ID) != 0) {
+            pstmt.setLong(index++, decodeCursor(query.getCursor()));
+        }
+        if ((mask & PAGE_LIMIT) != 0) {
+            pstmt.setInt(index++, query.getLimit() + 1);
+        }
+        if ((mask & PAGE_OFFSET) != 0) {
+            pstmt.setInt(index, query.getOffset());
+        }
+    }
+
+    /**
+     * Cursor opaco con el último id devuelto (Base64 URL-safe).
+     */
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Cae al error de cursor no válido
+        }
+        throw new RuntimeException("Error: cursor de paginación no válido: " + cursor);
+    }
+
     /**
      * Método auxiliar para mapear ResultSet a objeto User
      *
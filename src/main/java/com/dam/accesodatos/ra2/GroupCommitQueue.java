@@ -0,0 +1,238 @@
+package com.dam.accesodatos.ra2;
+
+import com.dam.accesodatos.metrics.Histogram;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Cola de escrituras con commit agrupado (group commit) para create_user y update_user.
+ *
+ * Cada llamada encola su escritura en una cola sin bloqueos y espera su
+ * CompletableFuture. Un único hilo escritor vacía la cola en grupos: cuando hay
+ * max-batch-rows escrituras en cola o la más antigua lleva max-delay-ms esperando,
+ * entrega el grupo a DatabaseUserServiceImpl, que lo ejecuta en una sola
+ * transacción (un commit para todo el grupo) y completa cada futuro con su
+ * resultado o su error.
+ *
+ * Expone histogramas del tamaño de los grupos, la espera en cola y la duración de
+ * cada transacción de grupo.
+ *
+ * Configuración en ra2.writes.group-commit (enabled, max-batch-rows, max-delay-ms).
+ * Desactivado por defecto: cada escritura confirma por su cuenta.
+ */
+@Component
+public class GroupCommitQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitQueue.class);
+
+    private final boolean enabled;
+    private final int maxBatchRows;
+    private final long maxDelayNanos;
+
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    private final Histogram batchRows = new Histogram();
+    private final Histogram queueWaitNanos = new Histogram();
+    private final Histogram flushNanos = new Histogram();
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * Cola desactivada (uso sin Spring).
+     */
+    public GroupCommitQueue() {
+        this(false, 100, 2);
+    }
+
+    @Autowired
+    public GroupCommitQueue(@Value("${ra2.writes.group-commit.enabled:false}") boolean enabled,
+                            @Value("${ra2.writes.group-commit.max-batch-rows:100}") int maxBatchRows,
+                            @Value("${ra2.writes.group-commit.max-delay-ms:2}") long maxDelayMillis) {
+        this.enabled = enabled;
+        this.maxBatchRows = Math.max(1, maxBatchRows);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Arranca el hilo escritor (solo la primera llamada tiene efecto).
+     *
+     * @param flusher ejecuta un grupo en una transacción y completa el futuro de cada escritura
+     */
+    public void start(Consumer<List<PendingWrite>> flusher) {
+        if (writer != null) {
+            return;
+        }
+        synchronized (this) {
+            if (writer == null) {
+                running = true;
+                writer = Thread.ofPlatform().name("ra2-group-commit").daemon().start(() -> run(flusher));
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Encola una escritura; el hilo escritor completará write.getResult().
+     *
+     * Si stop() llega entre la comprobación de running y offer(), el escritor puede
+     * haber vaciado ya la cola por última vez: por eso se vuelve a comprobar después
+     * de encolar y, si se ha parado, se hacen fallar las escrituras que queden.
+     */
+    public void submit(PendingWrite write) {
+        if (!running) {
+            write.getResult().completeExceptionally(new IllegalStateException("La cola de group commit no está activa"));
+            return;
+        }
+        queue.offer(write);
+        int size = queued.incrementAndGet();
+        if (!running) {
+            failPending();
+            return;
+        }
+        // Con 1 el escritor puede estar dormido sin plazo; con un grupo lleno no hay que esperar más
+        if (size == 1 || size >= maxBatchRows) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run(Consumer<List<PendingWrite>> flusher) {
+        while (running || !queue.isEmpty()) {
+            PendingWrite oldest = queue.peek();
+            if (oldest == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            // Esperar a llenar el grupo o a que venza el plazo de la escritura más antigua
+            long deadline = oldest.enqueuedNanos + maxDelayNanos;
+            long remaining;
+            while (running && queued.get() < maxBatchRows && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            List<PendingWrite> batch = new ArrayList<>(Math.min(queued.get(), maxBatchRows));
+            long now = System.nanoTime();
+            PendingWrite write;
+            while (batch.size() < maxBatchRows && (write = queue.poll()) != null) {
+                queued.decrementAndGet();
+                queueWaitNanos.record(now - write.enqueuedNanos);
+                batch.add(write);
+            }
+            batchRows.record(batch.size());
+
+            try {
+                flusher.accept(batch);
+            } catch (RuntimeException | Error e) {
+                failedBatches.increment();
+                logger.warn("Error en el commit agrupado de {} escrituras: {}", batch.size(), e.getMessage());
+                for (PendingWrite pending : batch) {
+                    pending.getResult().completeExceptionally(e);
+                }
+            } finally {
+                flushNanos.record(System.nanoTime() - now);
+            }
+        }
+        // Escrituras encoladas mientras se paraba el escritor
+        failPending();
+    }
+
+    private void failPending() {
+        for (PendingWrite pending; (pending = queue.poll()) != null; ) {
+            queued.decrementAndGet();
+            pending.getResult().completeExceptionally(new IllegalStateException("La cola de group commit se ha detenido"));
+        }
+    }
+
+    /**
+     * Tamaño de los grupos (filas), espera en cola y duración de cada transacción (µs).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxBatchRows", maxBatchRows);
+        stats.put("maxDelayMicros", maxDelayNanos / 1000);
+        stats.put("queued", queued.get());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("batchRows", batchRows.snapshot(1));
+        stats.put("queueWaitMicros", queueWaitNanos.snapshot(1000));
+        stats.put("flushMicros", flushNanos.snapshot(1000));
+        return stats;
+    }
+
+    /**
+     * Una escritura en cola: un INSERT (create) o un UPDATE por id (update)
+     */
+    public static final class PendingWrite {
+
+        private final UserCreateDto create;
+        private final Long id;
+        private final UserUpdateDto update;
+        private final CompletableFuture<User> result = new CompletableFuture<>();
+        private final long enqueuedNanos = System.nanoTime();
+
+        private PendingWrite(UserCreateDto create, Long id, UserUpdateDto update) {
+            this.create = create;
+            this.id = id;
+            this.update = update;
+        }
+
+        public static PendingWrite insert(UserCreateDto dto) {
+            return new PendingWrite(dto, null, null);
+        }
+
+        public static PendingWrite update(Long id, UserUpdateDto dto) {
+            return new PendingWrite(null, id, dto);
+        }
+
+        public boolean isInsert() {
+            return create != null;
+        }
+
+        public UserCreateDto getCreate() {
+            return create;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public UserUpdateDto getUpdate() {
+            return update;
+        }
+
+        public CompletableFuture<User> getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.springframework.ai.mcp.server.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Anotación para indicar cómo se lee un parámetro de una herramienta MCP
+ * a partir de los argumentos JSON de la llamada.
+ *
+ * Sin ella, el parámetro se lee del campo JSON con su mismo nombre.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ToolParam {
+
+    /**
+     * Nombre del campo JSON.
+     * Si está vacío, se usa el nombre del parámetro.
+     */
+    String name() default "";
+
+    /**
+     * Si es true, el objeto se construye con los campos de primer nivel de los
+     * argumentos (por ejemplo, un DTO cuyos campos se envían sin anidar).
+     */
+    boolean flatten() default false;
+}
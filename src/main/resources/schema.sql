@@ -19,9 +19,10 @@ CREATE TABLE users (
 );
 
 -- Índices para mejorar rendimiento de consultas
-CREATE INDEX idx_users_department ON users(department);
-CREATE INDEX idx_users_role ON users(role);
-CREATE INDEX idx_users_active ON users(active);
+-- (filtro, id): searchUsers filtra y pagina por id (keyset) con un solo recorrido del índice
+CREATE INDEX idx_users_department ON users(department, id);
+CREATE INDEX idx_users_role ON users(role, id);
+CREATE INDEX idx_users_active ON users(active, id);
 CREATE INDEX idx_users_email ON users(email);
 
 -- Tabla para estadísticas agregadas (opcional - para JOINs avanzados)
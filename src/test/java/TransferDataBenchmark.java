@@ -0,0 +1,110 @@
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.model.TransferResult;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.ra2.DatabaseUserServiceImpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide transfer_data con 100.000 filas (o las indicadas en el primer argumento):
+ * - legacy: la implementación anterior, un executeUpdate() por fila en una transacción
+ * - batch all_or_nothing / best_effort: transferData(users, bestEffort) con executeBatch()
+ *
+ * Cada medición empieza con la tabla users vacía y se repite varias veces para
+ * descartar las primeras (calentamiento del JIT).
+ */
+public class TransferDataBenchmark {
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (name, email, department, role, active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.out.println("=== BENCHMARK transfer_data (" + rows + " filas) ===\n");
+
+        DatabaseConfig.initializeDatabase();
+        DatabaseUserServiceImpl service = new DatabaseUserServiceImpl();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Ronda " + round + ":");
+
+            List<User> users = users(rows, "legacy" + round);
+            clearUsers();
+            long start = System.nanoTime();
+            legacyTransfer(users);
+            print("legacy (executeUpdate por fila)", rows, System.nanoTime() - start);
+
+            users = users(rows, "all" + round);
+            clearUsers();
+            start = System.nanoTime();
+            TransferResult result = service.transferData(users, false);
+            print("batch all_or_nothing", result.getInserted(), System.nanoTime() - start);
+
+            users = users(rows, "best" + round);
+            clearUsers();
+            start = System.nanoTime();
+            result = service.transferData(users, true);
+            print("batch best_effort", result.getInserted(), System.nanoTime() - start);
+            System.out.println();
+        }
+    }
+
+    /**
+     * transferData antes de los bloques con executeBatch()
+     */
+    private static void legacyTransfer(List<User> users) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_USER_SQL)) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (User user : users) {
+                    pstmt.setString(1, user.getName());
+                    pstmt.setString(2, user.getEmail());
+                    pstmt.setString(3, user.getDepartment());
+                    pstmt.setString(4, user.getRole());
+                    pstmt.setBoolean(5, user.getActive() != null ? user.getActive() : true);
+                    pstmt.setTimestamp(6, now);
+                    pstmt.setTimestamp(7, now);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void clearUsers() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM users");
+        }
+    }
+
+    private static List<User> users(int rows, String prefix) {
+        List<User> users = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            users.add(new User("Bench User " + i, prefix + "." + i + "@example.com", "IT", "Developer"));
+        }
+        return users;
+    }
+
+    private static void print(String label, int rows, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("   %-32s %8d filas en %8.1f ms  (%,.0f filas/s)%n",
+                label, rows, nanos / 1_000_000.0, rows / seconds);
+    }
+}
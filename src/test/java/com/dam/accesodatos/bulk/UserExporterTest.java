@@ -0,0 +1,81 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.model.UserExportFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del formato de export_users (sin base de datos)
+ */
+class UserExporterTest {
+
+    @Test
+    void testAppendCsv_shouldQuoteOnlyWhenNeeded() {
+        StringBuilder line = new StringBuilder();
+
+        UserExporter.appendCsv(line, "Ana");
+        line.append(',');
+        UserExporter.appendCsv(line, "García, Ana");
+        line.append(',');
+        UserExporter.appendCsv(line, "dice \"hola\"");
+
+        assertEquals("Ana,\"García, Ana\",\"dice \"\"hola\"\"\"", line.toString());
+        // Lo que escribe el exportador lo vuelve a leer import_users
+        assertEquals(List.of("Ana", "García, Ana", "dice \"hola\""), UserFileReader.splitCsv(line.toString()));
+    }
+
+    @Test
+    void testAppendJsonString_shouldEscapeQuotesAndControlCharacters() {
+        StringBuilder line = new StringBuilder();
+
+        UserExporter.appendJsonString(line, "a\"b\\c\nd\u0001");
+
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", line.toString());
+    }
+
+    @Test
+    void testBuildSql_shouldIncludeOnlyPresentFilters() {
+        List<String> columns = List.of("id", "email");
+
+        assertEquals("SELECT id, email FROM users WHERE 1=1 ORDER BY id",
+                UserExporter.buildSql("users", columns, null));
+        assertEquals("SELECT id, email FROM users WHERE 1=1 AND department = ? AND active = ? ORDER BY id LIMIT ?",
+                UserExporter.buildSql("users", columns, new UserExportFilter("IT", " ", false, 10)));
+        // Sin limit no hay LIMIT: se exportan todas las filas del filtro
+        assertEquals("SELECT id, email FROM users WHERE 1=1 AND department = ? ORDER BY id",
+                UserExporter.buildSql("users", columns, new UserExportFilter("IT", null, null, null)));
+    }
+
+    @Test
+    void testChannelTextWriter_withSmallBuffer_shouldWriteAllBytes() throws IOException {
+        // Arrange: Buffer de 4 bytes y texto con caracteres de 2 y 4 bytes en UTF-8
+        Path file = Files.createTempFile("export", ".txt");
+        String text = "año,😀,ñandú\n";
+
+        try {
+            // Act
+            long bytes;
+            try (ChannelTextWriter writer = new ChannelTextWriter(file, 4)) {
+                for (int i = 0; i < 100; i++) {
+                    writer.append(text);
+                }
+                writer.finish();
+                bytes = writer.getBytesWritten();
+            }
+
+            // Assert
+            String written = Files.readString(file, StandardCharsets.UTF_8);
+            assertEquals(text.repeat(100), written);
+            assertEquals(Files.size(file), bytes);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la lectura de ficheros de import_users
+ */
+class UserFileReaderTest {
+
+    private Path file;
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testNext_csv_shouldMapColumnsByHeaderAndHandleQuotes() throws IOException {
+        // Arrange: Columnas en otro orden, un campo con coma entre comillas y una línea vacía
+        file = write(".csv",
+                "email,name,role,department,active",
+                "ana@example.com,\"García, Ana\",Developer,IT,false",
+                "",
+                "luis@example.com,Luis,Manager,HR,");
+
+        try (UserFileReader reader = new UserFileReader(file, UserFileFormat.CSV)) {
+            // Act
+            User first = reader.next();
+            User second = reader.next();
+            User end = reader.next();
+
+            // Assert
+            assertEquals("García, Ana", first.getName());
+            assertEquals("ana@example.com", first.getEmail());
+            assertEquals("IT", first.getDepartment());
+            assertEquals(Boolean.FALSE, first.getActive());
+            assertEquals("Luis", second.getName());
+            assertNull(second.getActive(), "active vacío se deja en null (el INSERT usa true)");
+            assertEquals(4L, reader.getLineNumber());
+            assertNull(end);
+        }
+    }
+
+    @Test
+    void testNext_csvWithInvalidLine_shouldThrowAndContinueWithNextLine() throws IOException {
+        // Arrange: La línea 3 no trae el rol
+        file = write(".csv",
+                "name,email,department,role",
+                "Ana,ana@example.com,IT,Developer",
+                "Luis,luis@example.com,HR,",
+                "Eva,eva@example.com,IT,Tester");
+
+        try (UserFileReader reader = new UserFileReader(file, UserFileFormat.CSV)) {
+            // Act & Assert
+            assertEquals("Ana", reader.next().getName());
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertEquals(3L, reader.getLineNumber());
+            assertEquals("Eva", reader.next().getName());
+        }
+    }
+
+    @Test
+    void testOpen_csvWithoutRequiredColumn_shouldThrow() throws IOException {
+        // Arrange
+        file = write(".csv", "name,email,role", "Ana,ana@example.com,Developer");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new UserFileReader(file, UserFileFormat.CSV));
+    }
+
+    @Test
+    void testNext_ndjson_shouldReadOneObjectPerLine() throws IOException {
+        // Arrange
+        file = write(".ndjson",
+                "{\"name\":\"Ana\",\"email\":\"ana@example.com\",\"department\":\"IT\",\"role\":\"Developer\",\"active\":true}",
+                "{\"name\":\"Luis\",\"email\":\"luis@example.com\",\"department\":\"HR\"}");
+
+        try (UserFileReader reader = new UserFileReader(file, UserFileFormat.NDJSON)) {
+            // Act & Assert
+            User first = reader.next();
+            assertEquals("Ana", first.getName());
+            assertEquals(Boolean.TRUE, first.getActive());
+            assertThrows(IllegalArgumentException.class, reader::next, "Falta el rol");
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testFormatOf_shouldUseExtensionWhenFormatIsMissing() {
+        assertEquals(UserFileFormat.CSV, UserFileFormat.of(null, Paths.get("users.csv")));
+        assertEquals(UserFileFormat.NDJSON, UserFileFormat.of("", Paths.get("users.jsonl")));
+        assertEquals(UserFileFormat.NDJSON, UserFileFormat.of("NDJSON", Paths.get("users.txt")));
+        assertThrows(IllegalArgumentException.class, () -> UserFileFormat.of(null, Paths.get("users.xml")));
+    }
+
+    @Test
+    void testResolve_shouldRejectPathsOutsideBaseDir() {
+        Path base = Paths.get("data").toAbsolutePath().normalize();
+
+        assertEquals(base.resolve("users.csv"), BulkFiles.resolve(base, "users.csv"));
+        assertThrows(IllegalArgumentException.class, () -> BulkFiles.resolve(base, "../secret.csv"));
+        assertThrows(IllegalArgumentException.class, () -> BulkFiles.resolve(base, "/etc/passwd"));
+    }
+
+    private static Path write(String suffix, String... lines) throws IOException {
+        Path path = Files.createTempFile("users", suffix);
+        Files.write(path, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+}
@@ -0,0 +1,144 @@
+package com.dam.accesodatos.bulk;
+
+import com.dam.accesodatos.model.ImportResult;
+import com.dam.accesodatos.model.TransferResult;
+import com.dam.accesodatos.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la tubería lector/escritor de import_users, con un escritor en memoria
+ * en lugar de la base de datos
+ */
+class UserImporterTest {
+
+    private Path baseDir;
+    private UserImporter importer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("import");
+        // Bloques de 2 filas y cola de 1 bloque: el lector espera al escritor
+        importer = new UserImporter(baseDir.toString(), 2, 1, 0, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var files = Files.list(baseDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(baseDir);
+    }
+
+    @Test
+    void testImportFile_shouldInsertAllRowsInChunksInFileOrder() throws IOException {
+        // Arrange
+        write("users.csv", csv(5));
+        List<String> written = new ArrayList<>();
+
+        // Act
+        ImportResult result = importer.importFile("users.csv", null, false, chunk -> accept(chunk, written, null));
+
+        // Assert
+        assertTrue(result.isComplete());
+        assertEquals("csv", result.getFormat());
+        assertEquals(5L, result.getRowsRead());
+        assertEquals(5L, result.getInserted());
+        assertEquals(0L, result.getRejected());
+        assertEquals(3, result.getChunks());
+        assertEquals(List.of("u1@example.com", "u2@example.com", "u3@example.com", "u4@example.com", "u5@example.com"),
+                written);
+        assertEquals(false, importer.getStats().get("running"));
+    }
+
+    @Test
+    void testImportFile_shouldReportRejectedRowsByLineNumber() throws IOException {
+        // Arrange: La línea 3 está mal formada y la base de datos rechaza u4 (línea 5)
+        List<String> lines = csv(5);
+        lines.set(2, "sin,columnas");
+        write("users.csv", lines);
+
+        // Act
+        ImportResult result = importer.importFile("users.csv", "csv", false,
+                chunk -> accept(chunk, new ArrayList<>(), "u4@example.com"));
+
+        // Assert
+        assertTrue(result.isComplete());
+        assertEquals(5L, result.getRowsRead());
+        assertEquals(3L, result.getInserted());
+        assertEquals(2L, result.getRejected());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(3, result.getFailures().get(0).getRow());
+        assertEquals(5, result.getFailures().get(1).getRow());
+        assertEquals("u4@example.com", result.getFailures().get(1).getEmail());
+    }
+
+    @Test
+    void testImportFile_whenWriterFails_shouldStopAndReportError() throws IOException {
+        // Arrange
+        write("users.csv", csv(10));
+        int[] calls = {0};
+
+        // Act: El segundo bloque falla
+        ImportResult result = importer.importFile("users.csv", null, false, chunk -> {
+            if (++calls[0] == 2) {
+                throw new RuntimeException("conexión perdida");
+            }
+            return accept(chunk, new ArrayList<>(), null);
+        });
+
+        // Assert: El primer bloque queda insertado y no se envían más
+        assertFalse(result.isComplete());
+        assertEquals("conexión perdida", result.getError());
+        assertEquals(2L, result.getInserted());
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    void testImportFile_withMissingFile_shouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importFile("missing.csv", null, false, chunk -> accept(chunk, new ArrayList<>(), null)));
+    }
+
+    /**
+     * Escritor en memoria: acepta el bloque salvo la fila con el email indicado
+     */
+    private static TransferResult accept(List<User> chunk, List<String> written, String rejectedEmail) {
+        TransferResult result = new TransferResult(TransferResult.MODE_BEST_EFFORT, chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String email = chunk.get(i).getEmail();
+            if (email.equals(rejectedEmail)) {
+                result.getFailures().add(new TransferResult.RowFailure(i, email, "email duplicado"));
+            } else {
+                written.add(email);
+            }
+        }
+        result.setInserted(chunk.size() - result.getFailures().size());
+        return result;
+    }
+
+    private static List<String> csv(int rows) {
+        List<String> lines = new ArrayList<>();
+        lines.add("name,email,department,role");
+        for (int i = 1; i <= rows; i++) {
+            lines.add("User " + i + ",u" + i + "@example.com,IT,Developer");
+        }
+        return lines;
+    }
+
+    private void write(String name, List<String> lines) throws IOException {
+        Files.write(baseDir.resolve(name), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
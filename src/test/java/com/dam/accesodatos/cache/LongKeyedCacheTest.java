@@ -0,0 +1,103 @@
+package com.dam.accesodatos.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la caché con claves long de UserCache
+ */
+class LongKeyedCacheTest {
+
+    @Test
+    void testGet_shouldReturnStoredValueAndCountHits() {
+        // Arrange
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 0, value -> value.length());
+        cache.put(1L, "uno");
+
+        // Act
+        String hit = cache.get(1L);
+        String miss = cache.get(2L);
+
+        // Assert
+        assertEquals("uno", hit);
+        assertNull(miss);
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    void testPut_shouldEvictWhenFullAndKeepRemainingKeysReachable() {
+        // Arrange: 16 segmentos de 1 entrada
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(16, 0, value -> 8);
+
+        // Act: Insertar muchas más claves de las que caben
+        for (long key = 0; key < 1000; key++) {
+            cache.put(key, key);
+        }
+
+        // Assert: Tamaño acotado y cada clave presente devuelve su propio valor
+        assertTrue(cache.size() <= 16, "No debe superar el tamaño máximo");
+        assertTrue((long) cache.getStats().get("evictions") >= 1000 - 16);
+        for (long key = 0; key < 1000; key++) {
+            Long value = cache.get(key);
+            assertTrue(value == null || value == key, "Valor de otra clave para " + key);
+        }
+    }
+
+    @Test
+    void testInvalidate_shouldKeepOtherKeysOfTheSameClusterReachable() {
+        // Arrange: Muchas claves en una caché grande (racimos de sondeo lineal)
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(10_000, 0, value -> 8);
+        for (long key = 0; key < 5000; key++) {
+            cache.put(key, key);
+        }
+
+        // Act: Borrar las claves pares
+        for (long key = 0; key < 5000; key += 2) {
+            cache.invalidate(key);
+        }
+
+        // Assert: Las impares siguen accesibles tras el desplazamiento
+        for (long key = 0; key < 5000; key++) {
+            if (key % 2 == 0) {
+                assertNull(cache.get(key));
+            } else {
+                assertEquals(key, cache.get(key));
+            }
+        }
+        assertEquals(2500, cache.size());
+    }
+
+    @Test
+    void testPutIfUnchanged_shouldRejectValueReadBeforeAConcurrentWrite() {
+        // Arrange: Una lectura toma la marca y entretanto alguien escribe
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 0, value -> value.length());
+        long stamp = cache.stamp(7L);
+        cache.put(7L, "nuevo");
+
+        // Act: La lectura intenta cachear el valor antiguo
+        boolean stored = cache.putIfUnchanged(7L, "antiguo", stamp);
+
+        // Assert
+        assertFalse(stored, "No debe sobrescribir una escritura posterior a la lectura");
+        assertEquals("nuevo", cache.get(7L));
+    }
+
+    @Test
+    void testGet_shouldExpireEntriesAfterTtl() throws InterruptedException {
+        // Arrange
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 20, value -> value.length());
+        cache.put(1L, "uno");
+
+        // Act
+        Thread.sleep(50);
+
+        // Assert
+        assertNull(cache.get(1L), "La entrada debe haber caducado");
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+}
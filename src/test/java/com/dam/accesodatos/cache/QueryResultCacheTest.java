@@ -0,0 +1,93 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la caché de resultados de consultas
+ */
+class QueryResultCacheTest {
+
+    @Test
+    void testGet_afterBumpVersion_shouldNotReturnStaleResult() {
+        // Arrange
+        QueryResultCache cache = new QueryResultCache();
+        cache.put("q", page(3), cache.version());
+        assertNotNull(cache.get("q"));
+
+        // Act: Una escritura cambia la versión de datos
+        cache.bumpVersion();
+
+        // Assert
+        assertNull(cache.get("q"), "Un resultado de una versión anterior no debe servirse");
+    }
+
+    @Test
+    void testPut_withVersionReadBeforeAWrite_shouldBeRejected() {
+        // Arrange: La consulta toma la versión y entretanto hay una escritura
+        QueryResultCache cache = new QueryResultCache();
+        long version = cache.version();
+        cache.bumpVersion();
+
+        // Act
+        cache.put("q", page(3), version);
+
+        // Assert
+        assertNull(cache.get("q"));
+        assertEquals(1L, cache.getStats().get("rejectedPuts"));
+    }
+
+    @Test
+    void testPut_overMaxBytes_shouldEvictLeastRecentlyUsed() {
+        // Arrange: Espacio para unas pocas páginas de 10 usuarios
+        long pageBytes = 128 + 2 + 10 * UserCache.estimateBytes(user(0));
+        QueryResultCache cache = new QueryResultCache(true, pageBytes * 3, pageBytes);
+        long version = cache.version();
+        cache.put("a", page(10), version);
+        cache.put("b", page(10), version);
+        cache.put("c", page(10), version);
+        cache.get("a");
+
+        // Act: Otra página no cabe
+        cache.put("d", page(10), version);
+
+        // Assert: Sale "b", la usada hace más tiempo
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("d"));
+        assertTrue((long) cache.getStats().get("estimatedBytes") <= pageBytes * 3);
+    }
+
+    @Test
+    void testGet_shouldReturnCopies() {
+        // Arrange
+        QueryResultCache cache = new QueryResultCache();
+        cache.put("q", page(1), cache.version());
+
+        // Act: Modificar el resultado devuelto
+        cache.get("q").getUsers().get(0).setName("Modificado");
+
+        // Assert
+        assertEquals("User 0", cache.get("q").getUsers().get(0).getName());
+    }
+
+    private static UserPage page(int size) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            users.add(user(i));
+        }
+        return new UserPage(users, null);
+    }
+
+    private static User user(int i) {
+        User user = new User((long) i, "User " + i, "user" + i + "@example.com", "IT", "Developer");
+        user.setActive(true);
+        return user;
+    }
+}
@@ -0,0 +1,86 @@
+package com.dam.accesodatos.cache;
+
+import com.dam.accesodatos.config.DatabaseConfig;
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la invalidación de la caché de metadatos del esquema: por el DDL de
+ * DatabaseConfig y por la huella de INFORMATION_SCHEMA (DDL desde otra conexión)
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false", "ra2.cache.schema.check-interval-ms=200"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class SchemaMetadataCacheTest {
+
+    private static final long CHECK_INTERVAL_MILLIS = 200;
+
+    @Autowired
+    private DatabaseUserService service;
+
+    @Autowired
+    private SchemaMetadataCache schemaCache;
+
+    @BeforeEach
+    void clearCache() {
+        // @Sql recrea las tablas sin pasar por DatabaseConfig
+        schemaCache.invalidateAll();
+    }
+
+    @Test
+    void testSchemaChanged_shouldDropEntriesImmediately() {
+        // Arrange: describe_schema cacheado
+        Map<String, Object> schema = service.describeSchema();
+        assertSame(schema, service.describeSchema());
+        long invalidations = (Long) schemaCache.getStats().get("invalidations");
+
+        // Act: DDL anotado por DatabaseConfig
+        DatabaseConfig.schemaChanged();
+
+        // Assert: La siguiente llamada, sin esperar a check-interval-ms, vuelve a cargarlo
+        assertNotSame(schema, service.describeSchema());
+        assertEquals(invalidations + 1, schemaCache.getStats().get("invalidations"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAlterTableOnAnotherConnection_shouldBeVisibleAfterCheckInterval() throws Exception {
+        // Arrange: Columnas y esquema cacheados
+        assertFalse(hasColumn(service.getTableColumns("users"), "NICKNAME"));
+        service.describeSchema();
+
+        // Act: ALTER TABLE fuera de DatabaseConfig (p. ej. desde la consola H2)
+        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL, DatabaseConfig.DB_USER,
+                DatabaseConfig.DB_PASSWORD);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE users ADD COLUMN nickname VARCHAR(20)");
+        }
+        Thread.sleep(CHECK_INTERVAL_MILLIS + 50);
+
+        // Assert: La huella ha cambiado y ambas herramientas ven la columna nueva
+        assertTrue(hasColumn(service.getTableColumns("users"), "NICKNAME"));
+        List<Map<String, Object>> tables = (List<Map<String, Object>>) service.describeSchema().get("tables");
+        Map<String, Object> users = tables.stream()
+                .filter(table -> "USERS".equals(table.get("name"))).findFirst().orElseThrow();
+        assertTrue(hasColumn((List<Map<String, Object>>) users.get("columns"), "NICKNAME"));
+    }
+
+    private static boolean hasColumn(List<Map<String, Object>> columns, String name) {
+        return columns.stream().anyMatch(column -> name.equals(column.get("name")));
+    }
+}
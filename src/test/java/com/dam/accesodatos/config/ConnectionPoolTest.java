@@ -0,0 +1,279 @@
+package com.dam.accesodatos.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del pool de conexiones propio de DatabaseConfig
+ *
+ * Usa una base de datos H2 en memoria independiente para no interferir
+ * con la de DatabaseUserServiceTest.
+ */
+class ConnectionPoolTest {
+
+    private static final String TEST_URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.setMaxSize(2);
+        settings.setMinIdle(0);
+        settings.setAcquireTimeoutMillis(200);
+        pool = new ConnectionPool(TEST_URL, "sa", "", settings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testClose_shouldReturnConnectionToPoolAndReuseIt() throws SQLException {
+        // Arrange: Obtener y devolver una conexión
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed(), "La conexión prestada debe estar abierta");
+        }
+
+        // Act: Volver a pedir una conexión
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+
+        // Assert: Solo se debe haber abierto una sesión física
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(1L, stats.get("created"), "La segunda petición debe reutilizar la conexión");
+        assertEquals(2L, stats.get("acquired"));
+        assertEquals(1, stats.get("idle"));
+    }
+
+    @Test
+    void testGetConnection_whenPoolExhausted_shouldTimeout() throws SQLException {
+        // Arrange: Ocupar todas las conexiones del pool
+        try (Connection c1 = pool.getConnection();
+             Connection c2 = pool.getConnection()) {
+
+            // Act & Assert: La tercera petición debe agotar el timeout
+            assertThrows(SQLException.class, () -> pool.getConnection(),
+                    "Debe lanzar SQLException al superar el tamaño máximo");
+        }
+
+        assertEquals(1L, pool.getStats().get("timeouts"));
+    }
+
+    @Test
+    void testClose_shouldRestoreAutoCommit() throws SQLException {
+        // Arrange: Dejar una transacción abierta al devolver la conexión
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+        }
+
+        // Act: Pedir de nuevo la conexión
+        try (Connection conn = pool.getConnection()) {
+            // Assert: El pool debe haber restaurado auto-commit
+            assertTrue(conn.getAutoCommit(), "La conexión reutilizada debe tener auto-commit activo");
+        }
+    }
+
+    @Test
+    void testProxy_afterClose_shouldRejectUse() throws SQLException {
+        // Arrange: Obtener y cerrar una conexión
+        Connection conn = pool.getConnection();
+        conn.close();
+
+        // Act & Assert: El proxy ya no debe poder usarse
+        assertTrue(conn.isClosed(), "El proxy debe reportarse como cerrado");
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    void testClose_fromTwoThreads_shouldReturnConnectionOnce() throws Exception {
+        // Arrange
+        Connection conn = pool.getConnection();
+        CountDownLatch go = new CountDownLatch(1);
+        Runnable close = () -> {
+            try {
+                go.await();
+                conn.close();
+            } catch (InterruptedException | SQLException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        Thread first = new Thread(close);
+        Thread second = new Thread(close);
+        first.start();
+        second.start();
+
+        // Act: Los dos close() a la vez
+        go.countDown();
+        first.join();
+        second.join();
+
+        // Assert: Solo se devolvió un permiso: la tercera conexión simultánea agota el timeout
+        try (Connection c1 = pool.getConnection();
+             Connection c2 = pool.getConnection()) {
+            assertThrows(SQLException.class, () -> pool.getConnection());
+        }
+    }
+
+    @Test
+    void testHousekeeping_connectionNotReturned_shouldReportLeakWithoutStack() throws Exception {
+        // Arrange: Umbral de fuga mínimo (la revisión se hace cada segundo)
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.setMinIdle(0);
+        settings.setLeakThresholdMillis(1);
+        try (ConnectionPool leaky = new ConnectionPool(TEST_URL, "sa", "", settings)) {
+
+            // Act: Una conexión que no se devuelve a tiempo
+            Connection conn = leaky.getConnection();
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Long) leaky.getStats().get("leaksDetected") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            conn.close();
+
+            // Assert
+            assertEquals(1L, leaky.getStats().get("leaksDetected"));
+        }
+    }
+
+    @Test
+    void testPrepareStatement_sameSql_shouldHitStatementCache() throws SQLException {
+        // Arrange: Preparar y cerrar un statement en un primer préstamo
+        String sql = "SELECT ? AS valor";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, 1);
+            pstmt.executeQuery().close();
+        }
+
+        // Act: Volver a preparar el mismo SQL en otro préstamo
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // Assert: El statement reutilizado funciona con los nuevos parámetros
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(1L, stats.get("statementCacheMisses"));
+        assertEquals(1L, stats.get("statementCacheHits"));
+    }
+
+    @Test
+    void testCachedStatement_shouldExposeLeaseAndRestoreSettingsOnClose() throws SQLException {
+        // Arrange: Primer préstamo que cambia fetchSize, maxRows y queryTimeout
+        String sql = "SELECT X FROM SYSTEM_RANGE(1, 5)";
+        int defaultFetchSize;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            // Assert: getConnection() es el préstamo, no la conexión física
+            assertSame(conn, pstmt.getConnection());
+            defaultFetchSize = pstmt.getFetchSize();
+            pstmt.setFetchSize(defaultFetchSize + 7);
+            pstmt.setMaxRows(2);
+            pstmt.setQueryTimeout(30);
+        }
+
+        // Act: Mismo SQL en otro préstamo (statement cacheado)
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            // Assert: Valores por defecto restaurados y el préstamo nuevo
+            assertSame(conn, pstmt.getConnection());
+            assertEquals(defaultFetchSize, pstmt.getFetchSize());
+            assertEquals(0, pstmt.getMaxRows());
+            assertEquals(0, pstmt.getQueryTimeout());
+            int rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                }
+            }
+            assertEquals(5, rows);
+        }
+        assertEquals(1L, pool.getStats().get("statementCacheHits"));
+    }
+
+    @Test
+    void testClose_withStatementLeftOpen_shouldCloseItAndRestoreConnectionState() throws SQLException {
+        // Arrange: Un préstamo deja un statement abierto y cambia readOnly y el aislamiento
+        String sql = "SELECT ? AS valor";
+        Connection first = pool.getConnection();
+        PreparedStatement leaked = first.prepareStatement(sql);
+        leaked.setInt(1, 1);
+        first.setReadOnly(true);
+        first.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        int defaultIsolation;
+
+        // Act: Devolver la conexión y pedirla de nuevo
+        first.close();
+        try (Connection second = pool.getConnection();
+             PreparedStatement pstmt = second.prepareStatement(sql)) {
+
+            // Assert: El statement se reutiliza con otro proxy y el antiguo ya no sirve
+            assertNotSame(leaked, pstmt);
+            assertTrue(leaked.isClosed());
+            SQLException stale = assertThrows(SQLException.class, leaked::executeQuery);
+            assertEquals("HY010", stale.getSQLState());
+            leaked.close();
+            assertFalse(pstmt.isClosed(), "Cerrar el proxy antiguo no afecta al préstamo nuevo");
+            pstmt.setInt(1, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+            }
+
+            // Assert: Estado de la conexión restaurado
+            assertFalse(second.isReadOnly());
+            defaultIsolation = second.getTransactionIsolation();
+        }
+        assertNotEquals(Connection.TRANSACTION_SERIALIZABLE, defaultIsolation);
+        assertEquals(1L, pool.getStats().get("statementCacheHits"));
+    }
+
+    @Test
+    void testPrewarm_shouldOpenMinIdleConnectionsWithStatementsPrepared() throws SQLException {
+        // Arrange: Pool con min-idle 2
+        pool.close();
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.setMaxSize(2);
+        settings.setMinIdle(2);
+        settings.setAcquireTimeoutMillis(200);
+        pool = new ConnectionPool(TEST_URL, "sa", "", settings);
+        String sql = "SELECT ? AS valor";
+
+        // Act
+        int warmed = pool.prewarm(List.of(sql, "SELECT X FROM SYSTEM_RANGE(1, 5)"));
+
+        // Assert: Dos conexiones físicas ociosas, cada una con las dos sentencias preparadas
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(2, warmed);
+        assertEquals(2L, stats.get("created"));
+        assertEquals(2, stats.get("idle"));
+        assertEquals(4L, stats.get("statementCacheMisses"));
+
+        // Assert: Dos préstamos a la vez encuentran la sentencia ya preparada
+        try (Connection c1 = pool.getConnection();
+             Connection c2 = pool.getConnection()) {
+            c1.prepareStatement(sql).close();
+            c2.prepareStatement(sql).close();
+        }
+        assertEquals(2L, pool.getStats().get("statementCacheHits"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.dam.accesodatos.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la réplica de lectura de DatabaseConfig
+ *
+ * Usa una base de datos H2 en memoria independiente como principal para no
+ * interferir con la de DatabaseUserServiceTest.
+ */
+class ReadReplicaTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:replicatest;DB_CLOSE_DELAY=-1";
+
+    private ReadReplica replica;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS items");
+            stmt.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+            stmt.execute("INSERT INTO items VALUES (1, 'uno')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    @Test
+    void testGetConnection_shouldServeSnapshotUntilNextRefresh() throws Exception {
+        // Arrange: Réplica que solo se refresca por tiempo (intervalo largo)
+        replica = newReplica(0);
+        awaitGeneration(1);
+
+        // Act: Escribir en la principal después del refresco
+        insertItem(2);
+        replica.recordWrites(1);
+
+        // Assert: La réplica aún no ve la fila nueva y reporta el retraso
+        assertEquals(1, countItems(replica.getConnection()), "La réplica debe servir la copia anterior");
+        assertEquals(1L, replica.getStats().get("pendingWrites"));
+
+        // Act: Refrescar la réplica
+        replica.refresh();
+
+        // Assert: La generación nueva incluye la fila y no hay retraso
+        Map<String, Object> stats = replica.getStats();
+        assertEquals(2, stats.get("generation"));
+        assertEquals(0L, stats.get("pendingWrites"));
+        assertEquals(0L, stats.get("lagMillis"));
+        assertEquals(2, countItems(replica.getConnection()));
+    }
+
+    @Test
+    void testRecordWrites_shouldRefreshWhenThresholdIsReached() throws Exception {
+        // Arrange: Réplica que se refresca tras 2 filas escritas
+        replica = newReplica(2);
+        awaitGeneration(1);
+
+        // Act: Escribir 2 filas en la principal
+        insertItem(2);
+        insertItem(3);
+        replica.recordWrites(2);
+
+        // Assert: Se publica una generación nueva sin esperar al intervalo
+        awaitGeneration(2);
+        assertEquals(3, countItems(replica.getConnection()));
+    }
+
+    private ReadReplica newReplica(long refreshAfterWrites) {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.setMaxSize(2);
+        settings.setMinIdle(0);
+        return new ReadReplica(PRIMARY_URL, "sa", "", 60_000, refreshAfterWrites, settings);
+    }
+
+    private void awaitGeneration(int generation) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((int) replica.getStats().get("generation") < generation) {
+            assertTrue(System.currentTimeMillis() < deadline, "La réplica no llegó a la generación " + generation);
+            Thread.sleep(10);
+        }
+    }
+
+    private void insertItem(int id) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO items VALUES (" + id + ", 'item')");
+        }
+    }
+
+    private int countItems(Connection conn) throws SQLException {
+        try (conn;
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.model.SlowQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del registro de consultas lentas de DatabaseConfig
+ *
+ * Usa una base de datos H2 en memoria independiente y umbral 0 ms para que
+ * todas las sentencias cuenten como lentas.
+ */
+class SlowQueryLogTest {
+
+    private static final String TEST_URL = "jdbc:h2:mem:slowquerytest;DB_CLOSE_DELAY=-1";
+
+    private SlowQueryLog log;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(TEST_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS events");
+            stmt.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, name VARCHAR(50), created_at TIMESTAMP)");
+            stmt.execute("INSERT INTO events VALUES (1, 'uno', CURRENT_TIMESTAMP), (2, 'dos', CURRENT_TIMESTAMP)");
+        }
+        log = new SlowQueryLog(0, 2, true, 60000, () -> DriverManager.getConnection(TEST_URL, "sa", ""));
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.close();
+    }
+
+    @Test
+    void testSelect_shouldRecordParametersAndCaptureExplainAnalyzePlan() throws Exception {
+        // Arrange
+        try (Connection conn = log.wrap(DriverManager.getConnection(TEST_URL, "sa", ""));
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM events WHERE name = ? ORDER BY created_at")) {
+            pstmt.setString(1, "uno");
+
+            // Act
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+            }
+        }
+
+        // Assert: Parámetros anotados y plan con recorrido completo (sin índice en name)
+        SlowQuery query = awaitPlan(log.recent(1).get(0));
+        assertEquals("SELECT * FROM events WHERE name = ? ORDER BY created_at", query.getSql());
+        assertEquals(List.of("uno"), query.getParameters());
+        assertEquals(SlowQuery.PLAN_CAPTURED, query.getPlanStatus(), query.getPlan());
+        assertTrue(query.getPlan().contains("tableScan"), query.getPlan());
+    }
+
+    @Test
+    void testInsert_shouldExplainWithoutExecutingAgain() throws Exception {
+        // Arrange
+        try (Connection conn = log.wrap(DriverManager.getConnection(TEST_URL, "sa", ""));
+             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO events (id, name) VALUES (?, ?)")) {
+            pstmt.setLong(1, 3L);
+            pstmt.setString(2, "tres");
+
+            // Act
+            assertEquals(1, pstmt.executeUpdate());
+        }
+
+        // Assert: Hay plan y la fila sigue insertada una sola vez
+        SlowQuery query = awaitPlan(log.recent(1).get(0));
+        assertEquals(SlowQuery.PLAN_CAPTURED, query.getPlanStatus(), query.getPlan());
+        try (Connection conn = DriverManager.getConnection(TEST_URL, "sa", "");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM events")) {
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testDataChangeDeltaTable_rolledBack_shouldNotBeAppliedByThePlan() throws Exception {
+        // Arrange: SELECT sobre OLD TABLE (UPDATE ...) en una transacción que se deshace
+        try (Connection conn = log.wrap(DriverManager.getConnection(TEST_URL, "sa", ""))) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT name FROM OLD TABLE (UPDATE events SET name = ? WHERE id = ?)")) {
+                pstmt.setString(1, "cambiado");
+                pstmt.setLong(2, 1L);
+
+                // Act
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+            }
+            conn.rollback();
+        }
+
+        // Assert: Plan sin ANALYZE y la fila sigue como estaba
+        SlowQuery query = awaitPlan(log.recent(1).get(0));
+        assertEquals(SlowQuery.PLAN_CAPTURED, query.getPlanStatus(), query.getPlan());
+        try (Connection conn = DriverManager.getConnection(TEST_URL, "sa", "");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name FROM events WHERE id = 1")) {
+            assertTrue(rs.next());
+            assertEquals("uno", rs.getString(1));
+        }
+    }
+
+    @Test
+    void testRecent_shouldKeepOnlyTheNewestEntries() throws SQLException {
+        // Arrange: Capacidad 2 y tres sentencias
+        try (Connection conn = log.wrap(DriverManager.getConnection(TEST_URL, "sa", ""));
+             Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT 1").close();
+            stmt.executeQuery("SELECT 2").close();
+            stmt.executeQuery("SELECT 3").close();
+        }
+
+        // Act
+        List<SlowQuery> recent = log.recent(0);
+
+        // Assert: La más reciente primero
+        assertEquals(2, recent.size());
+        assertEquals("SELECT 3", recent.get(0).getSql());
+        assertEquals("SELECT 2", recent.get(1).getSql());
+        assertEquals(3L, log.getStats().get("slow"));
+    }
+
+    private static SlowQuery awaitPlan(SlowQuery query) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (SlowQuery.PLAN_PENDING.equals(query.getPlanStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return query;
+    }
+}
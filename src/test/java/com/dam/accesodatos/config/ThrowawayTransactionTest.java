@@ -0,0 +1,94 @@
+package com.dam.accesodatos.config;
+
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la transacción desechable: lo escrito dentro se ve dentro y se deshace al
+ * salir, sin pasar por las cachés ni los contadores
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ThrowawayTransactionTest {
+
+    @Autowired
+    private DatabaseUserService databaseUserService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @BeforeEach
+    void clearCaches() {
+        // @Sql recarga la BD sin pasar por el servicio: las cachés quedarían obsoletas
+        userCache.invalidateAll();
+        queryResultCache.invalidateAll();
+        departmentCounters.seed();
+    }
+
+    @Test
+    void testRun_writes_shouldBeVisibleInsideAndRolledBackAfter() {
+        // Arrange
+        Object countersBefore = departmentCounters.getStats().get("departments");
+
+        // Act: Alta y modificación dentro de la transacción
+        int countInside = ThrowawayTransaction.run(() -> {
+            databaseUserService.createUser(new UserCreateDto("Temporal", "temporal@example.com", "IT", "Developer"));
+            databaseUserService.updateUser(1L, new UserUpdateDto("Cambiado", null, null, null, null));
+            assertEquals("Cambiado", databaseUserService.findUserById(1L).getName());
+            return databaseUserService.executeCountByDepartment("IT");
+        });
+
+        // Assert: Dentro se veían; fuera no queda nada
+        assertEquals(2, countInside);
+        assertFalse(ThrowawayTransaction.isActive());
+        assertEquals(3, databaseUserService.findAll().size());
+        assertEquals("Test User 1", databaseUserService.findUserById(1L).getName());
+        assertEquals(1, databaseUserService.executeCountByDepartment("IT"));
+        assertEquals(countersBefore, departmentCounters.getStats().get("departments"));
+    }
+
+    @Test
+    void testRun_onScratchDatabase_shouldNotTouchTheRealDatabase() throws Exception {
+        // Arrange: Base desechable con los datos iniciales de la aplicación (8 usuarios)
+        try (Connection scratch = DatabaseConfig.openScratchDatabase("ra2db_throwaway_test")) {
+
+            // Act
+            User created = ThrowawayTransaction.run(scratch, () -> {
+                assertEquals(8, databaseUserService.findAll().size());
+                return databaseUserService.createUser(
+                        new UserCreateDto("Temporal", "temporal@example.com", "IT", "Developer"));
+            });
+
+            // Assert: El alta fue en la base desechable (identidades desde 100) y se deshizo
+            assertEquals(100L, created.getId());
+            assertFalse(scratch.isClosed(), "La conexión es de quien la abrió");
+            assertNull(userCache.get(created.getId()));
+            assertEquals(0, queryResultCache.size());
+        }
+        assertEquals(3, databaseUserService.findAll().size());
+        assertNull(databaseUserService.findUserById(100L));
+    }
+}
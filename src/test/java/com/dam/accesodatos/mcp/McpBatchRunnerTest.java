@@ -0,0 +1,149 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.CallOptions;
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de los lotes de herramientas: conexión compartida, lote atómico y
+ * agrupación de find_user_by_id
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class McpBatchRunnerTest {
+
+    @Autowired
+    private McpBatchRunner batchRunner;
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private DatabaseUserService databaseUserService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @BeforeEach
+    void clearCaches() {
+        // @Sql recarga la BD sin pasar por el servicio: las cachés quedarían obsoletas
+        userCache.invalidateAll();
+        queryResultCache.invalidateAll();
+        departmentCounters.seed();
+    }
+
+    @Test
+    void testRun_adjacentFindUserById_shouldReturnOneResultPerCall() {
+        // Arrange: Tres búsquedas seguidas (una repetida y una que no existe)
+        List<McpBatchRunner.Call> calls = List.of(
+                call("find_user_by_id", 2L),
+                call("find_user_by_id", 999L),
+                call("find_user_by_id", 2L),
+                call("execute_count_by_department", "IT"));
+
+        // Act
+        List<McpToolResponse> responses = batchRunner.run(calls, false);
+
+        // Assert
+        assertEquals(4, responses.size());
+        assertEquals("test2@example.com", ((User) responses.get(0).getResult()).getEmail());
+        assertEquals(McpToolResponse.STATUS_SUCCESS, responses.get(1).getStatus());
+        assertNull(responses.get(1).getResult());
+        assertEquals("test2@example.com", ((User) responses.get(2).getResult()).getEmail());
+        assertEquals(1, responses.get(3).getResult());
+    }
+
+    @Test
+    void testRun_atomicBatchWithFailure_shouldRollBackEarlierWrites() {
+        // Arrange: create_user y después update_user de un usuario que no existe
+        List<McpBatchRunner.Call> calls = List.of(
+                call("create_user", new UserCreateDto("Lote", "lote@example.com", "IT", "Developer")),
+                call("update_user", 999L, new UserUpdateDto("Nadie", null, null, null, null)),
+                call("find_user_by_id", 1L));
+
+        // Act
+        List<McpToolResponse> responses = batchRunner.run(calls, true);
+
+        // Assert: Todas fallan y el INSERT se ha deshecho
+        responses.forEach(response -> assertEquals(McpToolResponse.STATUS_ERROR, response.getStatus()));
+        assertTrue(responses.get(0).getError().startsWith("Deshecha"), responses.get(0).getError());
+        assertTrue(responses.get(2).getError().startsWith("No ejecutada"), responses.get(2).getError());
+        assertEquals(3, databaseUserService.findAll().size());
+        assertEquals(1, databaseUserService.executeCountByDepartment("IT"));
+    }
+
+    @Test
+    void testRun_atomicBatch_shouldCommitAndSeeOwnWrites() {
+        // Arrange
+        List<McpBatchRunner.Call> calls = List.of(
+                call("create_user", new UserCreateDto("Lote", "lote@example.com", "IT", "Developer")),
+                call("execute_count_by_department", "IT"));
+
+        // Act
+        List<McpToolResponse> responses = batchRunner.run(calls, true);
+
+        // Assert: El recuento del lote ya ve el INSERT y, tras confirmar, también fuera
+        Long id = ((User) responses.get(0).getResult()).getId();
+        assertEquals(2, responses.get(1).getResult());
+        assertEquals("lote@example.com", databaseUserService.findUserById(id).getEmail());
+        assertEquals(2, databaseUserService.executeCountByDepartment("IT"));
+    }
+
+    @Test
+    void testRun_nonAtomicBatch_shouldContinueAfterFailure() {
+        // Arrange
+        List<McpBatchRunner.Call> calls = List.of(
+                call("update_user", 999L, new UserUpdateDto("Nadie", null, null, null, null)),
+                call("create_user", new UserCreateDto("Lote", "lote@example.com", "HR", "Manager")));
+
+        // Act
+        List<McpToolResponse> responses = batchRunner.run(calls, false);
+
+        // Assert
+        assertEquals(McpToolResponse.STATUS_ERROR, responses.get(0).getStatus());
+        assertEquals(McpToolResponse.STATUS_SUCCESS, responses.get(1).getStatus());
+        assertEquals(4, databaseUserService.findAll().size());
+    }
+
+    @Test
+    void testRun_atomicBatchWithImportOrExport_shouldBeRejectedBeforeRunning() {
+        // Arrange: El DDL de import_users confirmaría el lote a medias
+        List<McpBatchRunner.Call> calls = List.of(
+                call("create_user", new UserCreateDto("Lote", "lote@example.com", "IT", "Developer")),
+                call("import_users", "users.csv", null, true));
+
+        // Act & Assert: Se rechaza sin ejecutar nada; export_users tampoco se admite
+        assertThrows(IllegalArgumentException.class, () -> batchRunner.run(calls, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> batchRunner.run(List.of(call("export_users", "x.csv", null, null, null, null)), true));
+        assertEquals(3, databaseUserService.findAll().size());
+    }
+
+    private McpBatchRunner.Call call(String tool, Object... args) {
+        return new McpBatchRunner.Call(toolRegistry.getTool(tool), args, CallOptions.DEFAULT);
+    }
+}
@@ -0,0 +1,151 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del protocolo MCP JSON-RPC servido desde la JVM (initialize, tools/list, tools/call)
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class McpJsonRpcHandlerTest {
+
+    @Autowired
+    private McpJsonRpcHandler handler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testInitialize_shouldNegotiateProtocolVersionAndAnnounceTools() throws Exception {
+        // Act
+        JsonNode response = handle("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{}}}");
+
+        // Assert
+        assertEquals(1, response.get("id").asInt());
+        assertEquals("2024-11-05", response.at("/result/protocolVersion").asText());
+        assertTrue(response.at("/result/capabilities/tools").isObject());
+    }
+
+    @Test
+    void testToolsList_shouldDescribeArgumentsFromToolParameters() throws Exception {
+        // Act
+        JsonNode response = handle("{\"jsonrpc\":\"2.0\",\"id\":\"a\",\"method\":\"tools/list\"}");
+
+        // Assert: userId (renombrado) y los campos de UserCreateDto sin anidar
+        JsonNode findUser = null;
+        JsonNode createUser = null;
+        for (JsonNode tool : response.at("/result/tools")) {
+            if ("find_user_by_id".equals(tool.get("name").asText())) {
+                findUser = tool;
+            } else if ("create_user".equals(tool.get("name").asText())) {
+                createUser = tool;
+            }
+        }
+        assertNotNull(findUser);
+        assertEquals("integer", findUser.at("/inputSchema/properties/userId/type").asText());
+        assertNotNull(createUser);
+        assertEquals("string", createUser.at("/inputSchema/properties/email/type").asText());
+    }
+
+    @Test
+    void testToolsCall_shouldReturnResultAsTextContent() throws Exception {
+        // Act
+        JsonNode response = handle("{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"find_user_by_id\",\"arguments\":{\"userId\":1}}}");
+
+        // Assert
+        assertFalse(response.at("/result/isError").asBoolean());
+        JsonNode user = objectMapper.readTree(response.at("/result/content/0/text").asText());
+        assertEquals("test1@example.com", user.get("email").asText());
+    }
+
+    @Test
+    void testToolsCall_toolFailure_shouldReturnIsErrorResult() throws Exception {
+        // Act: El usuario no existe
+        JsonNode response = handle("{\"jsonrpc\":\"2.0\",\"id\":8,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"update_user\",\"arguments\":{\"userId\":999,\"name\":\"Nadie\"}}}");
+
+        // Assert: Error de la herramienta como resultado, no como error JSON-RPC
+        assertNull(response.get("error"));
+        assertTrue(response.at("/result/isError").asBoolean());
+    }
+
+    @Test
+    void testHandle_unknownMethodAndNotification() throws Exception {
+        // Act
+        JsonNode unknown = handle("{\"jsonrpc\":\"2.0\",\"id\":9,\"method\":\"resources/list\"}");
+        JsonNode notification = handle("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+
+        // Assert
+        assertEquals(McpJsonRpcHandler.METHOD_NOT_FOUND, unknown.at("/error/code").asInt());
+        assertNull(notification, "Las notificaciones no tienen respuesta");
+    }
+
+    @Test
+    void testHandle_batch_shouldAnswerEachRequest() throws Exception {
+        // Act: Dos tools/call, una herramienta desconocida, un ping y una notificación
+        JsonNode responses = handle("["
+                + "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"name\":\"find_user_by_id\",\"arguments\":{\"userId\":1}}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\",\"params\":{\"name\":\"find_user_by_id\",\"arguments\":{\"userId\":2}}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"tools/call\",\"params\":{\"name\":\"no_existe\"}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"ping\"},"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}]");
+
+        // Assert
+        assertTrue(responses.isArray());
+        assertEquals(4, responses.size());
+        for (JsonNode response : responses) {
+            switch (response.get("id").asInt()) {
+                case 1:
+                case 2:
+                    JsonNode user = objectMapper.readTree(response.at("/result/content/0/text").asText());
+                    assertEquals("test" + response.get("id").asInt() + "@example.com", user.get("email").asText());
+                    break;
+                case 3:
+                    assertEquals(McpJsonRpcHandler.INVALID_PARAMS, response.at("/error/code").asInt());
+                    break;
+                default:
+                    assertTrue(response.get("result").isObject());
+                    break;
+            }
+        }
+    }
+
+    @Test
+    void testHandle_atomicBatchWithExport_shouldExecuteNothing() throws Exception {
+        // Act: Lote atómico con create_user y export_users (no admitida en lotes atómicos)
+        JsonNode responses = handle("["
+                + "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"name\":\"create_user\",\"atomic\":true,"
+                + "\"arguments\":{\"name\":\"Lote\",\"email\":\"lote@example.com\",\"department\":\"IT\",\"role\":\"Developer\"}}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\",\"params\":{\"name\":\"export_users\",\"arguments\":{\"path\":\"x.csv\"}}}]");
+
+        // Assert: export_users es un error de parámetros y create_user no se ejecuta
+        assertEquals(2, responses.size());
+        for (JsonNode response : responses) {
+            if (response.get("id").asInt() == 2) {
+                assertEquals(McpJsonRpcHandler.INVALID_PARAMS, response.at("/error/code").asInt());
+            } else {
+                assertTrue(response.at("/result/isError").asBoolean());
+            }
+        }
+        JsonNode lookup = handle("{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"search_users\",\"arguments\":{\"department\":\"IT\"}}}");
+        assertFalse(lookup.at("/result/content/0/text").asText().contains("lote@example.com"));
+    }
+
+    private JsonNode handle(String message) throws Exception {
+        return handler.handle(objectMapper.readTree(message));
+    }
+}
@@ -0,0 +1,99 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del transporte MCP stdio: mensajes JSON-RPC delimitados por líneas
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class McpStdioServerTest {
+
+    @Autowired
+    private McpStdioServer stdioServer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testServe_shouldAnswerEachLineAndSkipNotifications() throws Exception {
+        // Arrange: Líneas con \r\n, una en blanco, una notificación y la última sin \n;
+        // la entrada se lee de 5 en 5 bytes para partir los mensajes entre lecturas
+        String input = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2024-11-05\"}}\r\n"
+                + "\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}\n"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"find_user_by_id\",\"arguments\":{\"userId\":1}}}\n"
+                + "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"ping\"}";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        stdioServer.serve(slowInput(input, 5), out);
+
+        // Assert: Una línea por petición (el orden depende de cuándo terminan)
+        Map<Integer, JsonNode> responses = responsesById(out);
+        assertEquals(3, responses.size());
+        assertEquals("2024-11-05", responses.get(1).at("/result/protocolVersion").asText());
+        assertFalse(responses.get(2).at("/result/isError").asBoolean());
+        assertTrue(responses.get(3).get("result").isObject());
+    }
+
+    @Test
+    void testServe_invalidJson_shouldReturnParseErrorAndContinue() throws Exception {
+        // Arrange
+        String input = "{no es json\n{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"ping\"}\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        stdioServer.serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains(String.valueOf(McpJsonRpcHandler.PARSE_ERROR)));
+        assertTrue(responsesById(out).containsKey(4));
+    }
+
+    private Map<Integer, JsonNode> responsesById(ByteArrayOutputStream out) throws IOException {
+        Map<Integer, JsonNode> responses = new HashMap<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode response = objectMapper.readTree(line);
+            if (!response.get("id").isNull()) {
+                responses.put(response.get("id").asInt(), response);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Entrada que entrega como mucho chunk bytes por lectura
+     */
+    private static InputStream slowInput(String text, int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.dam.accesodatos.mcp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del semáforo JDBC de las herramientas MCP (sin base de datos)
+ */
+class McpToolExecutorTest {
+
+    private McpToolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testCall_whenSaturated_shouldServeWaitingCallsInArrivalOrder() throws Exception {
+        // Arrange: Un solo turno, ocupado por una llamada que espera al latch
+        executor = new McpToolExecutor(1, 5000);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CompletableFuture<Object> busy = executor.submit("ocupada", () -> await(blocker));
+        awaitStat("inFlight", 1);
+
+        // Act: Cinco llamadas llegan de una en una y esperan turno en cola
+        List<Integer> served = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Integer>> waiting = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int arrival = i;
+            waiting.add(executor.submit("en_cola", () -> {
+                served.add(arrival);
+                return arrival;
+            }));
+            awaitStat("queued", i + 1);
+        }
+        blocker.countDown();
+
+        // Assert: El semáforo justo las atiende en orden de llegada
+        busy.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Integer> call : waiting) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), served);
+        assertEquals(1L, executor.getStats().get("maxInFlight"));
+        assertEquals(6L, executor.getStats().get("completed"));
+    }
+
+    @Test
+    void testCall_whenSaturated_shouldTimeOutAfterAcquireTimeout() throws Exception {
+        // Arrange: Un solo turno ocupado y 100 ms de espera máxima
+        executor = new McpToolExecutor(1, 100);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CompletableFuture<Object> busy = executor.submit("ocupada", () -> await(blocker));
+        awaitStat("inFlight", 1);
+
+        // Act
+        long start = System.nanoTime();
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> executor.call("sin_turno", () -> "no debe ejecutarse"));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert: Se rechaza tras acquire-timeout-ms sin ejecutar la herramienta
+        assertTrue(error.getMessage().contains("no obtuvo turno en 100 ms"), error.getMessage());
+        assertTrue(waitedMillis >= 100, "Esperó " + waitedMillis + " ms");
+        assertEquals(1L, executor.getStats().get("rejected"));
+
+        blocker.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        assertEquals(0, executor.getStats().get("inFlight"));
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void awaitStat(String name, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (((Number) executor.getStats().get(name)).intValue() != expected) {
+            assertTrue(System.currentTimeMillis() < deadline, name + " no llegó a " + expected);
+            Thread.sleep(1);
+        }
+    }
+}
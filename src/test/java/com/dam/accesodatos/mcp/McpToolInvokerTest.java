@@ -0,0 +1,87 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.server.annotation.ToolParam;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la llamada preparada de /mcp/call/{tool}: lectura de argumentos JSON
+ * y ejecución por MethodHandle
+ */
+class McpToolInvokerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public interface SampleTools {
+        String describe(@ToolParam(name = "userId") Long id, @ToolParam(flatten = true) UserCreateDto dto);
+
+        int countActive(List<User> users, boolean onlyActive);
+    }
+
+    public static class SampleToolsImpl implements SampleTools {
+        @Override
+        public String describe(Long id, UserCreateDto dto) {
+            return id + ":" + dto.getName() + ":" + dto.getDepartment();
+        }
+
+        @Override
+        public int countActive(List<User> users, boolean onlyActive) {
+            return (int) users.stream().filter(user -> !onlyActive || Boolean.TRUE.equals(user.getActive())).count();
+        }
+    }
+
+    @Test
+    void testInvoke_shouldBindRenamedAndFlattenedArguments() throws Exception {
+        // Arrange
+        McpToolInvoker invoker = invoker("describe", Long.class, UserCreateDto.class);
+        JsonNode arguments = objectMapper.readTree(
+                "{\"userId\": 7, \"name\": \"Ana\", \"email\": \"ana@empresa.com\", \"department\": \"IT\", \"role\": \"Dev\"}");
+
+        // Act
+        Object result = invoker.invoke(invoker.bind(arguments));
+
+        // Assert
+        assertEquals("7:Ana:IT", result);
+    }
+
+    @Test
+    void testBind_shouldReadGenericListsAndDefaultMissingPrimitives() throws Exception {
+        // Arrange
+        McpToolInvoker invoker = invoker("countActive", List.class, boolean.class);
+        JsonNode arguments = objectMapper.readTree(
+                "{\"users\": [{\"name\": \"A\", \"active\": true}, {\"name\": \"B\", \"active\": false}]}");
+
+        // Act
+        Object[] args = invoker.bind(arguments);
+
+        // Assert: Elementos convertidos a User y onlyActive ausente = false
+        assertInstanceOf(User.class, ((List<?>) args[0]).get(0));
+        assertEquals(false, args[1]);
+        assertEquals(2, invoker.invoke(args));
+    }
+
+    @Test
+    void testBind_shouldRejectArgumentsOfTheWrongType() throws Exception {
+        // Arrange
+        McpToolInvoker invoker = invoker("describe", Long.class, UserCreateDto.class);
+        JsonNode arguments = objectMapper.readTree("{\"userId\": \"no-es-un-numero\"}");
+
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> invoker.bind(arguments));
+        assertTrue(e.getMessage().contains("userId"), e.getMessage());
+    }
+
+    private McpToolInvoker invoker(String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new McpToolInvoker(method, SampleTools.class.getMethod(method, parameterTypes),
+                new SampleToolsImpl(), objectMapper);
+    }
+}
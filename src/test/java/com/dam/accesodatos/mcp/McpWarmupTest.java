@@ -0,0 +1,98 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.SchemaMetadataCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra2.DatabaseUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del calentamiento de arranque: las herramientas de escritura se ejecutan sin
+ * dejar rastro en la base de datos real, las cachés ni los contadores
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false", "ra2.mcp.warmup.iterations=3"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class McpWarmupTest {
+
+    @Autowired
+    private McpWarmup warmup;
+
+    @Autowired
+    private DatabaseUserService databaseUserService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private SchemaMetadataCache schemaCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @BeforeEach
+    void clearCaches() {
+        // @Sql recarga la BD sin pasar por el servicio: las cachés quedarían obsoletas
+        userCache.invalidateAll();
+        queryResultCache.invalidateAll();
+        schemaCache.invalidateAll();
+        departmentCounters.seed();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRun_shouldWarmWriteToolsWithoutTouchingUsersCountersOrCaches() {
+        // Arrange
+        List<User> usersBefore = databaseUserService.findAll();
+        Object countersBefore = departmentCounters.getStats().get("departments");
+
+        // Act
+        warmup.run();
+
+        // Assert: Las herramientas de escritura se han ejecutado sin errores
+        Map<String, Object> stats = warmup.getStats();
+        assertTrue(warmup.isComplete());
+        assertFalse(warmup.isFailed(), String.valueOf(stats.get("failure")));
+        assertEquals(3, stats.get("iterations"));
+        Map<String, Object> tools = (Map<String, Object>) stats.get("tools");
+        for (String tool : List.of("create_user", "update_user", "delete_user", "batch_insert_users", "transfer_data")) {
+            Map<String, Object> timings = (Map<String, Object>) tools.get(tool);
+            assertEquals(3L, timings.get("calls"), tool);
+            assertEquals(0L, timings.get("errors"), tool + ": " + timings.get("lastError"));
+        }
+
+        // Assert: Usuarios, contadores y cachés como antes
+        assertEquals(emails(usersBefore), emails(databaseUserService.findAll()));
+        assertEquals("Test User 1", databaseUserService.findUserById(1L).getName());
+        assertEquals(countersBefore, departmentCounters.getStats().get("departments"));
+        assertEquals(1, databaseUserService.executeCountByDepartment("IT"));
+        assertEquals(0, queryResultCache.size());
+        assertEquals(0, schemaCache.getStats().get("entries"));
+
+        // Assert: No se han consumido identidades de users (test-data.sql deja la siguiente en 4)
+        User created = databaseUserService.createUser(new UserCreateDto("Nuevo", "nuevo@example.com", "IT", "Developer"));
+        assertEquals(4L, created.getId());
+    }
+
+    private static List<String> emails(List<User> users) {
+        return users.stream().map(User::getEmail).toList();
+    }
+}
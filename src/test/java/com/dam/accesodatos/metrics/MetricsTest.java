@@ -0,0 +1,60 @@
+package com.dam.accesodatos.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del registro de métricas y de su salida en formato Prometheus
+ */
+class MetricsTest {
+
+    @Test
+    void testSqlError_shouldCountSqlStateOfWrappedException() {
+        // Arrange: SQLException envuelta como hace DatabaseUserServiceImpl
+        RuntimeException error = new RuntimeException("Error al crear usuario",
+                new SQLException("Violación de clave única", "23505"));
+
+        // Act
+        Metrics.sqlError(error);
+        Metrics.sqlError(new RuntimeException("Sin causa SQL"));
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        Map<String, Object> errors = (Map<String, Object>) Metrics.snapshot().get("sqlErrors");
+        assertTrue((long) errors.get("23505") >= 1);
+        assertTrue(Metrics.prometheus().contains("ra2_sql_errors_total{sqlstate=\"23505\"}"));
+    }
+
+    @Test
+    void testPrometheus_shouldWriteCumulativeBucketsSumAndCount() {
+        // Arrange
+        StatementMetrics statement = Metrics.statement("test_prometheus \"select\"");
+        statement.returned(3);
+        ToolMetrics tool = Metrics.tool("test_prometheus_tool");
+        tool.responded(100);
+        tool.responded(5000);
+
+        // Act
+        String text = Metrics.prometheus();
+
+        // Assert: Etiquetas escapadas y buckets acumulados hasta +Inf
+        assertTrue(text.contains("# TYPE ra2_tool_response_bytes histogram"));
+        assertTrue(text.contains("ra2_tool_response_bytes_bucket{tool=\"test_prometheus_tool\",le=\"+Inf\"} 2"));
+        assertTrue(text.contains("ra2_tool_response_bytes_sum{tool=\"test_prometheus_tool\"} 5100"));
+        assertTrue(text.contains("ra2_tool_response_bytes_count{tool=\"test_prometheus_tool\"} 2"));
+        assertTrue(text.contains("ra2_statement_rows_returned_total{statement=\"test_prometheus \\\"select\\\"\"} 3"));
+        long previous = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("ra2_tool_response_bytes_bucket{tool=\"test_prometheus_tool\"")) {
+                long cumulative = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+                assertTrue(cumulative >= previous, "Los buckets deben ser acumulados: " + line);
+                previous = cumulative;
+            }
+        }
+        assertEquals(2, previous);
+    }
+}
@@ -1,20 +1,36 @@
 package com.dam.accesodatos.ra2;
 
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.QueryResultCache;
+import com.dam.accesodatos.cache.SchemaMetadataCache;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.CallOptions;
 import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.dam.accesodatos.model.BatchInsertResult;
+import com.dam.accesodatos.model.ExportResult;
+import com.dam.accesodatos.model.TransferResult;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportFilter;
+import com.dam.accesodatos.model.UserPage;
 import com.dam.accesodatos.model.UserQueryDto;
 import com.dam.accesodatos.model.UserUpdateDto;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,7 +47,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Act: Ejecutar el método bajo prueba
  * - Assert: Verificar el resultado esperado
  */
-@SpringBootTest
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false", "ra2.jdbc.batch.chunk-size=2", "ra2.jdbc.transfer.chunk-size=2",
+        "ra2.bulk.base-dir=build/bulk-test"})
 @Import(TestDataSourceConfig.class)
 @Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
         executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -40,6 +57,27 @@ class DatabaseUserServiceTest {
     @Autowired
     private DatabaseUserService service;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @Autowired
+    private SchemaMetadataCache schemaCache;
+
+    @BeforeEach
+    void clearCaches() {
+        // @Sql recarga la BD sin pasar por el servicio: las cachés quedarían obsoletas
+        userCache.invalidateAll();
+        queryResultCache.invalidateAll();
+        departmentCounters.seed();
+        schemaCache.invalidateAll();
+    }
+
     // ========== Tests para métodos EJEMPLO (ya implementados) ==========
 
     @Test
@@ -122,6 +160,32 @@ class DatabaseUserServiceTest {
         assertNull(user, "Debe retornar null para ID inexistente");
     }
 
+    @Test
+    void testFindUserById_afterUpdate_shouldReturnUpdatedUserFromCache() {
+        // Arrange: Cachear el usuario y modificarlo después
+        service.findUserById(1L);
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setDepartment("Finance");
+        service.updateUser(1L, dto);
+        assertNull(userCache.get(1L), "El UPDATE invalida la entrada en lugar de reescribirla");
+
+        // Act: Volver a buscarlo
+        User user = service.findUserById(1L);
+
+        // Assert: La escritura invalidó la entrada y se recargó de la base de datos
+        assertEquals("Finance", user.getDepartment(), "No debe devolver el valor anterior a la actualización");
+    }
+
+    @Test
+    void testFindUserById_afterDelete_shouldReturnNull() {
+        // Arrange: Cachear el usuario y borrarlo
+        service.findUserById(2L);
+        assertTrue(service.deleteUser(2L));
+
+        // Act & Assert: La caché se invalidó con el borrado
+        assertNull(service.findUserById(2L), "No debe devolver un usuario borrado");
+    }
+
     @Test
     void testUpdateUser_shouldModifyExistingUser() {
         // Arrange: Preparar datos de actualización
@@ -140,6 +204,24 @@ class DatabaseUserServiceTest {
         assertEquals("test1@example.com", updated.getEmail(), "El email no debe haber cambiado");
     }
 
+    @Test
+    void testUpdateUser_withUnchangedValues_shouldNotWrite() {
+        // Arrange: DTO con los mismos valores que ya tiene el usuario
+        Long userId = 1L;
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setName("Test User 1");
+        dto.setActive(true);
+
+        // Act: Actualizar el usuario
+        User updated = service.updateUser(userId, dto);
+
+        // Assert: Se devuelve el usuario sin tocar updated_at
+        assertNotNull(updated, "Debe devolver el usuario existente");
+        assertEquals("Test User 1", updated.getName());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), updated.getUpdatedAt(),
+                "Una actualización sin cambios no debe escribir");
+    }
+
     @Test
     void testUpdateUser_withNonExistentId_shouldThrowException() {
         // Arrange: Preparar actualización para usuario inexistente
@@ -268,6 +350,70 @@ class DatabaseUserServiceTest {
         assertTrue(users.isEmpty(), "La lista debe estar vacía para departamento inexistente");
     }
 
+    @Test
+    void testFindUsersByDepartment_afterCreate_shouldIncludeNewUser() {
+        // Arrange: Cachear el resultado de IT y crear otro usuario de IT
+        int before = service.findUsersByDepartment("IT").size();
+        service.createUser(new UserCreateDto("Cache User", "cache@example.com", "IT", "Developer"));
+
+        // Act: Repetir la misma consulta
+        List<User> after = service.findUsersByDepartment("IT");
+
+        // Assert: La escritura invalidó el resultado cacheado
+        assertEquals(before + 1, after.size(), "Debe incluir el usuario recién creado");
+    }
+
+    @Test
+    void testSearchUsers_afterDeactivatingUser_shouldNotReturnStaleResult() {
+        // Arrange: Cachear la búsqueda de activos de IT
+        UserQueryDto query = new UserQueryDto("IT", null, true, null, null);
+        assertEquals(1, service.searchUsers(query).size());
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setActive(false);
+        service.updateUser(1L, dto);
+
+        // Act: Repetir la búsqueda
+        List<User> results = service.searchUsers(query);
+
+        // Assert: Ya no hay usuarios activos en IT
+        assertTrue(results.isEmpty(), "No debe servir el resultado anterior a la actualización");
+    }
+
+    @Test
+    void testStreamAll_shouldReturnSameUsersAsFindAll() {
+        // Arrange: La BD ya tiene usuarios cargados desde test-data.sql
+        List<User> expected = service.findAll();
+
+        // Act: Leer todos los usuarios en streaming
+        List<User> streamed;
+        try (Stream<User> users = service.streamAll()) {
+            streamed = users.toList();
+        }
+
+        // Assert: Mismos usuarios y mismo orden
+        assertEquals(expected.size(), streamed.size(), "Debe devolver los mismos usuarios que findAll");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), streamed.get(i).getId());
+        }
+    }
+
+    @Test
+    void testStreamSearchUsers_shouldApplyFilters() {
+        // Arrange: Filtro por departamento
+        UserQueryDto query = new UserQueryDto();
+        query.setDepartment("IT");
+
+        // Act: Buscar en streaming
+        List<User> users;
+        try (Stream<User> stream = service.streamSearchUsers(query)) {
+            users = stream.toList();
+        }
+
+        // Assert: Solo usuarios de IT
+        assertEquals(2, users.size(), "Debe haber 2 usuarios de IT (de test-data.sql)");
+        users.forEach(user -> assertEquals("IT", user.getDepartment()));
+    }
+
     @Test
     void testSearchUsers_withMultipleFilters_shouldReturnMatchingUsers() {
         // Arrange: Preparar query con múltiples filtros
@@ -304,6 +450,35 @@ class DatabaseUserServiceTest {
         assertTrue(users.size() <= 3, "No debe exceder el límite de 3 usuarios");
     }
 
+    @Test
+    void testSearchUsersPage_withCursor_shouldWalkAllPagesInOrder() {
+        // Arrange: Páginas de 2 usuarios (hay 3 en test-data.sql)
+        UserQueryDto query = new UserQueryDto();
+        query.setLimit(2);
+
+        // Act: Primera página y, con su cursor, la segunda
+        UserPage first = service.searchUsersPage(query);
+        query.setCursor(first.getNextCursor());
+        UserPage second = service.searchUsersPage(query);
+
+        // Assert: Páginas consecutivas por id, sin repetir y sin cursor al final
+        assertEquals(List.of(1L, 2L), first.getUsers().stream().map(User::getId).toList());
+        assertNotNull(first.getNextCursor(), "La primera página debe tener cursor siguiente");
+        assertEquals(List.of(3L), second.getUsers().stream().map(User::getId).toList());
+        assertNull(second.getNextCursor(), "La última página no debe tener cursor");
+    }
+
+    @Test
+    void testSearchUsersPage_withInvalidCursor_shouldThrowException() {
+        // Arrange: Cursor que no ha generado el servidor
+        UserQueryDto query = new UserQueryDto();
+        query.setCursor("no-es-un-cursor");
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> service.searchUsersPage(query),
+                "Debe lanzar RuntimeException con un cursor no válido");
+    }
+
     @Test
     void testSearchUsers_withRoleFilter_shouldReturnMatchingUsers() {
         // Arrange: Preparar query con filtro de rol
@@ -364,6 +539,171 @@ class DatabaseUserServiceTest {
         assertEquals(0, insertedCount, "Debe retornar 0 para lista vacía");
     }
 
+    @Test
+    void testBatchInsert_shouldSplitIntoChunksAndReturnGeneratedIds() {
+        // Arrange: 5 usuarios con bloques de 2 filas (ver @SpringBootTest)
+        List<User> users = batchUsers(5);
+
+        // Act
+        BatchInsertResult result = service.batchInsert(users);
+
+        // Assert: 3 bloques confirmados (2 + 2 + 1) y un id por fila, en orden
+        assertTrue(result.isComplete());
+        assertEquals(5, result.getInserted());
+        assertEquals(3, result.getChunks().size());
+        assertEquals(1, result.getChunks().get(2).getRows());
+        assertEquals(5, result.getGeneratedIds().stream().distinct().count());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(result.getGeneratedIds().get(i), users.get(i).getId());
+            assertEquals(users.get(i).getEmail(), service.findUserById(users.get(i).getId()).getEmail());
+        }
+    }
+
+    @Test
+    void testBatchInsert_withFailingChunk_shouldKeepEarlierChunksAndReportFailure() {
+        // Arrange: La fila 4 (segundo bloque) repite un email existente
+        List<User> users = batchUsers(5);
+        users.get(3).setEmail("test1@example.com");
+
+        // Act
+        BatchInsertResult result = service.batchInsert(users);
+
+        // Assert: El primer bloque queda confirmado, el segundo se deshace y el tercero no se envía
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getFailedChunk());
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getSkippedRows());
+        assertEquals(BatchInsertResult.STATUS_COMMITTED, result.getChunks().get(0).getStatus());
+        assertEquals(BatchInsertResult.STATUS_ROLLED_BACK, result.getChunks().get(1).getStatus());
+        assertEquals(5, service.findAll().size(), "3 originales + 2 del primer bloque");
+
+        // batchInsertUsers (la herramienta que devuelve solo el número) lanza el fallo
+        List<User> duplicate = batchUsers(1);
+        duplicate.get(0).setEmail("test2@example.com");
+        assertThrows(RuntimeException.class, () -> service.batchInsertUsers(duplicate));
+    }
+
+    @Test
+    void testTransferData_bestEffort_shouldCommitValidRowsAndReportFailures() {
+        // Arrange: La fila 3 (segundo bloque de 2) repite un email existente
+        List<User> users = batchUsers(5);
+        users.get(2).setEmail("test1@example.com");
+
+        // Act
+        TransferResult result = service.transferData(users, true);
+
+        // Assert: Solo se deshace la fila duplicada; las demás quedan confirmadas
+        assertFalse(result.isComplete());
+        assertFalse(result.isRolledBack());
+        assertEquals(TransferResult.MODE_BEST_EFFORT, result.getMode());
+        assertEquals(3, result.getChunks());
+        assertEquals(4, result.getInserted());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(2, result.getFailures().get(0).getRow());
+        assertEquals("test1@example.com", result.getFailures().get(0).getEmail());
+        assertEquals(7, service.findAll().size(), "3 originales + 4 válidos");
+    }
+
+    @Test
+    void testTransferData_allOrNothing_shouldRollBackEverything() {
+        // Arrange: La fila 4 (segundo bloque) repite un email existente
+        List<User> users = batchUsers(5);
+        users.get(3).setEmail("test1@example.com");
+
+        // Act
+        TransferResult result = service.transferData(users, false);
+
+        // Assert: También se deshace el primer bloque, ya enviado
+        assertTrue(result.isRolledBack());
+        assertEquals(0, result.getInserted());
+        assertFalse(result.getFailures().isEmpty());
+        assertEquals(3, service.findAll().size(), "Solo los 3 originales");
+
+        // transferData(List) lanza el fallo con la SQLException de la fila como causa
+        RuntimeException error = assertThrows(RuntimeException.class, () -> service.transferData(users));
+        assertInstanceOf(SQLException.class, error.getCause());
+        assertNotNull(result.getFirstError());
+    }
+
+    @Test
+    void testExportUsers_withColumnsAndFilter_shouldWriteMatchingRowsAsCsv() throws IOException {
+        // Arrange: Usuarios activos de IT, solo nombre y email
+        UserExportFilter filter = new UserExportFilter("IT", null, true, null);
+
+        // Act
+        ExportResult result = service.exportUsers("export/it.csv", null, "users", List.of("name", "email"), filter);
+
+        // Assert
+        assertEquals(1L, result.getRows());
+        assertEquals(List.of("name", "email"), result.getColumns());
+        List<String> lines = Files.readAllLines(Paths.get("build/bulk-test/export/it.csv"));
+        assertEquals(List.of("name,email", "Test User 1,test1@example.com"), lines);
+        assertEquals(Files.size(Paths.get("build/bulk-test/export/it.csv")), result.getBytes());
+    }
+
+    @Test
+    void testExportUsers_withFilterWithoutLimit_shouldWriteEveryMatchingRow() throws IOException {
+        // Arrange: 12 usuarios más de IT, por encima del limit por defecto de search_users (10)
+        List<User> users = batchUsers(12);
+        users.forEach(user -> user.setDepartment("IT"));
+        service.transferData(users);
+        UserExportFilter filter = new UserExportFilter("IT", null, null, null);
+
+        // Act
+        ExportResult result = service.exportUsers("export/it-all.csv", null, "users", List.of("email"), filter);
+
+        // Assert: 2 originales de IT + 12 nuevos
+        assertEquals(14L, result.getRows());
+        assertEquals(15, Files.readAllLines(Paths.get("build/bulk-test/export/it-all.csv")).size());
+    }
+
+    @Test
+    void testExportUsers_withoutColumns_shouldWriteOnlyTheTableColumns() throws IOException {
+        // Act: Sin columnas se exportan todas las de PUBLIC.USERS (no las de INFORMATION_SCHEMA.USERS)
+        ExportResult users = service.exportUsers("export/all.csv", null, "users", null, null);
+        ExportResult stats = service.exportUsers("export/all-stats.csv", null, "user_statistics", null, null);
+
+        // Assert
+        assertEquals(List.of("id", "name", "email", "department", "role", "active", "created_at", "updated_at"),
+                users.getColumns());
+        assertEquals(3L, users.getRows());
+        List<String> lines = Files.readAllLines(Paths.get("build/bulk-test/export/all.csv"));
+        assertEquals("id,name,email,department,role,active,created_at,updated_at", lines.get(0));
+        assertEquals(4, lines.size());
+        assertEquals(List.of("id", "user_id", "login_count", "last_login"), stats.getColumns());
+        assertEquals(2L, stats.getRows());
+    }
+
+    @Test
+    void testExportUsers_userStatisticsAsNdjson_shouldWriteOneObjectPerRow() throws IOException {
+        // Act
+        ExportResult result = service.exportUsers("export/stats.ndjson", null, "user_statistics",
+                List.of("user_id", "login_count"), null);
+
+        // Assert
+        assertEquals(2L, result.getRows());
+        List<String> lines = Files.readAllLines(Paths.get("build/bulk-test/export/stats.ndjson"));
+        assertEquals("{\"user_id\":1,\"login_count\":10}", lines.get(0));
+
+        // Columnas desconocidas, tablas no exportables y rutas fuera del directorio se rechazan
+        assertThrows(IllegalArgumentException.class,
+                () -> service.exportUsers("export/x.csv", null, "users", List.of("password"), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.exportUsers("export/x.csv", null, "secrets", null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.exportUsers("../x.csv", null, "users", null, null));
+    }
+
+    private static List<User> batchUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            User user = new User("Chunk User " + i, "chunk" + i + "@example.com", "Sales", "Agent");
+            user.setActive(true);
+            users.add(user);
+        }
+        return users;
+    }
+
     // CE2.e: Metadata
 
     @Test
@@ -429,6 +769,52 @@ class DatabaseUserServiceTest {
         assertTrue(columns.isEmpty(), "Debe retornar lista vacía para tabla inexistente");
     }
 
+    @Test
+    void testGetTableColumns_shouldReturnIndependentCopies() {
+        // Arrange: Primera llamada (rellena la caché) y modificación del resultado
+        List<Map<String, Object>> first = service.getTableColumns("users");
+        first.get(0).put("name", "MODIFICADA");
+        first.clear();
+
+        // Act: Segunda llamada (servida desde la caché)
+        List<Map<String, Object>> second = service.getTableColumns("users");
+
+        // Assert: La caché no se vio afectada
+        assertFalse(second.isEmpty());
+        assertTrue(second.stream().noneMatch(col -> "MODIFICADA".equals(col.get("name"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDescribeSchema_shouldDescribeTablesIndexesAndForeignKeys() {
+        // Act: Describir el esquema completo
+        Map<String, Object> schema = service.describeSchema();
+
+        // Assert: Están las dos tablas de test-schema.sql
+        List<Map<String, Object>> tables = (List<Map<String, Object>>) schema.get("tables");
+        Map<String, Object> users = tables.stream()
+                .filter(table -> "USERS".equals(table.get("name"))).findFirst().orElseThrow();
+        Map<String, Object> statistics = tables.stream()
+                .filter(table -> "USER_STATISTICS".equals(table.get("name"))).findFirst().orElseThrow();
+
+        // Columnas, clave primaria e índices de users
+        List<Map<String, Object>> columns = (List<Map<String, Object>>) users.get("columns");
+        assertTrue(columns.stream().anyMatch(col -> "EMAIL".equals(col.get("name"))));
+        assertEquals(List.of("ID"), users.get("primaryKey"));
+        List<Map<String, Object>> indexes = (List<Map<String, Object>>) users.get("indexes");
+        assertTrue(indexes.stream().anyMatch(index -> List.of("DEPARTMENT", "ID").equals(index.get("columns"))),
+                "Debe incluir el índice compuesto (department, id)");
+
+        // Clave foránea de user_statistics hacia users
+        List<Map<String, Object>> foreignKeys = (List<Map<String, Object>>) statistics.get("foreignKeys");
+        assertEquals(1, foreignKeys.size());
+        assertEquals("USERS", foreignKeys.get(0).get("referencedTable"));
+        assertEquals(List.of("USER_ID"), foreignKeys.get(0).get("columns"));
+
+        // Assert: La segunda llamada se sirve desde la caché (misma respuesta)
+        assertSame(schema, service.describeSchema());
+    }
+
     // CE2.f: Aggregate Functions
 
     @Test
@@ -475,4 +861,36 @@ class DatabaseUserServiceTest {
         assertEquals(hrUsers.size(), hrCount,
                 "Debe coincidir con findUsersByDepartment (solo activos)");
     }
+
+    @Test
+    void testExecuteCountByDepartment_shouldFollowWritesWithoutRequery() {
+        // Arrange: IT tiene 1 activo y 1 inactivo en test-data.sql
+        assertEquals(1, service.executeCountByDepartment("IT"));
+
+        // Act: Activar el usuario 3, mover el 1 a HR y crear otro en IT
+        UserUpdateDto activate = new UserUpdateDto();
+        activate.setActive(true);
+        service.updateUser(3L, activate);
+        UserUpdateDto move = new UserUpdateDto();
+        move.setDepartment("HR");
+        service.updateUser(1L, move);
+        service.createUser(new UserCreateDto("Counter User", "counter@example.com", "IT", "Developer"));
+
+        // Assert: Los contadores en memoria coinciden con el recuento en SQL
+        assertEquals(2, service.executeCountByDepartment("IT"));
+        assertEquals(2, service.executeCountByDepartment("HR"));
+        assertEquals(2, CallOptions.run(CallOptions.FRESH, () -> service.executeCountByDepartment("IT")));
+    }
+
+    @Test
+    void testExecuteCountByDepartment_afterDelete_shouldDecrement() {
+        // Arrange
+        int before = service.executeCountByDepartment("HR");
+
+        // Act: Borrar el único usuario de HR (activo)
+        assertTrue(service.deleteUser(2L));
+
+        // Assert
+        assertEquals(before - 1, service.executeCountByDepartment("HR"));
+    }
 }
\ No newline at end of file
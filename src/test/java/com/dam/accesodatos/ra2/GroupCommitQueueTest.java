@@ -0,0 +1,143 @@
+package com.dam.accesodatos.ra2;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la cola de group commit (sin base de datos: el flusher es un doble)
+ */
+class GroupCommitQueueTest {
+
+    private GroupCommitQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testSubmit_withFullBatch_shouldFlushTogetherAndCompleteEachFuture() {
+        // Arrange: Grupos de 3 filas y un plazo largo: solo se vacía al llenarse
+        queue = new GroupCommitQueue(true, 3, 10_000);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        queue.start(batch -> {
+            batchSizes.add(batch.size());
+            long id = 1;
+            for (GroupCommitQueue.PendingWrite write : batch) {
+                User user = new User(id++, write.getCreate().getName(), write.getCreate().getEmail(), "IT", "Dev");
+                write.getResult().complete(user);
+            }
+        });
+
+        // Act
+        List<GroupCommitQueue.PendingWrite> writes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            GroupCommitQueue.PendingWrite write = GroupCommitQueue.PendingWrite.insert(
+                    new UserCreateDto("User " + i, "user" + i + "@example.com", "IT", "Dev"));
+            writes.add(write);
+            queue.submit(write);
+        }
+
+        // Assert: Un solo grupo y cada llamada recibe su fila
+        for (int i = 0; i < 3; i++) {
+            assertEquals("User " + i, writes.get(i).getResult().join().getName());
+        }
+        assertEquals(List.of(3), batchSizes);
+        Map<String, Object> stats = queue.getStats();
+        assertEquals(0, stats.get("queued"));
+        assertEquals(0L, stats.get("failedBatches"));
+    }
+
+    @Test
+    void testSubmit_belowBatchSize_shouldFlushAfterMaxDelay() {
+        // Arrange
+        queue = new GroupCommitQueue(true, 100, 1);
+        queue.start(batch -> batch.forEach(write -> write.getResult().complete(new User())));
+
+        // Act: Una sola escritura no llena el grupo
+        GroupCommitQueue.PendingWrite write = GroupCommitQueue.PendingWrite.update(1L, new UserUpdateDto());
+        queue.submit(write);
+
+        // Assert: Se confirma al vencer max-delay-ms
+        assertNotNull(write.getResult().join());
+    }
+
+    @Test
+    void testSubmit_whenFlusherThrows_shouldFailEveryWriteOfTheBatch() {
+        // Arrange
+        queue = new GroupCommitQueue(true, 2, 10_000);
+        queue.start(batch -> {
+            throw new RuntimeException("commit fallido");
+        });
+
+        // Act
+        GroupCommitQueue.PendingWrite first = GroupCommitQueue.PendingWrite.update(1L, new UserUpdateDto());
+        GroupCommitQueue.PendingWrite second = GroupCommitQueue.PendingWrite.update(2L, new UserUpdateDto());
+        queue.submit(first);
+        queue.submit(second);
+
+        // Assert
+        CompletionException error = assertThrows(CompletionException.class, () -> first.getResult().join());
+        assertEquals("commit fallido", error.getCause().getMessage());
+        assertThrows(CompletionException.class, () -> second.getResult().join());
+        assertEquals(1L, queue.getStats().get("failedBatches"));
+    }
+
+    @Test
+    void testSubmit_withoutStart_shouldFailImmediately() {
+        // Arrange
+        queue = new GroupCommitQueue(true, 10, 2);
+
+        // Act
+        GroupCommitQueue.PendingWrite write = GroupCommitQueue.PendingWrite.update(1L, new UserUpdateDto());
+        queue.submit(write);
+
+        // Assert
+        assertTrue(write.getResult().isCompletedExceptionally());
+    }
+
+    @Test
+    void testSubmit_concurrentWithStop_shouldCompleteEveryFuture() throws Exception {
+        // Arrange: Escritor que confirma cada grupo
+        queue = new GroupCommitQueue(true, 4, 1);
+        queue.start(batch -> batch.forEach(write -> write.getResult().complete(new User())));
+        List<GroupCommitQueue.PendingWrite> writes = new CopyOnWriteArrayList<>();
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    GroupCommitQueue.PendingWrite write = GroupCommitQueue.PendingWrite.update(1L, new UserUpdateDto());
+                    writes.add(write);
+                    queue.submit(write);
+                }
+            }));
+        }
+
+        // Act: Parar la cola mientras se sigue encolando
+        Thread.sleep(5);
+        queue.stop();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        // Assert: Ninguna escritura se queda sin completar (confirmada o fallida)
+        for (GroupCommitQueue.PendingWrite write : writes) {
+            assertTrue(write.getResult().handle((user, error) -> true).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, queue.getStats().get("queued"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.dam.accesodatos.ra2;
+
+import com.dam.accesodatos.cache.DepartmentCounters;
+import com.dam.accesodatos.cache.UserCache;
+import com.dam.accesodatos.config.TestDataSourceConfig;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de create_user y update_user con el commit agrupado activado
+ *
+ * max-delay-ms amplio para que las llamadas concurrentes caigan en el mismo grupo.
+ */
+@SpringBootTest(properties = {"ra2.mcp.warmup.enabled=false", "ra2.writes.group-commit.enabled=true",
+        "ra2.writes.group-commit.max-batch-rows=50", "ra2.writes.group-commit.max-delay-ms=50"})
+@Import(TestDataSourceConfig.class)
+@Sql(scripts = {"/test-schema.sql", "/test-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class GroupCommitServiceTest {
+
+    @Autowired
+    private DatabaseUserService service;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DepartmentCounters departmentCounters;
+
+    @BeforeEach
+    void clearCaches() {
+        userCache.invalidateAll();
+        departmentCounters.seed();
+    }
+
+    @Test
+    void testCreateUser_concurrently_shouldReturnEachGeneratedId() {
+        // Arrange
+        List<Supplier<User>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            UserCreateDto dto = new UserCreateDto("Group " + i, "group" + i + "@example.com", "IT", "Dev");
+            calls.add(() -> service.createUser(dto));
+        }
+
+        // Act
+        List<User> created = joinAll(calls);
+
+        // Assert: Ids distintos, cada uno con su propia fila
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < created.size(); i++) {
+            User user = created.get(i);
+            assertTrue(ids.add(user.getId()), "Cada llamada debe recibir su id");
+            assertEquals("group" + i + "@example.com", user.getEmail());
+            assertEquals(user.getEmail(), service.findUserById(user.getId()).getEmail());
+        }
+        // 1 activo de IT en test-data.sql más los 8 nuevos
+        assertEquals(9, service.executeCountByDepartment("IT"));
+    }
+
+    @Test
+    void testCreateUser_withDuplicateEmailInGroup_shouldFailOnlyThatCall() {
+        // Arrange: test1@example.com ya existe en test-data.sql
+        UserCreateDto valid = new UserCreateDto("Valid", "valid@example.com", "HR", "Dev");
+        UserCreateDto duplicate = new UserCreateDto("Duplicate", "test1@example.com", "HR", "Dev");
+
+        // Act
+        CompletableFuture<User> validCall = CompletableFuture.supplyAsync(() -> service.createUser(valid));
+        CompletableFuture<User> duplicateCall = CompletableFuture.supplyAsync(() -> service.createUser(duplicate));
+
+        // Assert
+        assertNotNull(validCall.join().getId(), "La fila válida debe confirmarse");
+        CompletionException error = assertThrows(CompletionException.class, duplicateCall::join);
+        assertTrue(error.getCause().getMessage().contains("ya está registrado"));
+    }
+
+    @Test
+    void testUpdateUser_concurrentlyOnSameId_shouldApplyEveryField() {
+        // Arrange: Dos actualizaciones del mismo usuario con campos distintos
+        UserUpdateDto name = new UserUpdateDto();
+        name.setName("Renamed");
+        UserUpdateDto role = new UserUpdateDto();
+        role.setRole("Architect");
+
+        // Act
+        joinAll(List.of(() -> service.updateUser(1L, name), () -> service.updateUser(1L, role)));
+
+        // Assert: La fila final tiene los dos cambios
+        User user = service.findUserById(1L);
+        assertEquals("Renamed", user.getName());
+        assertEquals("Architect", user.getRole());
+    }
+
+    @Test
+    void testUpdateUser_withNonExistentId_shouldThrowException() {
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setName("Nobody");
+
+        assertThrows(RuntimeException.class, () -> service.updateUser(9999L, dto));
+    }
+
+    private static List<User> joinAll(List<Supplier<User>> calls) {
+        List<CompletableFuture<User>> futures = new ArrayList<>();
+        for (Supplier<User> call : calls) {
+            futures.add(CompletableFuture.supplyAsync(call));
+        }
+        List<User> users = new ArrayList<>();
+        for (CompletableFuture<User> future : futures) {
+            users.add(future.join());
+        }
+        return users;
+    }
+}
@@ -15,9 +15,9 @@ CREATE TABLE users (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
-CREATE INDEX idx_users_department ON users(department);
-CREATE INDEX idx_users_role ON users(role);
-CREATE INDEX idx_users_active ON users(active);
+CREATE INDEX idx_users_department ON users(department, id);
+CREATE INDEX idx_users_role ON users(role, id);
+CREATE INDEX idx_users_active ON users(active, id);
 CREATE INDEX idx_users_email ON users(email);
 
 CREATE TABLE user_statistics (